@@ -0,0 +1,47 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.gui.file.FileFormat;
+import com.ra4king.circuitsim.gui.file.FileFormat.CircuitFile;
+
+/**
+ * Parsing the JSON of the largest example circuits. {@code parse} excludes reading the file from disk, while
+ * {@code readAndVerify} streams it from disk and checks the revision signatures like loading it in CircuitSim does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FileFormatBenchmark {
+	@Param({ "CPU.sim", "Pipelined-CPU.sim", "Single-Cycle CPU.sim" })
+	public String file;
+	
+	private String contents;
+	
+	@Setup
+	public void setUp() throws IOException {
+		contents = Files.readString(Path.of("examples", file));
+	}
+	
+	@Benchmark
+	public CircuitFile parse() {
+		return FileFormat.parse(contents);
+	}
+	
+	@Benchmark
+	public boolean readAndVerify() throws IOException {
+		return FileFormat.read(Path.of("examples", file).toFile()).revisionSignaturesAreValid();
+	}
+}
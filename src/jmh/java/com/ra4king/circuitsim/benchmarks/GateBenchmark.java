@@ -0,0 +1,71 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.Gate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.OrGate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.XorGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * Evaluating a single gate when one of its inputs changes, without propagating the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class GateBenchmark {
+	@Param({ "AND", "OR", "XOR" })
+	public String type;
+	
+	@Param({ "1", "32" })
+	public int bitSize;
+	
+	@Param({ "2", "5" })
+	public int numInputs;
+	
+	private Gate gate;
+	private CircuitState state;
+	private WireValue[] inputs;
+	private int next;
+	
+	@Setup
+	public void setUp() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Gate", simulator);
+		gate = circuit.addComponent(switch (type) {
+			case "AND" -> new AndGate("Gate", bitSize, numInputs);
+			case "OR" -> new OrGate("Gate", bitSize, numInputs);
+			case "XOR" -> new XorGate("Gate", bitSize, numInputs);
+			default -> throw new IllegalArgumentException(type);
+		});
+		state = circuit.getTopLevelState();
+		
+		for (int i = 0; i < numInputs; i++) {
+			Pin pin = circuit.addComponent(new Pin("In" + i, bitSize, true));
+			pin.getPort(Pin.Ports.PORT).linkPort(gate.getPort(i));
+			pin.setValue(state, WireValue.of(0x12345678L * (i + 1), bitSize));
+		}
+		simulator.stepAll();
+		
+		inputs = new WireValue[] { WireValue.of(0, bitSize), WireValue.of(-1, bitSize) };
+	}
+	
+	@Benchmark
+	public void evaluate() {
+		gate.valueChanged(state, inputs[next ^= 1], 0);
+	}
+}
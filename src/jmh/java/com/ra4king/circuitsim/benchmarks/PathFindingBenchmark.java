@@ -0,0 +1,65 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.gui.LinkWires.Wire;
+import com.ra4king.circuitsim.gui.PathFinding;
+import com.ra4king.circuitsim.gui.PathFinding.LocationPreference;
+import com.ra4king.circuitsim.gui.PathFinding.ValidWireLocation;
+
+/**
+ * Routing a wire across a grid scattered with component-sized obstacles, as when dragging a wire across a busy circuit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PathFindingBenchmark {
+	@Param({ "15", "40" })
+	public int distance;
+	
+	private boolean[][] blocked;
+	private ValidWireLocation validLocation;
+	
+	@Setup
+	public void setUp() {
+		int size = distance + 20;
+		blocked = new boolean[size][size];
+		
+		// Fixed seed so that every run routes around the same obstacles
+		Random random = new Random(42);
+		for (int i = 0; i < size * size / 40; i++) {
+			int x = random.nextInt(size - 4);
+			int y = random.nextInt(size - 4);
+			for (int dx = 0; dx < 4; dx++) {
+				for (int dy = 0; dy < 3; dy++) {
+					blocked[x + dx][y + dy] = true;
+				}
+			}
+		}
+		blocked[0][0] = false;
+		blocked[distance][distance] = false;
+		
+		validLocation = (x, y, horizontal) -> {
+			if (x >= size || y >= size || blocked[x][y]) {
+				return LocationPreference.INVALID;
+			}
+			return LocationPreference.VALID;
+		};
+	}
+	
+	@Benchmark
+	public Set<Wire> bestPath() {
+		return PathFinding.bestPath(0, 0, distance, distance, validLocation);
+	}
+}
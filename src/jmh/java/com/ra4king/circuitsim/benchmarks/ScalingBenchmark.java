@@ -0,0 +1,74 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.generator.CircuitGenerator;
+
+/**
+ * Sweeps the size of generated circuits in steps of 8x, so that time per gate should stay flat as long as
+ * propagation scales linearly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ScalingBenchmark {
+	@Param({ "32", "256", "2048" })
+	public int size;
+	
+	private Simulator adderSimulator;
+	private CircuitState adderState;
+	private Pin carryIn;
+	private int carry;
+	
+	private Simulator lfsrSimulator;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		// A carry in on top of all ones ripples through every bit of the adder
+		adderSimulator = new Simulator();
+		Circuit adder = new CircuitGenerator(adderSimulator).rippleAdder(size);
+		adderState = adder.getTopLevelState();
+		for (Component component : adder.getComponents()) {
+			if (component instanceof Pin pin && pin.isInput()) {
+				long value = pin.getName().startsWith("A") ? -1 : 0;
+				pin.setValue(adderState, WireValue.of(value, pin.getBitSize()));
+				if (pin.getName().equals("Cin")) {
+					carryIn = pin;
+				}
+			}
+		}
+		adderSimulator.stepAll();
+		
+		lfsrSimulator = new Simulator();
+		new CircuitGenerator(lfsrSimulator).lfsrRing(size);
+		lfsrSimulator.stepAll();
+	}
+	
+	@Benchmark
+	public void rippleCarry() {
+		carryIn.setValue(adderState, WireValue.of(carry ^= 1, 1));
+		adderSimulator.stepAll();
+	}
+	
+	@Benchmark
+	public Clock.RunResult lfsrCycle() {
+		return Clock.runCycles(lfsrSimulator, 1);
+	}
+}
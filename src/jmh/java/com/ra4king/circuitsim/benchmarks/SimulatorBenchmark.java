@@ -0,0 +1,115 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.ra4king.circuitsim.gui.CircuitBoard;
+import com.ra4king.circuitsim.gui.CircuitSim;
+import com.ra4king.circuitsim.gui.peers.wiring.PinPeer;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+/**
+ * Simulating the example circuits, loaded the same way as in the application but without opening a window.
+ */
+public class SimulatorBenchmark {
+	private static CircuitSim load(String file) throws Exception {
+		CircuitSim sim = new CircuitSim(false);
+		sim.loadCircuits(new File("examples", file));
+		return sim;
+	}
+	
+	/**
+	 * Settling the 32-bit ripple-carry adder of Adder.sim after its inputs change.
+	 */
+	@State(Scope.Thread)
+	public static class AdderState {
+		CircuitSim sim;
+		Simulator simulator;
+		CircuitState state;
+		List<Pin> inputs;
+		long operand;
+		
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			sim = load("Adder.sim");
+			simulator = sim.getSimulator();
+			
+			CircuitBoard board = sim.getCircuitBoards().get("32-bit adder");
+			state = board.getCurrentState();
+			inputs = board
+				.getComponents()
+				.stream()
+				.filter(peer -> peer instanceof PinPeer)
+				.map(peer -> ((PinPeer)peer).getComponent())
+				.filter(Pin::isInput)
+				.toList();
+		}
+		
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			simulator.close();
+		}
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void adderStepAll(AdderState adder) {
+		// Alternate between operands that carry through every bit and ones that do not
+		adder.operand = ~adder.operand;
+		for (Pin pin : adder.inputs) {
+			pin.setValue(adder.state, WireValue.of(adder.operand, pin.getBitSize()));
+		}
+		adder.simulator.stepAll();
+	}
+	
+	/**
+	 * Running the example CPUs through full clock cycles, as `Clock.runCycles` does for autograders.
+	 */
+	@State(Scope.Thread)
+	public static class CpuState {
+		@Param({ "CPU.sim", "Pipelined-CPU.sim" })
+		public String file;
+		
+		@Param({ "100" })
+		public long cycles;
+		
+		CircuitSim sim;
+		Simulator simulator;
+		
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			sim = load(file);
+			simulator = sim.getSimulator();
+			simulator.stepAll();
+		}
+		
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			simulator.close();
+		}
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Clock.RunResult clockCycles(CpuState cpu) {
+		return Clock.runCycles(cpu.simulator, cpu.cycles);
+	}
+}
@@ -0,0 +1,60 @@
+package com.ra4king.circuitsim.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.ra4king.circuitsim.simulator.WireValue;
+
+/**
+ * Merging and comparing WireValues, which happens for every port of every link that propagates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class WireValueBenchmark {
+	@Param({ "1", "8", "32" })
+	public int bitSize;
+	
+	private WireValue value;
+	private WireValue equalValue;
+	private WireValue otherValue;
+	private WireValue floating;
+	private WireValue result;
+	
+	@Setup
+	public void setUp() {
+		value = WireValue.of(0x5A5A5A5AL, bitSize);
+		equalValue = WireValue.of(0x5A5A5A5AL, bitSize);
+		otherValue = WireValue.of(0x5A5A5A5BL, bitSize);
+		floating = new WireValue(bitSize, WireValue.State.Z);
+		result = new WireValue(bitSize);
+	}
+	
+	@Benchmark
+	public WireValue mergeWithFloating() {
+		return result.set(floating).merge(value);
+	}
+	
+	@Benchmark
+	public WireValue mergeEqual() {
+		return result.set(value).merge(equalValue);
+	}
+	
+	@Benchmark
+	public boolean equalsSame() {
+		return value.equals(equalValue);
+	}
+	
+	@Benchmark
+	public boolean equalsDifferent() {
+		return value.equals(otherValue);
+	}
+}
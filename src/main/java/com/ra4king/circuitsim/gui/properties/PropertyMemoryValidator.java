@@ -1,23 +1,23 @@
 package com.ra4king.circuitsim.gui.properties;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.nio.file.Files;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import com.ra4king.circuitsim.gui.Properties.PropertyValidator;
 import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator.MemoryLine;
 import com.ra4king.circuitsim.simulator.SimulationException;
 
+import com.ra4king.circuitsim.simulator.components.memory.MemoryImageLoader;
 import com.ra4king.circuitsim.simulator.components.memory.MemoryUnit;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.Node;
@@ -54,10 +54,18 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
     }
 
     public static String formatValue(int value, int dataBits) {
+        return appendValue(new StringBuilder(8), value, dataBits).toString();
+    }
+
+    // Appends the value as zero-padded hex, which is much faster than String.format over a whole memory
+    private static StringBuilder appendValue(StringBuilder builder, int value, int dataBits) {
         if (dataBits < 32) {
             value &= (1 << dataBits) - 1;
         }
-        return String.format("%0" + (1 + (dataBits - 1) / 4) + "x", value);
+        for (int digit = (dataBits - 1) / 4; digit >= 0; digit--) {
+            builder.append(Character.forDigit((value >>> (digit * 4)) & 0xF, 16));
+        }
+        return builder;
     }
 
     public String formatValue(int value) {
@@ -82,59 +90,30 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
         return false;
     }
 
-    public static List<MemoryLine> parseLine(int[] values, BiConsumer<Integer, Integer> memoryListener, int addressBits, int dataBits) {
-        List<MemoryLine> lines = new ArrayList<>();
-
-        int address = 0;
-        MemoryLine currLine = null;
-        for (int value : values) {
-            if (currLine == null) {
-                currLine = new MemoryLine(address);
-            }
-
-            SimpleStringProperty prop = new SimpleStringProperty(formatValue(value, dataBits));
-
-            if (memoryListener != null) {
-                MemoryLine currMemoryLine = currLine;
-                int currSize = currMemoryLine.values.size();
-                prop.addListener(
-                        (observable, oldValue, newValue) ->
-                                memoryListener.accept(currMemoryLine.address + currSize, parseValue(newValue))
-                );
-            }
-
-            currLine.values.add(prop);
-
-            if (currLine.values.size() == 16) {
-                lines.add(currLine);
-                currLine = null;
-                address += 16;
-            }
-        }
-
-        while (address < (1 << addressBits)) {
-            if (currLine == null) {
-                currLine = new MemoryLine(address);
-            }
-
-            currLine.values.add(new SimpleStringProperty("0"));
-
-            if (currLine.values.size() == 16) {
-                lines.add(currLine);
-                currLine = null;
-                address += 16;
-            }
-        }
-
-        if (currLine != null) {
-            lines.add(currLine);
+    /**
+     * Splits the given words into lines of 16 that all share a single array, padded with zeros to the size of the
+     * memory.
+     */
+    public static List<MemoryLine> parseLine(int[] values, int addressBits, int dataBits) {
+        int[] memory = Arrays.copyOf(values, 1 << addressBits);
+        List<MemoryLine> lines = new ArrayList<>((memory.length + 15) / 16);
+        for (int address = 0; address < memory.length; address += 16) {
+            lines.add(new MemoryLine(memory, address, dataBits));
         }
-
         return lines;
     }
 
-    public List<MemoryLine> parseLine(int[] values, BiConsumer<Integer, Integer> memoryListener) {
-        return parseLine(values, memoryListener, unit.getNetAddrBits(), unit.getDataWidth());
+    /**
+     * Returns the words of all the given lines in a single array.
+     */
+    public static int[] toArray(List<MemoryLine> lines) {
+        int[] values = new int[lines.stream().mapToInt(MemoryLine::size).sum()];
+        int offset = 0;
+        for (MemoryLine line : lines) {
+            System.arraycopy(line.memory, line.address, values, offset, line.size());
+            offset += line.size();
+        }
+        return values;
     }
 
     @Override
@@ -144,59 +123,51 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
 
 
     public static List<MemoryLine> parseLine(String contents, int addressBits, int dataBits) {
-        return parseLine(parsePartial(contents, addressBits), null, addressBits, dataBits);
+        return parseLine(parsePartial(contents, addressBits), addressBits, dataBits);
     }
 
     private static int[] parsePartial(String contents, int addressBits) {
-        int[] values = new int[1 << addressBits];
-        try (Scanner scanner = new Scanner(contents)) {
-            int length;
-            for (length = 0; length < values.length && scanner.hasNext(); length++) {
-                String piece = scanner.next();
-                if (piece.matches("^\\d+-[\\da-fA-F]+$")) {
-                    String[] split = piece.split("-");
-                    int count = Integer.parseInt(split[0]);
-                    int val = parseValue(split[1]);
-                    for (int j = 0; j < count && length < values.length; j++, length++) {
-                        values[length] = val;
-                    }
-                    length--; // to account for extra increment
-                } else {
-                    values[length] = parseValue(piece);
-                }
-            }
-            return Arrays.copyOf(values, length);
-        }
+        return MemoryImageLoader.parseText(contents, 1 << addressBits);
     }
 
     @Override
     public String toString(List<MemoryLine> lines) {
-        String values = lines.stream().map(MemoryLine::toString).collect(Collectors.joining(" "));
+        int[] values = toArray(lines);
+        int dataBits = unit.getDataWidth();
 
-        // expensive I know, but whatever...
-        String[] split = values.split(" ");
+        // Runs of the same value are written as count-value, unless the plain list of values is shorter
         StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < split.length; ) {
+        for (int i = 0; i < values.length; ) {
             int count = 1;
-
-            while ((i + count) < split.length && split[i].equals(split[i + count])) {
+            while (i + count < values.length && values[i] == values[i + count]) {
                 count++;
             }
 
-            if (count == 1) {
-                builder.append(split[i]);
-            } else {
-                builder.append(count).append('-').append(split[i]);
+            if (count > 1) {
+                builder.append(count).append('-');
             }
+            appendValue(builder, values[i], dataBits);
 
             i += count;
 
-            if (i < split.length) {
+            if (i < values.length) {
                 builder.append(' ');
             }
         }
 
-        return builder.length() < values.length() ? builder.toString() : values;
+        int plainLength = values.length == 0 ? 0 : values.length * (1 + (dataBits - 1) / 4 + 1) - 1;
+        if (builder.length() < plainLength) {
+            return builder.toString();
+        }
+
+        builder.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            appendValue(builder, values[i], dataBits);
+        }
+        return builder.toString();
     }
 
     @Override
@@ -204,22 +175,15 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
         return new Label("Right click component to edit contents.");
     }
 
-    private static void copyMemoryValues(List<MemoryLine> dest, List<MemoryLine> src) {
-        for (int i = 0; i < src.size(); i++) {
-            MemoryLine srcLine = src.get(i);
-            MemoryLine tableLine = dest.get(i);
-
-            for (int j = 0; j < srcLine.values.size() && j < tableLine.values.size(); j++) {
-                tableLine.values.get(j).set(srcLine.values.get(j).get());
-            }
-        }
+    public static List<MemoryLine> parseFile(File selectedFile, int addressBits, int dataBits) {
+        int[] values = loadFile(selectedFile, addressBits, dataBits);
+        return values == null ? null : parseLine(values, addressBits, dataBits);
     }
 
-    public static List<MemoryLine> parseFile(File selectedFile, int addressBits, int dataBits) {
+    private static int[] loadFile(File selectedFile, int addressBits, int dataBits) {
         if (selectedFile != null && !selectedFile.getPath().equals("null") && !selectedFile.getPath().isEmpty()) {
             try {
-                String contents = new String(Files.readAllBytes(selectedFile.toPath()));
-                return parseLine(contents, addressBits, dataBits);
+                return MemoryImageLoader.load(selectedFile, addressBits, dataBits);
             } catch (Exception exc) {
                 exc.printStackTrace();
                 new Alert(AlertType.ERROR, "Could not open file: " + exc.getMessage()).showAndWait();
@@ -228,34 +192,76 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
         return null;
     }
 
-    public void createAndShowMemoryWindow(Stage stage, List<MemoryLine> lines) {
+    /**
+     * Opens the memory editor and blocks until it is closed. The table is virtualized: only the visible rows are read
+     * from the model and formatted, and every edit is written straight back to it.
+     */
+    public void createAndShowMemoryWindow(Stage stage, MemoryModel memory) {
         Stage memoryStage = new Stage();
         memoryStage.initOwner(stage);
         memoryStage.setTitle("Modify memory");
 
-        TableView<MemoryLine> tableView = new TableView<>();
+        int size = memory.size();
+        int columns = Math.min(size, 16);
+        int rows = columns == 0 ? 0 : (size + columns - 1) / columns;
+
+        // Each row is only its index, values are read from the model when a cell is shown
+        List<Integer> rowIndices = new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        };
+
+        TableView<Integer> tableView = new TableView<>();
         tableView.getSelectionModel().setCellSelectionEnabled(true);
         tableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
         tableView.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_LAST_COLUMN);
         tableView.setEditable(true);
 
-        TableColumn<MemoryLine, String> address = new TableColumn<>("Address");
+        TableColumn<Integer, String> address = new TableColumn<>("Address");
         address.setStyle("-fx-alignment: CENTER-RIGHT; -fx-background-color: lightgray;");
         address.setSortable(false);
         address.setEditable(false);
-        address.setCellValueFactory(param -> new SimpleStringProperty(String.format("%0" + (1 + (unit.getAddressWidth() - 1) / 4) + "x",
-                param.getValue().address * unit.getBytesPerEntry())));
+        address.setCellValueFactory(param -> new ReadOnlyStringWrapper(String.format("%0" + (1 + (unit.getAddressWidth() - 1) / 4) + "x",
+                param.getValue() * columns * unit.getBytesPerEntry())));
         tableView.getColumns().add(address);
 
-        int columns = Math.min(1 << unit.getNetAddrBits(), 16);
+        // Typing a digit on a selected cell starts editing it with that digit
+        String[] initialText = new String[1];
+
+        // The cells of a row are created one after the other, so the words of the last row read are kept to read each
+        // row at once instead of once per cell. The row is forgotten after an edit and on every frame, before the table
+        // lays out its cells, so writes followed by a refresh are always read back.
+        int[] rowValues = new int[columns];
+        int[] cachedRow = { -1 };
+
         for (int i = 0; i < columns; i++) {
             int j = i;
 
-            TableColumn<MemoryLine, String> column = new TableColumn<>(String.format("+%x", i * unit.getBytesPerEntry()));
+            TableColumn<Integer, String> column = new TableColumn<>(String.format("+%x", i * unit.getBytesPerEntry()));
             column.setStyle("-fx-alignment: CENTER;");
             column.setSortable(false);
             column.setEditable(true);
-            column.setCellValueFactory(param -> param.getValue().get(j));
+            column.setCellValueFactory(param -> {
+                int row = param.getValue();
+                int start = row * columns;
+                if (start + j >= size) {
+                    return new ReadOnlyStringWrapper("");
+                }
+                if (cachedRow[0] != row) {
+                    int[] values = size - start < columns ? new int[size - start] : rowValues;
+                    memory.getRange(start, values);
+                    System.arraycopy(values, 0, rowValues, 0, values.length);
+                    cachedRow[0] = row;
+                }
+                return new ReadOnlyStringWrapper(formatValue(rowValues[j]));
+            });
             column.setCellFactory(c -> new TableCell<>() {
                 private TextField textField;
                 private String oldText;
@@ -266,7 +272,9 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
                     super.startEdit();
                     setText(null);
 
-                    textField = new TextField(oldText);
+                    boolean typed = initialText[0] != null;
+                    textField = new TextField(typed ? initialText[0] : oldText);
+                    initialText[0] = null;
                     textField.addEventHandler(KeyEvent.KEY_PRESSED, event -> {
                         if (event.getCode() == KeyCode.ESCAPE) {
                             textField.setText(oldText);
@@ -282,54 +290,48 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
                     });
 
                     setGraphic(textField);
-                    textField.selectAll();
+                    if (typed) {
+                        textField.end();
+                    } else {
+                        textField.selectAll();
+                    }
                     textField.requestFocus();
                 }
 
                 @Override
                 protected void updateItem(String item, boolean empty) {
                     super.updateItem(item, empty);
-
-                    if (item == null) {
-                        if (textField != null) {
-                            updateText(textField.getText());
-                        } else {
-                            setText(null);
-                        }
-                    } else {
-                        updateText(item);
-                        if (textField != null) {
-                            textField.setText(item);
-                        }
-                    }
-
+                    setText(empty ? null : item);
                     setGraphic(null);
-                    tableView.requestFocus();
                 }
 
                 @Override
                 public void cancelEdit() {
                     super.cancelEdit();
                     if (textField != null) {
-                        updateText(textField.getText());
+                        commitText(textField.getText());
                         textField = null;
                         setGraphic(null);
                         tableView.requestFocus();
                     }
                 }
 
-                private void updateText(String newText) {
-                    String newValue;
-                    try {
-                        newValue = formatValue(parseValue(newText));
-                    } catch (SimulationException exc) {
-                        newValue = oldText;
+                private void commitText(String newText) {
+                    int index = getIndex() * columns + j;
+                    if (getIndex() < 0 || index >= size) {
+                        setText(oldText);
+                        return;
                     }
 
-                    setText(newValue);
-
-                    if (getTableRow() != null) {
-                        lines.get(getTableRow().getIndex()).values.get(j).set(newValue);
+                    try {
+                        int value = parseValue(newText);
+                        setText(formatValue(value));
+                        if (value != memory.get(index)) {
+                            memory.set(index, value);
+                            cachedRow[0] = -1;
+                        }
+                    } catch (SimulationException exc) {
+                        setText(oldText);
                     }
                 }
             });
@@ -337,7 +339,19 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
             tableView.getColumns().add(column);
         }
 
-        tableView.setItems(FXCollections.observableList(lines));
+        tableView.setItems(FXCollections.observableList(rowIndices));
+
+        // Changes made by the simulation are pulled once per frame and coalesced into a single refresh of the visible
+        // rows. Refreshing recreates the cells, so changes stay pending until the cell being edited, if any, is done.
+        AnimationTimer changePoller = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                cachedRow[0] = -1;
+                if (tableView.getEditingCell() == null && memory.pollChanges()) {
+                    tableView.refresh();
+                }
+            }
+        };
 
         Button loadButton = new Button("Load from file");
         loadButton.setOnAction(event -> {
@@ -345,9 +359,11 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
             fileChooser.setTitle("Choose file");
             fileChooser.setInitialDirectory(new File(System.getProperty("user.dir")));
             File selectedFile = fileChooser.showOpenDialog(memoryStage);
-            List<MemoryLine> src = parseFile(selectedFile, unit.getNetAddrBits(), unit.getDataWidth());
-            if (src != null)
-                copyMemoryValues(lines, src);
+            int[] values = loadFile(selectedFile, unit.getNetAddrBits(), unit.getDataWidth());
+            if (values != null) {
+                memory.setRange(0, Arrays.copyOf(values, size));
+                tableView.refresh();
+            }
         });
         Button saveButton = new Button("Save to file");
         saveButton.setOnAction(event -> {
@@ -356,9 +372,18 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
             fileChooser.setInitialFileName("Memory.dat");
             File selectedFile = fileChooser.showSaveDialog(memoryStage);
             if (selectedFile != null) {
-                List<String> strings = lines.stream().map(MemoryLine::toString).collect(Collectors.toList());
-                try {
-                    Files.write(selectedFile.toPath(), strings);
+                try (BufferedWriter writer = Files.newBufferedWriter(selectedFile.toPath())) {
+                    StringBuilder line = new StringBuilder();
+                    for (int row = 0; row < rows; row++) {
+                        line.setLength(0);
+                        for (int i = row * columns; i < Math.min(size, (row + 1) * columns); i++) {
+                            if (line.length() > 0) {
+                                line.append(' ');
+                            }
+                            appendValue(line, memory.get(i), unit.getDataWidth());
+                        }
+                        writer.append(line).append(System.lineSeparator());
+                    }
                 } catch (Exception exc) {
                     exc.printStackTrace();
                     new Alert(AlertType.ERROR, "Could not open file: " + exc.getMessage()).showAndWait();
@@ -366,19 +391,26 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
             }
         });
         Button clearButton = new Button("Clear contents");
-        clearButton.setOnAction(event -> lines.forEach(line -> line.values.forEach(value -> value.set("0"))));
+        clearButton.setOnAction(event -> {
+            memory.clear();
+            tableView.refresh();
+        });
 
         memoryStage.addEventHandler(KeyEvent.KEY_PRESSED, keyEvent -> {
+            @SuppressWarnings("unchecked")
+            ObservableList<TablePosition<Integer, ?>> selectedCells =
+                    (ObservableList<TablePosition<Integer, ?>>)
+                            (ObservableList<?>) tableView.getSelectionModel().getSelectedCells();
+
             if (keyEvent.isShortcutDown()) {
                 if (keyEvent.getCode() == KeyCode.C) {
                     ClipboardContent content = new ClipboardContent();
 
                     StringBuilder ramContent = new StringBuilder();
-                    for (TablePosition<?, ?> selectedCell : tableView.getSelectionModel().getSelectedCells()) {
-                        if (selectedCell.getColumn() > 0) {
-                            ramContent
-                                    .append(lines.get(selectedCell.getRow()).values.get(selectedCell.getColumn() - 1).get())
-                                    .append(" ");
+                    for (TablePosition<Integer, ?> selectedCell : selectedCells) {
+                        int index = cellIndex(selectedCell, columns);
+                        if (index >= 0 && index < size) {
+                            ramContent.append(formatValue(memory.get(index))).append(" ");
                         }
                     }
 
@@ -388,45 +420,22 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
                     String clipboard = Clipboard.getSystemClipboard().getString();
                     if (clipboard != null) {
                         try {
-                            // This is silly.
-                            @SuppressWarnings("unchecked")
-                            ObservableList<TablePosition<?, ?>> selectedCells =
-                                    (ObservableList<TablePosition<?, ?>>)
-                                            (ObservableList<?>) tableView.getSelectionModel().getSelectedCells();
-
                             int[] values = parsePartial(clipboard, unit.getAddressWidth());
 
                             if (selectedCells.size() <= 1) {
-                                TablePosition<?, ?>
-                                        selectedCell =
-                                        selectedCells.isEmpty() ? null : selectedCells.get(0);
-                                int row = selectedCell == null ? 0 : selectedCell.getRow();
-                                int col = selectedCell == null ? 0 : selectedCell.getColumn() - 1;
-
-                                if (col >= 0) {
-                                    for (int value : values) {
-                                        lines.get(row).get(col).set(formatValue(value));
-
-                                        if (++col == lines.get(0).values.size()) {
-                                            col = 0;
-                                            row++;
-
-                                            if (row == lines.size()) {
-                                                break;
-                                            }
-                                        }
-                                    }
+                                int start = selectedCells.isEmpty() ? 0 : cellIndex(selectedCells.get(0), columns);
+                                if (start >= 0 && start < size) {
+                                    memory.setRange(start, Arrays.copyOf(values, Math.min(values.length, size - start)));
                                 }
                             } else {
                                 for (int i = 0; i < selectedCells.size() && i < values.length; i++) {
-                                    TablePosition<?, ?> selectedCell = selectedCells.get(i);
-                                    if (selectedCell.getColumn() > 0) {
-                                        lines.get(selectedCell.getRow()).values
-                                                .get(selectedCell.getColumn() - 1)
-                                                .set(formatValue(values[i]));
+                                    int index = cellIndex(selectedCells.get(i), columns);
+                                    if (index >= 0 && index < size) {
+                                        memory.set(index, values[i]);
                                     }
                                 }
                             }
+                            tableView.refresh();
                         } catch (Exception exc) {
                             exc.printStackTrace();
                             new Alert(AlertType.ERROR, "Invalid clipboard data: " + exc.getMessage()).showAndWait();
@@ -434,18 +443,22 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
                     }
                 }
             } else if (keyEvent.getCode() == KeyCode.DELETE || keyEvent.getCode() == KeyCode.BACK_SPACE) {
-                for (TablePosition<?, ?> selectedCell : tableView.getSelectionModel().getSelectedCells()) {
-                    if (selectedCell.getColumn() > 0) {
-                        lines.get(selectedCell.getRow()).values.get(selectedCell.getColumn() - 1).set(formatValue(0));
+                for (TablePosition<Integer, ?> selectedCell : selectedCells) {
+                    int index = cellIndex(selectedCell, columns);
+                    if (index >= 0 && index < size) {
+                        memory.set(index, 0);
                     }
                 }
+                tableView.refresh();
             } else if (tableView.getEditingCell() == null &&
-                    tableView.getSelectionModel().getSelectedCells().size() == 1 &&
+                    selectedCells.size() == 1 &&
                     (keyEvent.getCode().isLetterKey() || keyEvent.getCode().isDigitKey())) {
                 @SuppressWarnings("unchecked")
-                TablePosition<MemoryLine, String> selectedCell = tableView.getFocusModel().getFocusedCell();
-                lines.get(selectedCell.getRow()).get(selectedCell.getColumn() - 1).set(keyEvent.getText());
-                tableView.edit(selectedCell.getRow(), selectedCell.getTableColumn());
+                TablePosition<Integer, String> selectedCell = tableView.getFocusModel().getFocusedCell();
+                if (selectedCell.getColumn() > 0) {
+                    initialText[0] = keyEvent.getText();
+                    tableView.edit(selectedCell.getRow(), selectedCell.getTableColumn());
+                }
             }
         });
 
@@ -454,29 +467,99 @@ public class PropertyMemoryValidator implements PropertyValidator<List<MemoryLin
 
         memoryStage.setScene(new Scene(new VBox(new HBox(loadButton, saveButton, clearButton), tableView)));
         memoryStage.sizeToScene();
-        memoryStage.showAndWait();
+        changePoller.start();
+        try {
+            memoryStage.showAndWait();
+        } finally {
+            changePoller.stop();
+        }
+    }
+
+    // The index of the word in a selected cell, or -1 for the address column
+    private static int cellIndex(TablePosition<?, ?> cell, int columns) {
+        return cell.getColumn() > 0 ? cell.getRow() * columns + cell.getColumn() - 1 : -1;
+    }
+
+    /**
+     * The words shown by the memory editor. The editor only reads the words of the rows that are visible, and writes
+     * every edit straight back through `set`.
+     */
+    public abstract static class MemoryModel {
+        public abstract int size();
+
+        public abstract int get(int index);
+
+        public abstract void set(int index, int value);
+
+        /**
+         * Reads consecutive words starting at the given index into the array. Override this when the memory has a
+         * faster bulk read, such as one that takes the simulator lock once for all the words.
+         */
+        public void getRange(int start, int[] values) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = get(start + i);
+            }
+        }
+
+        /**
+         * Writes consecutive words starting at the given index. Override this when the memory has a faster bulk write.
+         */
+        public void setRange(int start, int[] values) {
+            for (int i = 0; i < values.length; i++) {
+                set(start + i, values[i]);
+            }
+        }
+
+        public void clear() {
+            setRange(0, new int[size()]);
+        }
+
+        /**
+         * Returns whether any word was changed since the last call, such as by the simulation, and forgets the changes.
+         * An open editor calls this on the JavaFX thread once per frame and refreshes the visible rows if it returns
+         * true, so it should be cheap when nothing changed.
+         */
+        public boolean pollChanges() {
+            return false;
+        }
     }
 
+    /**
+     * A row of 16 words of the contents of a memory. All lines parsed together share a single array.
+     */
     public static class MemoryLine {
         public final int address;
-        public final List<StringProperty> values;
+        private final int[] memory;
+        private final int dataBits;
 
-        public MemoryLine(int address) {
+        MemoryLine(int[] memory, int address, int dataBits) {
             this.address = address;
-            values = new ArrayList<>(16);
+            this.memory = memory;
+            this.dataBits = dataBits;
         }
 
-        public StringProperty get(int index) {
-            if (index < values.size()) {
-                return values.get(index);
-            }
+        public int size() {
+            return Math.min(16, memory.length - address);
+        }
+
+        public int get(int index) {
+            return memory[address + index];
+        }
 
-            return new SimpleStringProperty("");
+        public void set(int index, int value) {
+            memory[address + index] = value;
         }
 
         @Override
         public String toString() {
-            return values.stream().map(StringProperty::get).collect(Collectors.joining(" "));
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < size(); i++) {
+                if (i > 0) {
+                    builder.append(' ');
+                }
+                appendValue(builder, get(i), dataBits);
+            }
+            return builder.toString();
         }
     }
 }
@@ -7,8 +7,11 @@ import com.ra4king.circuitsim.gui.LinkWires.Wire
 import com.ra4king.circuitsim.gui.PathFinding.LocationPreference
 import com.ra4king.circuitsim.simulator.Circuit
 import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
 import com.ra4king.circuitsim.simulator.SimulationException
 import com.ra4king.circuitsim.simulator.Simulator
+import com.ra4king.circuitsim.simulator.trace.ActivityTracker
 import javafx.scene.canvas.GraphicsContext
 import javafx.scene.paint.Color
 import java.util.concurrent.CountDownLatch
@@ -54,6 +57,15 @@ class CircuitBoard(
             rejoinWires()
         }
 
+    /**
+     * Links drawn with an overlay on top of the regular wires, used to show analysis results such as critical paths.
+     */
+    var highlightedLinks: Set<Port.Link> = emptySet()
+        set(value) {
+            field = value
+            circuitManager.simulatorWindow.setNeedsRepaint()
+        }
+
     val isMoving get() = moveElements != null
 
     class MoveComputeResult(val wiresToAdd: HashSet<Wire>, val wiresToRemove: HashSet<Wire>, val failedConnections: HashSet<Connection>)
@@ -943,14 +955,34 @@ class CircuitBoard(
 
     fun getConnections(x: Int, y: Int) = connectionsMap.getOrDefault(Pair(x, y), HashSet())
 
-    fun paint(graphics: GraphicsContext, highlightLinkWires: LinkWires?) {
+    @JvmOverloads
+    fun paint(
+        graphics: GraphicsContext,
+        highlightLinkWires: LinkWires?,
+        state: CircuitState = currentState,
+        activity: ActivityTracker? = null
+    ) {
         components.forEach {
             if (!(moveElements?.contains(it) ?: false))
-                paintComponent(graphics, currentState, it)
+                paintComponent(graphics, state, it)
         }
         for (linkWires in links)
             for (wire in linkWires.wires)
-                paintWire(graphics, currentState, wire, linkWires === highlightLinkWires)
+                paintWire(graphics, state, wire, linkWires === highlightLinkWires)
+
+        if (highlightedLinks.isNotEmpty()) {
+            graphics.save()
+            try {
+                graphics.stroke = Color.MAGENTA
+                for (linkWires in links)
+                    if (linkWires.link in highlightedLinks)
+                        linkWires.wires.forEach { it.paint(graphics, 4.0) }
+            } finally {
+                graphics.restore()
+            }
+        }
+
+        activity?.let { paintActivity(graphics, it) }
 
         for (link in badLinks) {
             (link.ports + link.invalidPorts).forEach { port ->
@@ -978,8 +1010,8 @@ class CircuitBoard(
                 graphics.globalAlpha = 0.5
                 elements.forEach {
                     when (it) {
-                        is ComponentPeer<*> -> paintComponent(graphics, currentState, it)
-                        is Wire -> paintWire(graphics, currentState, it, false)
+                        is ComponentPeer<*> -> paintComponent(graphics, state, it)
+                        is Wire -> paintWire(graphics, state, it, false)
                     }
                 }
                 moveResult?.let { result ->
@@ -1001,6 +1033,41 @@ class CircuitBoard(
         }
     }
 
+    /**
+     * Colors each component, and each wire by its most active component, from translucent yellow to red by how often it
+     * was evaluated over the tracker's window relative to the busiest component of this circuit.
+     */
+    private fun paintActivity(graphics: GraphicsContext, activity: ActivityTracker) {
+        val counts = activity.getWindowCounts(circuit)
+        val max = counts.maxOrNull() ?: 0L
+        if (max == 0L) return
+
+        fun level(component: Component) =
+            component.slot.let { if (it in counts.indices) counts[it].toDouble() / max else 0.0 }
+
+        fun color(level: Double) = Color.hsb(60.0 * (1.0 - level), 1.0, 1.0, 0.2 + 0.6 * level)
+
+        graphics.save()
+        try {
+            for (component in components) {
+                val level = level(component.component)
+                if (level > 0.0) {
+                    graphics.fill = color(level)
+                    GuiUtils.drawShape(component, graphics::fillRect)
+                }
+            }
+            for (linkWires in links) {
+                val level = linkWires.link?.participants?.maxOfOrNull { level(it.component) } ?: 0.0
+                if (level > 0.0) {
+                    graphics.stroke = color(level)
+                    linkWires.wires.forEach { it.paint(graphics, 6.0) }
+                }
+            }
+        } finally {
+            graphics.restore()
+        }
+    }
+
     private fun paintComponent(graphics: GraphicsContext, state: CircuitState, component: ComponentPeer<*>) {
         graphics.save()
         try {
@@ -303,8 +303,11 @@ class CircuitManager(
         }
     }
 
-    fun paint(canvas: Canvas?) {
+    @JvmOverloads
+    fun paint(canvas: Canvas?, state: CircuitState = circuitBoard.currentState) {
         val graphics = canvas?.graphicsContext2D ?: return
+        val event = PaintEvent()
+        event.begin()
         graphics.save()
         try {
             graphics.font = GuiUtils.getFont(13)
@@ -347,7 +350,7 @@ class CircuitManager(
             }
 
             try {
-                circuitBoard.paint(graphics, inspectLinkWires)
+                circuitBoard.paint(graphics, inspectLinkWires, state, simulatorWindow.activityTracker)
             } catch (exc: Exception) {
                 simulatorWindow.debugUtil.logException(exc)
             }
@@ -397,7 +400,7 @@ class CircuitManager(
             inspectLinkWires?.let {
                 if (it.isLinkValid) it.link?.let { link ->
                     val value = try {
-                        circuitBoard.currentState.getMergedValue(link).toString()
+                        state.getMergedValue(link).toString()
                     } catch (_: Exception) {
                         "Error"
                     }
@@ -516,6 +519,14 @@ class CircuitManager(
             }
         } finally {
             graphics.restore()
+
+            event.end()
+            if (event.shouldCommit()) {
+                event.circuit = name
+                event.components = circuitBoard.components.size
+                event.wires = circuitBoard.links.sumOf { it.wires.size }
+                event.commit()
+            }
         }
     }
 
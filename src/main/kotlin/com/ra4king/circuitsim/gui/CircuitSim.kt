@@ -14,19 +14,31 @@ import com.ra4king.circuitsim.gui.file.FileFormat.ComponentInfo
 import com.ra4king.circuitsim.gui.file.FileFormat.WireInfo
 import com.ra4king.circuitsim.gui.file.FileFormat.stringify
 import com.ra4king.circuitsim.gui.peers.SubcircuitPeer
+import com.ra4king.circuitsim.gui.peers.memory.RAMPeer
+import com.ra4king.circuitsim.gui.peers.wiring.Tunnel
 import com.ra4king.circuitsim.gui.properties.PropertyCircuitValidator
 import com.ra4king.circuitsim.simulator.*
+import com.ra4king.circuitsim.simulator.analysis.LogicDepthAnalyzer
 import com.ra4king.circuitsim.simulator.components.Subcircuit
+import com.ra4king.circuitsim.simulator.components.memory.MemorySnapshotFile
 import com.ra4king.circuitsim.simulator.components.wiring.Clock
 import com.ra4king.circuitsim.simulator.components.wiring.Clock.Companion.getLastTickCount
 import com.ra4king.circuitsim.simulator.components.wiring.Clock.Companion.isRunning
 import com.ra4king.circuitsim.simulator.components.wiring.Pin
+import com.ra4king.circuitsim.simulator.debugger.Debugger
+import com.ra4king.circuitsim.simulator.debugger.WatchExpression
+import com.ra4king.circuitsim.simulator.debugger.WaveformRecorder
+import com.ra4king.circuitsim.simulator.trace.ActivityTracker
 import javafx.animation.AnimationTimer
+import javafx.animation.KeyFrame
+import javafx.animation.Timeline
 import javafx.application.Application
 import javafx.application.Platform
+import javafx.beans.property.ReadOnlyObjectWrapper
 import javafx.beans.property.SimpleBooleanProperty
 import javafx.beans.value.ChangeListener
 import javafx.embed.swing.SwingFXUtils
+import javafx.event.ActionEvent
 import javafx.event.Event
 import javafx.event.EventHandler
 import javafx.event.EventType
@@ -96,6 +108,8 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
     private var savedEditStackSize = 0
     private var circuitButtonsTab: TitledPane? = null
     private var currentTimer: AnimationTimer? = null
+    private var simulationThread: SimulationThread? = null
+    private var waveformRecorder: WaveformRecorder? = null
 
     var initContext: InitContext by Delegates.notNull()
     var startContext: StartContext by Delegates.notNull()
@@ -153,12 +167,13 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
 
     private val currentClockSpeed
         get() = frequenciesMenu.items
-            .map { it as RadioMenuItem }
-            .firstOrNull { it.isSelected }?.text
-            ?.substringBefore(" ")
-            ?.toIntOrNull()
+            .indexOfFirst { (it as RadioMenuItem).isSelected }
+            .takeIf { it >= 0 }
+            ?.let(::clockSpeedAt)
             ?: throw IllegalStateException("No frequency selected")
 
+    private fun clockSpeedAt(index: Int) = if (index == MAX_SPEED_INDEX) Clock.MAX_SPEED else 1 shl index
+
     private var lastExceptionTime: Long? = null
     private var lastException: Exception? = null
         set(value) {
@@ -177,6 +192,15 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
     private val copiedBlocks = LinkedList<String>()
     private var exceptionThrown: Exception? = null
     private val showGridProp = SimpleBooleanProperty(true)
+    private val showActivityProp = SimpleBooleanProperty(false)
+    private var openMetricsDialogs = 0
+
+    /**
+     * Counts component evaluations while the activity heatmap is shown, null otherwise.
+     */
+    var activityTracker: ActivityTracker? = null
+        private set
+    private val logicDepthAnalyzer = LogicDepthAnalyzer { Tunnel.getTunnelGroups(it) }
 
     constructor() : this(true, false)
 
@@ -197,6 +221,9 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
             ComponentManager()
         )
         Clock.addChangeListener(simulator) { runSim() }
+        Debugger.get(simulator).addHitListener { watchpoint, _ ->
+            lastException = SimulationException("Watchpoint hit: ${watchpoint.expression}")
+        }
         editHistory.addListener {
             updateTitle()
             needsRepaint = true
@@ -210,8 +237,12 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
     private fun runSim() {
         try {
             if (isSimulationEnabled && simulator.hasLinksToUpdate()) {
-                needsRepaint = true
-                simulator.stepAll()
+                try {
+                    simulator.stepAll()
+                } finally {
+                    // Without a simulation thread there are no snapshots, the live state is painted directly
+                    simulationThread?.invalidate() ?: run { needsRepaint = true }
+                }
             }
         } catch (e: SimulationException) {
             lastException = e
@@ -615,6 +646,10 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
 
         circuitManagers.clear()
         canvasTabPane.tabs.clear()
+        Debugger.get(simulator).clear()
+        waveformRecorder?.close()
+        waveformRecorder = null
+        activityTracker?.let { simulator.runSync { it.reset() } }
         simulator.clear()
 
         editHistory.clear()
@@ -882,30 +917,40 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
             dialog.graphic = bar
 
             lastSaveFile = file
+            val fileName = file.name
 
             val localThread = Thread {
                 try {
                     loadingFile = true
                     editHistory.disable()
+                    val parseEvent = LoadCircuitsEvent()
+                    parseEvent.begin()
                     val circuitFile = FileFormat.load(lastSaveFile, debugMode)
+                    commitLoadEvent(parseEvent, "parse", fileName, circuitFile.circuits.size)
+
+                    val createEvent = LoadCircuitsEvent()
+                    createEvent.begin()
                     revisionSignatures.clear()
                     revisionSignatures.addAll(circuitFile.revisionSignatures ?: emptyList())
                     clearCircuits()
+                    simulator.seed = circuitFile.seed
                     Platform.runLater {
                         bar.progress = 0.1
                         dialog.contentText = "Creating circuits..."
                     }
 
                     var totalComponents = 0
+                    var totalWires = 0
                     for (circuit in circuitFile.circuits) {
                         check(!circuitManagers.containsKey(circuit.name)) { "Duplicate circuit names not allowed." }
                         createCircuit(circuit.name)
-                        totalComponents += circuit.components.size + circuit.wires.size
+                        totalComponents += circuit.components.size
+                        totalWires += circuit.wires.size
                     }
                     Platform.runLater { dialog.contentText = "Creating components..." }
                     val runnables = ArrayDeque<() -> Unit>()
-                    val latch = CountDownLatch(totalComponents + 1)
-                    val increment = (1.0 - bar.progress) / totalComponents
+                    val latch = CountDownLatch(totalComponents + totalWires + 1)
+                    val increment = (1.0 - bar.progress) / (totalComponents + totalWires)
                     for (circuit in circuitFile.circuits) {
                         val manager = getCircuitManager(circuit.name)
                         for (component in circuit.components) {
@@ -948,8 +993,11 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                                 latch.countDown()
                             }
                         }
-                        for (wire in circuit.wires) {
+                        // The wires of each circuit are added one after the other, so they are timed as their own phase
+                        val wireEvent = LoadCircuitsEvent()
+                        circuit.wires.forEachIndexed { index, wire ->
                             runnables.add {
+                                if (index == 0) wireEvent.begin()
                                 manager!!.mayThrow {
                                     manager.circuitBoard.addWire(
                                         wire.x,
@@ -958,6 +1006,9 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                                         wire.isHorizontal
                                     )
                                 }
+                                if (index == circuit.wires.lastIndex) {
+                                    commitLoadEvent(wireEvent, "wire", fileName, circuit.wires.size)
+                                }
                                 bar.progress += increment
                                 latch.countDown()
                             }
@@ -965,8 +1016,9 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                     }
 
                     val comps = totalComponents
+                    val elements = totalComponents + totalWires
                     val taskThread = Thread {
-                        val maxRunLater = max(comps / 20, 50)
+                        val maxRunLater = max(elements / 20, 50)
                         while (runnables.isNotEmpty()) {
                             val left = min(runnables.size, maxRunLater)
                             val l = CountDownLatch(left)
@@ -986,9 +1038,11 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                             } catch (_: Exception) {
                             }
                         }
+                        commitLoadEvent(createEvent, "create", fileName, comps)
+
                         Platform.runLater {
-                            frequenciesMenu.items.forEach { item ->
-                                if (item.text.startsWith(circuitFile.clockSpeed.toString())) {
+                            frequenciesMenu.items.forEachIndexed { index, item ->
+                                if (clockSpeedAt(index) == circuitFile.clockSpeed) {
                                     (item as RadioMenuItem).isSelected = true
                                 }
                             }
@@ -1002,6 +1056,12 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                     taskThread.start()
                     latch.await()
                     saveFile = lastSaveFile
+
+                    try {
+                        lastSaveFile?.let { loadMemories(it) }
+                    } catch (e: Exception) {
+                        debugUtil.logException(e, "Error loading memory contents")
+                    }
                 } catch (e: Exception) {
                     clearCircuits()
                     exceptionThrown = e
@@ -1035,6 +1095,16 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
         }
     }
 
+    private fun commitLoadEvent(event: LoadCircuitsEvent, phase: String, file: String, elements: Int) {
+        event.end()
+        if (event.shouldCommit()) {
+            event.phase = phase
+            event.file = file
+            event.elements = elements
+            event.commit()
+        }
+    }
+
     private fun saveCircuitsInternal() {
         try {
             saveCircuits()
@@ -1090,9 +1160,11 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                         null,
                         circuits,
                         revisionSignatures,
-                        copiedBlocks
+                        copiedBlocks,
+                        simulator.seed
                     )
                 )
+                saveMemories(file)
                 copiedBlocks.clear()
                 savedEditStackSize = editHistory.editStackSize()
                 saveFile = file
@@ -1110,6 +1182,60 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
         }
     }
 
+    // The file next to a circuit file that holds the contents of its persisted RAMs
+    private fun memoriesFile(file: File) = File(file.path + ".ram")
+
+    private fun persistedRams() = circuitManagers.values.flatMap { (_, manager) ->
+        manager.circuitBoard.components.filterIsInstance<RAMPeer>().filter { it.persistContents }.map { manager to it }
+    }
+
+    // RAMs are identified by their circuit and position, see RAMPeer.PERSIST_CONTENTS
+    private fun memoryKey(manager: CircuitManager, peer: RAMPeer) = "${manager.name}@${peer.x},${peer.y}"
+
+    /**
+     * Writes the contents of every RAM that persists its contents, in the top-level state of its circuit, next to the
+     * circuit file. The circuit file itself is left untouched.
+     */
+    private fun saveMemories(file: File) {
+        val memoriesFile = memoriesFile(file).toPath()
+        val entries = simulator.runSync {
+            persistedRams().map { (manager, peer) ->
+                val memory = peer.component.getMemory(manager.circuit.topLevelState)
+                MemorySnapshotFile.Entry(memoryKey(manager, peer), peer.component.dataBits, memory.copy())
+            }
+        }
+        if (entries.isEmpty()) {
+            Files.deleteIfExists(memoriesFile)
+        } else {
+            MemorySnapshotFile.write(memoriesFile, entries)
+        }
+    }
+
+    /**
+     * Restores the contents of every RAM that persists its contents from the file next to the circuit file, if any.
+     * Contents saved for a RAM of a different size are ignored. This runs on the loading thread, so the RAMs are
+     * collected on the FX thread, which owns the circuit boards.
+     */
+    private fun loadMemories(file: File) {
+        val memoriesFile = memoriesFile(file)
+        if (!memoriesFile.isFile) return
+
+        val entries = MemorySnapshotFile.read(memoriesFile.toPath()).associateBy { it.key }
+        var rams = emptyList<Triple<String, CircuitManager, RAMPeer>>()
+        runFxSync {
+            rams = persistedRams().map { (manager, peer) -> Triple(memoryKey(manager, peer), manager, peer) }
+        }
+        simulator.runSync {
+            rams.forEach { (key, manager, peer) ->
+                val entry = entries[key] ?: return@forEach
+                val ram = peer.component
+                if (entry.dataBits == ram.dataBits && entry.memory.size == 1 shl ram.netAddrBits) {
+                    ram.replaceMemory(manager.circuit.topLevelState, entry.memory)
+                }
+            }
+        }
+    }
+
     private fun <E : Event> onCurrentCircuit(handler: (CircuitManager, E) -> Unit) = EventHandler<E> {
         val manager = this.currentCircuit ?: return@EventHandler
         handler(manager, it)
@@ -1230,6 +1356,338 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
         return link
     }
 
+    private fun setRandomSeed() {
+        val dialog = TextInputDialog(simulator.seed?.toString() ?: "")
+        dialog.initOwner(stage)
+        dialog.title = "Set random seed"
+        dialog.headerText = "Set random seed"
+        dialog.contentText = "Seed (leave empty for a different seed every run):"
+        val value = dialog.showAndWait().orElse(null)?.trim() ?: return
+        val seed = value.toLongOrNull()
+        if (value.isNotEmpty() && seed == null) {
+            val alert = Alert(AlertType.ERROR)
+            alert.initOwner(stage)
+            alert.initModality(Modality.WINDOW_MODAL)
+            alert.title = "Invalid seed"
+            alert.headerText = "Invalid seed"
+            alert.contentText = "The seed must be an integer."
+            alert.showAndWait()
+            return
+        }
+
+        simulator.seed = seed
+        simulator.reset()
+        for ((_, manager) in circuitManagers.values) {
+            manager.switchToCircuitState()
+        }
+        runSim()
+    }
+
+    private fun manageWatchpoints() {
+        val manager = currentCircuit ?: return
+        val circuit = manager.circuit
+        val debugger = Debugger.get(simulator)
+
+        val watchpoints = ListView<Debugger.Watchpoint>()
+        watchpoints.items.addAll(debugger.getWatchpoints(circuit))
+        watchpoints.prefWidth = 500.0
+        watchpoints.setCellFactory {
+            object : ListCell<Debugger.Watchpoint>() {
+                override fun updateItem(item: Debugger.Watchpoint?, empty: Boolean) {
+                    super.updateItem(item, empty)
+                    text = when {
+                        empty || item == null -> null
+                        item.error != null -> "${item.expression} (${item.error})"
+                        else -> "${item.expression} (hits: ${item.hitCount})"
+                    }
+                }
+            }
+        }
+
+        val errorLabel = Label()
+        errorLabel.textFill = Color.RED
+
+        val expression = TextField()
+        expression.promptText = "PC == 0x3000 && MEM[0x4000] != 0"
+        HBox.setHgrow(expression, Priority.ALWAYS)
+        val add = Button("Add")
+        add.isDefaultButton = true
+        add.onAction = EventHandler {
+            try {
+                watchpoints.items.add(debugger.addWatchpoint(circuit, expression.text.trim()))
+                expression.clear()
+                errorLabel.text = ""
+            } catch (e: IllegalArgumentException) {
+                errorLabel.text = e.message
+            }
+        }
+        val remove = Button("Remove")
+        remove.disableProperty().bind(watchpoints.selectionModel.selectedItemProperty().isNull)
+        remove.onAction = EventHandler {
+            val watchpoint = watchpoints.selectionModel.selectedItem ?: return@EventHandler
+            debugger.removeWatchpoint(watchpoint)
+            watchpoints.items.remove(watchpoint)
+        }
+
+        val dialog = Dialog<ButtonType>()
+        dialog.initOwner(stage)
+        dialog.initModality(Modality.NONE)
+        dialog.title = "Watchpoints"
+        dialog.headerText = "Watchpoints of ${manager.name}, the clock stops when one becomes true"
+        dialog.dialogPane.content = VBox(5.0, watchpoints, HBox(5.0, expression, add, remove), errorLabel)
+        dialog.dialogPane.buttonTypes.add(ButtonType.CLOSE)
+        dialog.setOnShown { expression.requestFocus() }
+        dialog.show()
+    }
+
+    private fun showMetrics() {
+        // Metrics are only recorded while at least one metrics dialog is open
+        if (openMetricsDialogs++ == 0) simulator.metrics.isEnabled = true
+
+        val rows = listOf(
+            "Settles/s", "Delta steps/s", "Links/s", "Steps per settle", "Queue depth", "Settle latency",
+            "Time simulating", "Short circuits", "Allocation rate"
+        )
+        val values = rows.map { Label() }
+        val grid = GridPane()
+        grid.hgap = 20.0
+        grid.vgap = 5.0
+        rows.forEachIndexed { i, row -> grid.addRow(i, Label(row), values[i]) }
+
+        val format = DecimalFormat("#,##0.#")
+        fun micros(nanos: Long) = "${format.format(nanos / 1e3)} µs"
+
+        var last = simulator.metrics.snapshot()
+        fun update() {
+            val now = simulator.metrics.snapshot()
+            val interval = now.since(last)
+            last = now
+
+            val texts = listOf(
+                format.format(interval.perSecond(interval.settles)),
+                format.format(interval.perSecond(interval.steps)),
+                format.format(interval.perSecond(interval.links)),
+                interval.stepsPerSettle.let {
+                    "mean ${format.format(it.mean)}, p99 ${it.percentile(99.0)}, max ${it.max}"
+                },
+                interval.queueDepth.let {
+                    "mean ${format.format(it.mean)}, p99 ${it.percentile(99.0)}, max ${it.max}"
+                },
+                interval.settleNanos.let {
+                    "p50 ${micros(it.percentile(50.0))}, p90 ${micros(it.percentile(90.0))}, " +
+                        "p99 ${micros(it.percentile(99.0))}, max ${micros(it.max)}"
+                },
+                "${format.format(interval.utilization * 100)}%",
+                "${now.shortCircuits} (${interval.shortCircuits} in the last second)",
+                "${format.format(interval.perSecond(interval.allocatedBytes) / (1 shl 20))} MiB/s",
+            )
+            texts.forEachIndexed { i, text -> values[i].text = text }
+        }
+        update()
+
+        val timeline = Timeline(KeyFrame(Duration.seconds(1.0), EventHandler { update() }))
+        timeline.cycleCount = Timeline.INDEFINITE
+        timeline.play()
+
+        val dialog = Dialog<ButtonType>()
+        dialog.initOwner(stage)
+        dialog.initModality(Modality.NONE)
+        dialog.title = "Simulation metrics"
+        dialog.headerText = "Simulation metrics, updated every second"
+        dialog.dialogPane.content = grid
+        dialog.dialogPane.buttonTypes.add(ButtonType.CLOSE)
+        dialog.setOnHidden {
+            timeline.stop()
+            if (--openMetricsDialogs == 0) simulator.metrics.isEnabled = false
+        }
+        dialog.show()
+    }
+
+    private class HotComponent(
+        val name: String,
+        val type: String,
+        val circuit: String,
+        val recent: Long,
+        val total: Long,
+    )
+
+    private fun showHotComponents() {
+        showActivityProp.value = true
+
+        val table = TableView<HotComponent>()
+        fun <T> column(title: String, value: (HotComponent) -> T) = TableColumn<HotComponent, T>(title).also {
+            it.setCellValueFactory { cell -> ReadOnlyObjectWrapper(value(cell.value)) }
+            table.columns.add(it)
+        }
+        column("Component") { it.name }
+        column("Type") { it.type }
+        column("Circuit") { it.circuit }
+        val recent = column("Recent evaluations") { it.recent }
+        column("Total evaluations") { it.total }
+        recent.sortType = TableColumn.SortType.DESCENDING
+        table.sortOrder.add(recent)
+        table.prefWidth = 700.0
+
+        fun update() {
+            val tracker = activityTracker ?: return
+            val rows = ArrayList<HotComponent>()
+            for ((_, manager) in circuitManagers.values) {
+                val window = tracker.getWindowCounts(manager.circuit)
+                val totals = tracker.getTotalCounts(manager.circuit)
+                for (peer in manager.circuitBoard.components) {
+                    val slot = peer.component.slot
+                    val total = if (slot in totals.indices) totals[slot] else 0L
+                    if (total == 0L) continue
+                    rows.add(
+                        HotComponent(
+                            peer.component.name.ifEmpty { "(unnamed)" },
+                            peer.javaClass.simpleName,
+                            manager.name,
+                            if (slot in window.indices) window[slot] else 0L,
+                            total
+                        )
+                    )
+                }
+            }
+            table.items.setAll(rows)
+            table.sort()
+        }
+        update()
+
+        val timeline = Timeline(KeyFrame(Duration.seconds(1.0), EventHandler { update() }))
+        timeline.cycleCount = Timeline.INDEFINITE
+        timeline.play()
+
+        val resetButton = ButtonType("Reset", ButtonBar.ButtonData.LEFT)
+        val dialog = Dialog<ButtonType>()
+        dialog.initOwner(stage)
+        dialog.initModality(Modality.NONE)
+        dialog.title = "Hot components"
+        dialog.headerText = "Component evaluations over the last two seconds and in total"
+        dialog.dialogPane.content = table
+        dialog.dialogPane.buttonTypes.addAll(resetButton, ButtonType.CLOSE)
+        dialog.dialogPane.lookupButton(resetButton).addEventFilter(ActionEvent.ACTION) { event ->
+            event.consume()
+            activityTracker?.let { simulator.runSync { it.reset() } }
+            update()
+        }
+        dialog.setOnHidden { timeline.stop() }
+        dialog.show()
+    }
+
+    private fun recordWaveform() {
+        val manager = currentCircuit ?: return
+        val state = manager.circuitBoard.currentState
+
+        val components = ListView<Component>()
+        components.items.addAll(
+            simulator.runSync { manager.circuit.components }
+                .filter { it.name.isNotEmpty() && WatchExpression.getValuePort(it) != null }
+                .distinctBy { it.name }
+                .sortedBy { it.name })
+        components.selectionModel.selectionMode = SelectionMode.MULTIPLE
+        components.prefWidth = 400.0
+        components.setCellFactory {
+            object : ListCell<Component>() {
+                override fun updateItem(item: Component?, empty: Boolean) {
+                    super.updateItem(item, empty)
+                    text = if (empty || item == null) null else item.name
+                }
+            }
+        }
+
+        val status = Label()
+        fun updateStatus() {
+            val recorder = waveformRecorder
+            status.text = when {
+                recorder == null -> "Select the signals to record"
+                recorder.isRecording -> "Recording ${recorder.getSignals().size} signals"
+                else -> "Stopped at time ${recorder.time}"
+            }
+        }
+        updateStatus()
+
+        val record = Button("Record selected")
+        record.disableProperty().bind(components.selectionModel.selectedItemProperty().isNull)
+        record.onAction = EventHandler {
+            waveformRecorder?.close()
+            val recorder = WaveformRecorder(simulator)
+            components.selectionModel.selectedItems.forEach {
+                recorder.addSignal(it.name, state, WatchExpression.getValuePort(it)!!)
+            }
+            recorder.start()
+            waveformRecorder = recorder
+            updateStatus()
+        }
+        val stop = Button("Stop")
+        stop.onAction = EventHandler {
+            waveformRecorder?.stop()
+            updateStatus()
+        }
+        val export = Button("Export VCD")
+        export.onAction = EventHandler {
+            val recorder = waveformRecorder ?: return@EventHandler
+            val chooser = FileChooser()
+            chooser.title = "Export waveform"
+            chooser.initialFileName = "${manager.name}.vcd"
+            chooser.extensionFilters.add(FileChooser.ExtensionFilter("Value Change Dump", "*.vcd"))
+            val file = chooser.showSaveDialog(stage) ?: return@EventHandler
+            try {
+                Files.newBufferedWriter(file.toPath()).use { recorder.exportVcd(it) }
+            } catch (e: IOException) {
+                debugUtil.logException(e, "Error while exporting waveform")
+            }
+        }
+
+        val dialog = Dialog<ButtonType>()
+        dialog.initOwner(stage)
+        dialog.initModality(Modality.NONE)
+        dialog.title = "Waveform recorder"
+        dialog.headerText = "Record signals of ${manager.name}"
+        dialog.dialogPane.content = VBox(5.0, components, HBox(5.0, record, stop, export), status)
+        dialog.dialogPane.buttonTypes.add(ButtonType.CLOSE)
+        dialog.show()
+    }
+
+    private fun analyzeLogicDepth() {
+        val manager = currentCircuit ?: return
+        val board = manager.circuitBoard
+        val report = simulator.runSync { logicDepthAnalyzer.analyze(manager.circuit) }
+
+        val paths = ListView<LogicDepthAnalyzer.TimingPath>()
+        paths.items.addAll(report.paths)
+        paths.prefWidth = 600.0
+        paths.selectionModel.selectedItemProperty().addListener { _, _, path ->
+            board.highlightedLinks = path?.links?.toSet() ?: emptySet()
+        }
+
+        val exportButton = ButtonType("Export report", ButtonBar.ButtonData.LEFT)
+        val dialog = Dialog<ButtonType>()
+        dialog.initOwner(stage)
+        dialog.initModality(Modality.NONE)
+        dialog.title = "Logic depth"
+        dialog.headerText = "Maximum logic depth of ${manager.name}: ${report.maxDepth}"
+        dialog.dialogPane.content = paths
+        dialog.dialogPane.buttonTypes.addAll(exportButton, ButtonType.CLOSE)
+        dialog.dialogPane.lookupButton(exportButton).addEventFilter(ActionEvent.ACTION) { event ->
+            event.consume()
+            val chooser = FileChooser()
+            chooser.title = "Export report"
+            chooser.initialFileName = "${manager.name}-logic-depth.txt"
+            chooser.extensionFilters.add(FileChooser.ExtensionFilter("Text file", "*.txt"))
+            val file = chooser.showSaveDialog(dialog.owner) ?: return@addEventFilter
+            try {
+                Files.writeString(file.toPath(), report.format())
+            } catch (e: IOException) {
+                debugUtil.logException(e, "Error while exporting logic depth report")
+            }
+        }
+        dialog.setOnHidden {
+            board.highlightedLinks = emptySet()
+        }
+        dialog.show()
+    }
+
     private fun exportAsImages() {
         val chooser = DirectoryChooser()
         chooser.title = "Choose output directory"
@@ -1555,6 +2013,12 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
             }
             menu("View") {
                 checkItem("Show grid", binding = showGridProp) { _, _, _ -> needsRepaint = true }
+                checkItem("Show activity heatmap", binding = showActivityProp) { _, _, show ->
+                    activityTracker?.let { simulator.removeSimulationListener(it) }
+                    activityTracker = if (show) ActivityTracker().also { simulator.addSimulationListener(it) } else null
+                    needsRepaint = true
+                }
+                item("Hot components") { showHotComponents() }
             }
             menu("Circuits") {
                 item("New circuit", KeyCodeCombination(T, SHORTCUT_DOWN)) {
@@ -1563,6 +2027,7 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                 item("Delete circuit", KeyCodeCombination(W, SHORTCUT_DOWN)) {
                     currentCircuit?.let { confirmAndDeleteCircuit(it, true) }
                 }
+                item("Analyze logic depth") { analyzeLogicDepth() }
             }
             menu("Simulation") {
                 val stepSimulation = item("Step Simulation", KeyCodeCombination(I, SHORTCUT_DOWN), true) {
@@ -1589,14 +2054,21 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
                     }
                     runSim()
                 }
+                item("Set random seed") { setRandomSeed() }
+                item("Watchpoints") { manageWatchpoints() }
+                item("Record waveform") { recordWaveform() }
+                item("Metrics") { showMetrics() }
                 val tickClock = item("Tick clock", KeyCodeCombination(J, SHORTCUT_DOWN)) { Clock.tick(simulator) }
                 this@CircuitSim.clockEnabled =
                     checkItem("Clock Enabled", KeyCodeCombination(K, SHORTCUT_DOWN)) { _, _, new ->
                         tickClock.isDisable = new
                         Clock.clockEnabledProperty(simulator).set(Clock.EnabledInfo(new, currentClockSpeed))
                     }
-                this@CircuitSim.frequenciesMenu = radioMenu("Frequency", 15, { RadioMenuItem("${1 shl it} Hz") }) {
-                    if (isRunning(simulator)) Clock.startClock(simulator, 1 shl it)
+                this@CircuitSim.frequenciesMenu = radioMenu(
+                    "Frequency",
+                    MAX_SPEED_INDEX + 1,
+                    { RadioMenuItem(if (it == MAX_SPEED_INDEX) "Max" else "${1 shl it} Hz") }) {
+                    if (isRunning(simulator)) Clock.startClock(simulator, clockSpeedAt(it))
                 }
             }
             menu("Help") {
@@ -1854,6 +2326,9 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
             if (checkUnsavedChanges()) it.consume()
             else saveConfFile()
         }
+        val simulationThread = SimulationThread(debugUtil) { runSim() }
+        this.simulationThread = simulationThread
+        simulationThread.start()
         currentTimer = object : AnimationTimer() {
             private var lastRepaint = 0L
             private var frameCount = 0
@@ -1866,17 +2341,27 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
 
                     fpsLabel.text = "FPS: $lastFrameCount"
                     clockLabel.text =
-                        if (isRunning(simulator)) "Clock: ${getLastTickCount(simulator) shr 1} Hz"
-                        else ""
+                        if (!isRunning(simulator)) ""
+                        else if (currentClockSpeed == Clock.MAX_SPEED)
+                            "Clock: ${getLastTickCount(simulator) shr 1} Hz (Max)"
+                        else "Clock: ${getLastTickCount(simulator) shr 1} Hz"
                 }
 
                 frameCount++
-                runSim()
 
                 val manager = currentCircuit ?: return
-                if (needsRepaint) {
+                val state = manager.circuitBoard.currentState
+                simulationThread.displayedState = state
+                val snapshotPublished = simulationThread.consumePublished()
+                if (needsRepaint || snapshotPublished) {
+                    if (needsRepaint) simulationThread.invalidate()
                     needsRepaint = false
-                    simulator.runSync { manager.paint(circuitCanvas) }
+
+                    // Paint the latest snapshot without blocking the simulation, the live state is only painted until
+                    // the first snapshot of the displayed state is available
+                    val snapshot = simulationThread.getSnapshot(state)
+                    if (snapshot != null) manager.paint(circuitCanvas, snapshot)
+                    else simulator.runSync { manager.paint(circuitCanvas) }
                 }
 
                 if (!loadingFile) {
@@ -1893,6 +2378,8 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
         stage.close()
         currentTimer?.stop()
         currentTimer = null
+        simulationThread?.stop()
+        simulationThread = null
     }
 
     class CircuitNode(var subcircuit: Subcircuit, val subcircuitState: CircuitState?) {
@@ -1910,6 +2397,7 @@ class CircuitSim @JvmOverloads constructor(val openWindow: Boolean, val init: Bo
         val VERSION_TAG_LINE_LONG = "CircuitSim %s Edition v$VERSION_NO_CE"
 
         const val SHOW_ERROR_DURATION = 3000
+        private const val MAX_SPEED_INDEX = 15
         const val SCALE_MIN = 0.25
         const val SCALE_MAX = 8.0
 
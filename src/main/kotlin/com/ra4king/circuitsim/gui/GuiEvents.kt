@@ -0,0 +1,44 @@
+package com.ra4king.circuitsim.gui
+
+import jdk.jfr.*
+
+/*
+ * Java Flight Recorder events of the GUI, see SimulationEvents for the simulator's events.
+ */
+
+@Name("com.ra4king.circuitsim.Paint")
+@Label("Paint Circuit")
+@Category("CircuitSim", "GUI")
+@Description("A call to CircuitManager.paint")
+class PaintEvent : Event() {
+    @JvmField
+    @Label("Circuit")
+    var circuit = ""
+
+    @JvmField
+    @Label("Components Drawn")
+    var components = 0
+
+    @JvmField
+    @Label("Wires Drawn")
+    var wires = 0
+}
+
+@Name("com.ra4king.circuitsim.LoadCircuits")
+@Label("Load Circuits")
+@Category("CircuitSim", "GUI")
+@Description("One phase of loading a circuit file: parse, create or wire. The wire phases fall within create")
+class LoadCircuitsEvent : Event() {
+    @JvmField
+    @Label("Phase")
+    var phase = ""
+
+    @JvmField
+    @Label("File")
+    var file = ""
+
+    @JvmField
+    @Label("Elements")
+    @Description("The number of circuits parsed, components created or wires added")
+    var elements = 0
+}
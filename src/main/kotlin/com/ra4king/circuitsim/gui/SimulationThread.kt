@@ -0,0 +1,85 @@
+package com.ra4king.circuitsim.gui
+
+import com.ra4king.circuitsim.simulator.CircuitState
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicReference
+import java.util.concurrent.locks.LockSupport
+import kotlin.concurrent.Volatile
+
+/**
+ * Runs the simulation on a dedicated thread so that a busy simulation does not drop frames and painting does not stall
+ * the simulation. Whenever values change, a read-only copy of the displayed CircuitState is published at most once per
+ * frame, which the JavaFX thread can paint without taking the Simulator lock.
+ *
+ * @param debugUtil Logs failures to publish a snapshot.
+ * @param simulate Settles any pending changes, called repeatedly from the simulation thread.
+ */
+class SimulationThread(private val debugUtil: DebugUtil, private val simulate: () -> Unit) {
+    private class Snapshot(val source: CircuitState, val state: CircuitState)
+
+    /**
+     * The CircuitState currently shown, set by the JavaFX thread.
+     */
+    @Volatile
+    var displayedState: CircuitState? = null
+
+    @Volatile
+    private var dirty = true
+    private val published = AtomicBoolean()
+    private val snapshot = AtomicReference<Snapshot?>()
+    private val running = AtomicBoolean(true)
+    private val thread = Thread(::run, "Simulation thread").apply { isDaemon = true }
+
+    fun start() = thread.start()
+
+    fun stop() {
+        running.set(false)
+        LockSupport.unpark(thread)
+    }
+
+    /**
+     * Marks the displayed values as changed so that a new snapshot is published.
+     */
+    fun invalidate() {
+        dirty = true
+    }
+
+    /**
+     * Returns true once for each snapshot published since the last call.
+     */
+    fun consumePublished() = published.getAndSet(false)
+
+    /**
+     * Returns the latest published snapshot of the given state, or null if none was published for it yet.
+     */
+    fun getSnapshot(state: CircuitState) = snapshot.get()?.takeIf { it.source === state }?.state
+
+    private fun run() {
+        var lastPublishTime = 0L
+        while (running.get()) {
+            simulate()
+
+            val state = displayedState
+            val now = System.nanoTime()
+            if (state != null && (dirty || snapshot.get()?.source !== state) &&
+                now - lastPublishTime >= PUBLISH_INTERVAL_NANOS) {
+                dirty = false
+                try {
+                    snapshot.set(Snapshot(state, CircuitState.init(state)))
+                    published.set(true)
+                } catch (e: Exception) {
+                    debugUtil.logException(e, "Error while publishing a snapshot")
+                }
+                lastPublishTime = now
+            }
+
+            LockSupport.parkNanos(IDLE_NANOS)
+        }
+    }
+
+    companion object {
+        // Roughly one frame at 60 FPS
+        private const val PUBLISH_INTERVAL_NANOS = 16_000_000L
+        private const val IDLE_NANOS = 1_000_000L
+    }
+}
@@ -0,0 +1,252 @@
+package com.ra4king.circuitsim.gui.file
+
+import com.ra4king.circuitsim.gui.ComponentManager
+import com.ra4king.circuitsim.gui.ComponentPeer
+import com.ra4king.circuitsim.gui.Properties
+import com.ra4king.circuitsim.gui.Properties.Direction
+import com.ra4king.circuitsim.gui.file.FileFormat.CircuitFile
+import com.ra4king.circuitsim.gui.file.FileFormat.CircuitInfo
+import com.ra4king.circuitsim.gui.file.FileFormat.ComponentInfo
+import com.ra4king.circuitsim.gui.peers.SubcircuitPeer
+import com.ra4king.circuitsim.gui.peers.gates.AndGatePeer
+import com.ra4king.circuitsim.gui.peers.gates.NandGatePeer
+import com.ra4king.circuitsim.gui.peers.gates.NorGatePeer
+import com.ra4king.circuitsim.gui.peers.gates.NotGatePeer
+import com.ra4king.circuitsim.gui.peers.gates.OrGatePeer
+import com.ra4king.circuitsim.gui.peers.gates.XnorGatePeer
+import com.ra4king.circuitsim.gui.peers.gates.XorGatePeer
+import com.ra4king.circuitsim.gui.peers.memory.RegisterPeer
+import com.ra4king.circuitsim.gui.peers.plexers.DecoderPeer
+import com.ra4king.circuitsim.gui.peers.plexers.MultiplexerPeer
+import com.ra4king.circuitsim.gui.peers.wiring.ClockPeer
+import com.ra4king.circuitsim.gui.peers.wiring.ConstantPeer
+import com.ra4king.circuitsim.gui.peers.wiring.PinPeer
+import com.ra4king.circuitsim.gui.peers.wiring.SplitterPeer
+import com.ra4king.circuitsim.gui.peers.wiring.Tunnel
+import com.ra4king.circuitsim.simulator.Circuit
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.components.Subcircuit
+import com.ra4king.circuitsim.simulator.components.gates.Gate
+import com.ra4king.circuitsim.simulator.components.memory.Register
+import com.ra4king.circuitsim.simulator.components.plexers.Decoder
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer
+import com.ra4king.circuitsim.simulator.components.wiring.Clock
+import com.ra4king.circuitsim.simulator.components.wiring.Constant
+import com.ra4king.circuitsim.simulator.components.wiring.Pin
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter
+import java.io.File
+import java.io.IOException
+import kotlin.math.ceil
+import kotlin.math.max
+import kotlin.math.sqrt
+
+/**
+ * Saves Circuits that were built with the simulator API, such as by `CircuitGenerator`, as a file that can be opened in
+ * the editor. Since these circuits have no layout, components are placed in rows and every net is drawn as a set of
+ * tunnels sharing a label, one attached to each port of the net, instead of wires.
+ *
+ * Pins, gates, registers, clocks, constants, splitters, decoders, multiplexers and subcircuits are supported.
+ */
+object CircuitExporter {
+    /**
+     * Converts the given circuits and every circuit they use as a subcircuit.
+     *
+     * @throws IllegalArgumentException If a circuit contains a component that cannot be saved.
+     */
+    @JvmStatic
+    fun export(circuits: Collection<Circuit>): CircuitFile {
+        val ordered = LinkedHashSet<Circuit>()
+        fun visit(circuit: Circuit) {
+            if (circuit in ordered) return
+            // Subcircuits must be created before the circuits using them when the file is loaded
+            circuit.components.filterIsInstance<Subcircuit>().forEach { visit(it.subcircuit) }
+            ordered.add(circuit)
+        }
+        circuits.forEach(::visit)
+
+        val names = HashSet<String>()
+        ordered.forEach { require(names.add(it.name)) { "Duplicate circuit name: ${it.name}" } }
+
+        val pinLocations = HashMap<Pin, Pair<Int, Int>>()
+        val circuitInfos = ordered.map { circuit ->
+            circuit.simulator.runSync { export(circuit, pinLocations) }
+        }
+        return CircuitFile(1, 1, null, circuitInfos.toMutableList(), mutableListOf(), mutableListOf())
+    }
+
+    @JvmStatic
+    @Throws(IOException::class)
+    fun save(file: File, circuits: Collection<Circuit>) = FileFormat.save(file, export(circuits))
+
+    // The size and connection offsets of a component as it will be placed
+    private class Shape(val width: Int, val height: Int, val connections: List<Pair<Port, Pair<Int, Int>>>)
+
+    private class Placed(val component: Component, val info: (Int, Int) -> ComponentInfo, val shape: Shape)
+
+    private fun export(circuit: Circuit, pinLocations: MutableMap<Pin, Pair<Int, Int>>): CircuitInfo {
+        val labels = HashMap<Port.Link, String>()
+        val components = circuit.components.sortedBy { it.slot }
+        components.forEach { component ->
+            for (i in 0 until component.numPorts) {
+                val link = component.getPort(i).link
+                if (link.participants.size > 1) labels.getOrPut(link) { "n${labels.size}" }
+            }
+        }
+
+        val placed = components.map { describe(it, pinLocations) }
+        val maxLabel = labels.values.maxOfOrNull { it.length } ?: 0
+        val tunnelLength = labelWidth(maxLabel) + 2
+        val gapX = 2 * tunnelLength + 2
+        val gapY = 2 * TUNNEL_HEIGHT + 2
+        val rowWidth = max(MIN_ROW_WIDTH, ceil(sqrt(placed.size.toDouble())).toInt() * (gapX + 4))
+
+        val infos = ArrayList<ComponentInfo>()
+        var x = gapX
+        var y = gapY
+        var rowHeight = 0
+        for (part in placed) {
+            if (x > gapX && x + part.shape.width > rowWidth) {
+                x = gapX
+                y += rowHeight + gapY
+                rowHeight = 0
+            }
+
+            infos.add(part.info(x, y))
+            if (part.component is Pin) pinLocations[part.component] = Pair(x, y)
+
+            for ((port, offset) in part.shape.connections) {
+                val label = labels[port.link] ?: continue
+                infos.add(tunnel(label, port.link.bitSize, part.shape, offset, x, y))
+            }
+
+            x += part.shape.width + gapX
+            rowHeight = max(rowHeight, part.shape.height)
+        }
+        return CircuitInfo(circuit.name, infos, emptyList())
+    }
+
+    private fun describe(component: Component, pinLocations: Map<Pin, Pair<Int, Int>>): Placed {
+        if (component is Subcircuit) return describeSubcircuit(component, pinLocations)
+
+        val (peerClass, values) = when (component) {
+            is Pin -> PinPeer::class.java to mapOf(
+                Properties.BITSIZE.name to component.bitSize.toString(),
+                "Is input?" to if (component.isInput) "Yes" else "No",
+                Properties.DIRECTION.name to (if (component.isInput) Direction.EAST else Direction.WEST).toString()
+            )
+
+            is Gate -> gatePeer(component) to buildMap {
+                put(Properties.BITSIZE.name, component.bitSize.toString())
+                if (component !is Gate.NotGate) {
+                    put(Properties.NUM_INPUTS.name, component.numInputs.toString())
+                    component.negateInputs.forEachIndexed { i, negate -> put("Negate $i", if (negate) "Yes" else "No") }
+                }
+            }
+
+            is Register -> RegisterPeer::class.java to mapOf(Properties.BITSIZE.name to component.bitSize.toString())
+
+            is Clock -> ClockPeer::class.java to if (component.domain == Clock.Domain.DEFAULT) emptyMap() else mapOf(
+                "Clock domain" to component.domain.name,
+                "Divider" to component.domain.divider.toString(),
+                "Phase" to component.domain.phase.toString()
+            )
+
+            is Constant -> ConstantPeer::class.java to mapOf(
+                Properties.BITSIZE.name to component.bitSize.toString(),
+                Properties.BASE.name to Properties.Base.DECIMAL.toString(),
+                Properties.VALUE.name to (component.value.toLong() and ((1L shl component.bitSize) - 1)).toString()
+            )
+
+            is Splitter -> SplitterPeer::class.java to buildMap {
+                put(Properties.BITSIZE.name, component.bitFanIndices.size.toString())
+                put("Fanouts", (component.numPorts - 1).toString())
+                component.bitFanIndices.forEachIndexed { i, fan -> put("Bit $i", fan.toString()) }
+            }
+
+            is Decoder -> DecoderPeer::class.java to mapOf(
+                Properties.SELECTOR_BITS.name to component.numSelectBits.toString()
+            )
+
+            is Multiplexer -> MultiplexerPeer::class.java to mapOf(
+                Properties.BITSIZE.name to component.bitSize.toString(),
+                Properties.SELECTOR_BITS.name to component.numSelectBits.toString()
+            )
+
+            else -> throw IllegalArgumentException("Cannot save a ${component.javaClass.simpleName}")
+        }
+
+        // Create the peer the same way loading the file will, so that it has the same size and connections
+        val properties = Properties()
+        properties.setProperty(Properties.Property(Properties.LABEL.name, null, component.name))
+        values.forEach { (key, value) -> properties.setProperty(Properties.Property(key, null, value)) }
+        val peer: ComponentPeer<*> = ComponentManager.forClass(peerClass).createComponent(properties, 0, 0)
+
+        // The peer creates its own component, whose ports have the same indices as the original
+        val shape = Shape(peer.width, peer.height, peer.connections.map {
+            component.getPort(it.port.portIndex) to Pair(it.xOffset, it.yOffset)
+        })
+        return Placed(component, { x, y -> ComponentInfo(peerClass.name, x, y, peer.properties) }, shape)
+    }
+
+    // SubcircuitPeer needs the subcircuit to be open in the editor, so its layout is reproduced here instead: inputs
+    // on the left and outputs on the right, each sorted by the location of their pin in the subcircuit
+    private fun describeSubcircuit(subcircuit: Subcircuit, pinLocations: Map<Pin, Pair<Int, Int>>): Placed {
+        val order = compareBy<Pin>({ pinLocations.getValue(it).second }, { pinLocations.getValue(it).first })
+        val inputs = subcircuit.pins.filter { it.isInput }.sortedWith(order)
+        val outputs = subcircuit.pins.filter { !it.isInput }.sortedWith(order)
+
+        val width = 3
+        val height = max(3, max(inputs.size, outputs.size) + 1)
+        val connections = inputs.mapIndexed { i, pin -> subcircuit.getPort(pin)!! to Pair(0, i + 1) } +
+                outputs.mapIndexed { i, pin -> subcircuit.getPort(pin)!! to Pair(width, i + 1) }
+
+        val info = { x: Int, y: Int ->
+            ComponentInfo(
+                SubcircuitPeer::class.java.name, x, y, mutableMapOf(
+                    Properties.LABEL.name to subcircuit.name,
+                    Properties.LABEL_LOCATION.name to Direction.NORTH.toString(),
+                    SubcircuitPeer.SUBCIRCUIT to subcircuit.subcircuit.name
+                )
+            )
+        }
+        return Placed(subcircuit, info, Shape(width, height, connections))
+    }
+
+    private fun gatePeer(gate: Gate): Class<out ComponentPeer<*>> = when (gate) {
+        is Gate.NotGate -> NotGatePeer::class.java
+        is Gate.AndGate -> if (gate.negateOutput) NandGatePeer::class.java else AndGatePeer::class.java
+        is Gate.OrGate -> if (gate.negateOutput) NorGatePeer::class.java else OrGatePeer::class.java
+        is Gate.XorGate -> if (gate.negateOutput) XnorGatePeer::class.java else XorGatePeer::class.java
+        else -> throw IllegalArgumentException("Cannot save a ${gate.javaClass.simpleName}")
+    }
+
+    // Places a tunnel with its connection on the given port, pointing away from the side of the component it is on
+    private fun tunnel(label: String, bitSize: Int, shape: Shape, offset: Pair<Int, Int>, x: Int, y: Int): ComponentInfo {
+        val width = labelWidth(label.length)
+        val verticalWidth = max(((width - 1) / 2) * 2 + 2, 2)
+        val portX = x + offset.first
+        val portY = y + offset.second
+
+        val (direction, location) = when {
+            offset.first == 0 -> Direction.EAST to Pair(portX - width - 2, portY - 1)
+            offset.first == shape.width -> Direction.WEST to Pair(portX, portY - 1)
+            offset.second == 0 -> Direction.SOUTH to Pair(portX - verticalWidth / 2, portY - TUNNEL_HEIGHT)
+            else -> Direction.NORTH to Pair(portX - verticalWidth / 2, portY)
+        }
+        return ComponentInfo(
+            Tunnel::class.java.name, location.first, location.second, mutableMapOf(
+                Properties.LABEL.name to label,
+                Properties.DIRECTION.name to direction.toString(),
+                Properties.BITSIZE.name to bitSize.toString(),
+                "Width" to width.toString()
+            )
+        )
+    }
+
+    // Tunnels measure their label to size themselves. Saving an estimate of that width skips measuring when loading.
+    private fun labelWidth(length: Int) = max(1, (length * 3 + 3) / 4)
+
+    private const val TUNNEL_HEIGHT = 3
+    private const val MIN_ROW_WIDTH = 80
+}
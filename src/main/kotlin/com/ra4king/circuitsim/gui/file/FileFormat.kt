@@ -2,9 +2,13 @@ package com.ra4king.circuitsim.gui.file
 
 import com.google.gson.Gson
 import com.google.gson.GsonBuilder
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
 import com.ra4king.circuitsim.gui.CircuitSim
 import com.ra4king.circuitsim.gui.Properties
 import java.io.*
+import java.security.DigestOutputStream
 import java.security.MessageDigest
 import java.util.*
 
@@ -43,19 +47,22 @@ object FileFormat {
         try {
             val digest = MessageDigest.getInstance("SHA-256")
             //Applies sha256 to our input,
-            val hash = digest.digest(input.toByteArray(charset("UTF-8")))
-            val hexString = StringBuffer() // This will contain hash as hexidecimal
-            for (i in hash.indices) {
-                val hex = Integer.toHexString(0xff and hash[i].toInt())
-                if (hex.length == 1) hexString.append('0')
-                hexString.append(hex)
-            }
-            return hexString.toString()
+            return toHex(digest.digest(input.toByteArray(charset("UTF-8"))))
         } catch (e: Exception) {
             throw RuntimeException(e)
         }
     }
 
+    private fun toHex(hash: ByteArray): String {
+        val hexString = StringBuilder() // This will contain hash as hexidecimal
+        for (i in hash.indices) {
+            val hex = Integer.toHexString(0xff and hash[i].toInt())
+            if (hex.length == 1) hexString.append('0')
+            hexString.append(hex)
+        }
+        return hexString.toString()
+    }
+
     private fun getLastHash(revisionSignatures: MutableList<String>) =
         if (revisionSignatures.isEmpty()) ""
         else RevisionSignatureBlock(revisionSignatures[revisionSignatures.size - 1]).currentHash
@@ -73,7 +80,7 @@ object FileFormat {
     @JvmStatic
     @Throws(IOException::class)
     fun load(file: File?, taDebugMode: Boolean): CircuitFile {
-        val savedFile = file?.let { parse(readFile(it)) } ?: throw NullPointerException("File is empty!")
+        val savedFile = file?.let { read(it) } ?: throw NullPointerException("File is empty!")
         if (!taDebugMode && !savedFile.revisionSignaturesAreValid())
             throw NullPointerException("File is corrupted. Contact Course Staff for Assistance.")
         return savedFile
@@ -82,6 +89,252 @@ object FileFormat {
     @JvmStatic
     fun parse(contents: String?): CircuitFile? = GSON.fromJson(contents, CircuitFile::class.java)
 
+    /**
+     * Reads a circuit file straight from its bytes, binding every component and wire as it is reached instead of first
+     * reading the whole file into a String. The hash of the circuit data that the revision signatures are checked
+     * against is computed from the bytes as they are read, so the circuits usually do not have to be serialized again
+     * to check them. The parser reports every top-level name it reads, and the hash is only kept if those are the keys
+     * whose values were hashed. Returns null if the file is empty.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun read(file: File): CircuitFile? {
+        val input = DataHashingInputStream(BufferedInputStream(FileInputStream(file), READ_BUFFER_SIZE))
+        return GSON.newJsonReader(InputStreamReader(input, Charsets.UTF_8)).use { reader ->
+            // The hash only follows strict JSON, so the parser must not accept comments or unquoted and single-quoted
+            // strings either. Unlike Gson.fromJson, the adapters below read with the reader's own leniency.
+            reader.isLenient = false
+            val names = ArrayList<String>()
+            readCircuitFile(reader, names)?.also { it.dataHash = input.hash(names) }
+        }
+    }
+
+    private const val READ_BUFFER_SIZE = 1 shl 16
+
+    private val STRING_LIST: TypeToken<MutableList<String>> = object : TypeToken<MutableList<String>>() {}
+    private val STRING_SET: TypeToken<MutableSet<String>> = object : TypeToken<MutableSet<String>>() {}
+    private val STRING = GSON.getAdapter(String::class.java)
+    private val INT = GSON.getAdapter(Int::class.javaObjectType)
+
+    private fun readCircuitFile(reader: JsonReader, names: MutableList<String>): CircuitFile? {
+        try {
+            reader.peek()
+        } catch (_: EOFException) {
+            // Like Gson.fromJson, an empty file has no contents rather than being malformed
+            return null
+        }
+
+        var version: String? = null
+        var globalBitSize = 0
+        var clockSpeed = 0
+        var libraryPaths: MutableSet<String>? = null
+        var circuits: MutableList<CircuitInfo>? = null
+        var revisionSignatures: MutableList<String>? = null
+        var copiedBlocks: MutableList<String>? = null
+        var seed: Long? = null
+
+        reader.beginObject()
+        while (reader.hasNext()) {
+            val name = reader.nextName()
+            names.add(name)
+            when (name) {
+                "version" -> version = STRING.read(reader)
+                "globalBitSize" -> globalBitSize = INT.read(reader) ?: 0
+                "clockSpeed" -> clockSpeed = INT.read(reader) ?: 0
+                "libraryPaths" -> libraryPaths = GSON.getAdapter(STRING_SET).read(reader)
+                "circuits" -> circuits = readCircuits(reader)
+                "revisionSignatures" -> revisionSignatures = GSON.getAdapter(STRING_LIST).read(reader)
+                "copiedBlocks" -> copiedBlocks = GSON.getAdapter(STRING_LIST).read(reader)
+                "seed" -> seed = GSON.getAdapter(Long::class.javaObjectType).read(reader)
+                else -> reader.skipValue()
+            }
+        }
+        reader.endObject()
+
+        return CircuitFile(
+            version ?: throw IOException("Missing version"), globalBitSize, clockSpeed, libraryPaths,
+            circuits ?: ArrayList(), revisionSignatures ?: ArrayList(), copiedBlocks, seed
+        )
+    }
+
+    private fun readCircuits(reader: JsonReader): MutableList<CircuitInfo> {
+        val componentAdapter = GSON.getAdapter(ComponentInfo::class.java)
+        val wireAdapter = GSON.getAdapter(WireInfo::class.java)
+
+        val circuits = ArrayList<CircuitInfo>()
+        readArray(reader) {
+            var name: String? = null
+            val components = ArrayList<ComponentInfo>()
+            val wires = ArrayList<WireInfo>()
+            reader.beginObject()
+            while (reader.hasNext()) {
+                when (reader.nextName()) {
+                    "name" -> name = STRING.read(reader)
+                    "components" -> readArray(reader) { components.add(componentAdapter.read(reader)) }
+                    "wires" -> readArray(reader) { wires.add(wireAdapter.read(reader)) }
+                    else -> reader.skipValue()
+                }
+            }
+            reader.endObject()
+            circuits.add(CircuitInfo(name ?: throw IOException("Missing circuit name"), components, wires))
+        }
+        return circuits
+    }
+
+    private inline fun readArray(reader: JsonReader, readElement: () -> Unit) {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
+            return
+        }
+        reader.beginArray()
+        while (reader.hasNext()) readElement()
+        reader.endArray()
+    }
+
+    /**
+     * Computes the hash of `GSON.toJson(libraryPaths) + GSON.toJson(circuits)` from the bytes of a circuit file as they
+     * are read. GSON writes both values into the file nested one level deep, so dropping one level of indentation from
+     * every line of their bytes gives the same text as serializing them on their own. This only holds for files that
+     * were written by CircuitSim, for anything else the hash does not match and the circuits are serialized again.
+     *
+     * Only the structure of the JSON is tracked, which is all ASCII, so the bytes do not have to be decoded. Because of
+     * that, the top-level keys are compared as written: the hash is dropped if any of them repeats or is escaped, or if
+     * they are not exactly the names read by the parser, since then the hashed values may not be the ones it bound.
+     */
+    private class DataHashingInputStream(input: InputStream) : FilterInputStream(input) {
+        private val digest = MessageDigest.getInstance("SHA-256")
+        private var libraryPaths: ByteArrayOutputStream? = null
+        private var circuitsDone = false
+        private var valid = true
+
+        private var depth = 0
+        private var inString = false
+        private var escaped = false
+        private val lastKey = StringBuilder()
+        private var lastKeyEscaped = false
+        private val keys = ArrayList<String>()
+
+        // The top-level value being hashed, and where its bytes go
+        private var capturing: String? = null
+        private var valueStarting = false
+        private var sink: OutputStream? = null
+
+        // Whitespace between tokens is only written once the next token shows it was not trailing the value
+        private var pendingNewlines = 0
+        private var pendingSpaces = 0
+
+        /**
+         * Returns the hash of the library paths and circuits, or null if they could not be hashed from the bytes or the
+         * top-level keys that were hashed are not the given names read by the parser.
+         */
+        fun hash(names: List<String>) = if (valid && circuitsDone && names == keys) toHex(digest.digest()) else null
+
+        override fun read(): Int {
+            val b = super.read()
+            if (b >= 0) process(b)
+            return b
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            val read = super.read(b, off, len)
+            for (i in off until off + read) process(b[i].toInt())
+            return read
+        }
+
+        private fun process(b: Int) {
+            if (inString) {
+                if (escaped) escaped = false
+                else if (b == '\\'.code) {
+                    escaped = true
+                    lastKeyEscaped = true
+                } else if (b == '"'.code) inString = false
+                else if (depth == 1 && capturing == null) lastKey.append(b.toChar())
+                if (capturing != null) emit(b)
+                return
+            }
+
+            when (b) {
+                ' '.code, '\t'.code, '\r'.code -> if (capturing != null && !valueStarting) pendingSpaces++
+                '\n'.code -> if (capturing != null && !valueStarting) {
+                    pendingNewlines++
+                    pendingSpaces = 0
+                }
+
+                else -> {
+                    if (depth == 1 && capturing != null && (b == ','.code || b == '}'.code)) endValue()
+                    if (depth == 1 && b == ':'.code) {
+                        val key = lastKey.toString()
+                        if (lastKeyEscaped || key in keys) valid = false
+                        keys.add(key)
+                        startValue(key)
+                    } else {
+                        if (capturing != null) emit(b)
+                        valueStarting = false
+                    }
+
+                    when (b) {
+                        '"'.code -> {
+                            inString = true
+                            if (depth == 1 && capturing == null) {
+                                lastKey.setLength(0)
+                                lastKeyEscaped = false
+                            }
+                        }
+
+                        '{'.code, '['.code -> depth++
+                        '}'.code, ']'.code -> depth--
+                    }
+                }
+            }
+        }
+
+        private fun startValue(key: String) {
+            when (key) {
+                "libraryPaths" -> {
+                    // The hash starts with the library paths, so they have to come before the circuits
+                    if (circuitsDone) valid = false
+                    libraryPaths = ByteArrayOutputStream().also { sink = it }
+                }
+
+                "circuits" -> {
+                    digest.update(libraryPaths?.toByteArray() ?: "null".toByteArray())
+                    sink = DigestOutputStream(OutputStream.nullOutputStream(), digest)
+                }
+
+                else -> return
+            }
+            capturing = key
+            valueStarting = true
+        }
+
+        private fun endValue() {
+            if (capturing == "circuits") circuitsDone = true
+            capturing = null
+            sink = null
+            pendingNewlines = 0
+            pendingSpaces = 0
+        }
+
+        private fun emit(b: Int) {
+            val sink = sink!!
+            if (pendingNewlines > 0) {
+                repeat(pendingNewlines) { sink.write('\n'.code) }
+                // One level of indentation less than in the file
+                repeat(pendingSpaces - INDENT.length) { sink.write(' '.code) }
+                if (pendingSpaces < INDENT.length) valid = false
+            } else {
+                repeat(pendingSpaces) { sink.write(' '.code) }
+            }
+            pendingNewlines = 0
+            pendingSpaces = 0
+            sink.write(b)
+        }
+
+        companion object {
+            private const val INDENT = "  "
+        }
+    }
+
     class RevisionSignatureBlock private constructor(
         currentHash: String?,
         val previousHash: String, val fileDataHash: String,
@@ -128,8 +381,13 @@ object FileFormat {
     class CircuitFile(
         val version: String, val globalBitSize: Int, val clockSpeed: Int,
         val libraryPaths: MutableSet<String>?, val circuits: MutableList<CircuitInfo>,
-        val revisionSignatures: MutableList<String>, var copiedBlocks: MutableList<String>?
+        val revisionSignatures: MutableList<String>, var copiedBlocks: MutableList<String>?,
+        val seed: Long? = null
     ) {
+        // The hash of the circuit data computed by FileFormat.read from the bytes of the file, if any
+        @Transient
+        internal var dataHash: String? = null
+
         private fun hash() = sha256ify((GSON.toJson(libraryPaths) + GSON.toJson(circuits)))
 
         fun addRevisionSignatureBlock() {
@@ -142,11 +400,12 @@ object FileFormat {
 
         fun revisionSignaturesAreValid(): Boolean {
             if (revisionSignatures.isEmpty()) return false
-            val expectedFileDataHash = this.hash()
             val lastBlock =
                 RevisionSignatureBlock(this.revisionSignatures[this.revisionSignatures.size - 1])
             val actualFileDataHash = lastBlock.fileDataHash
-            if (actualFileDataHash != expectedFileDataHash || lastBlock.currentHash != lastBlock.hash()) {
+            // The hash of the bytes read only differs from the expected one if the file was not written by CircuitSim
+            val dataMatches = actualFileDataHash == dataHash || actualFileDataHash == this.hash()
+            if (!dataMatches || lastBlock.currentHash != lastBlock.hash()) {
                 return false
             }
             val blocks = this.revisionSignatures.toTypedArray()
@@ -162,10 +421,10 @@ object FileFormat {
 
         constructor(
             globalBitSize: Int, clockSpeed: Int, libraryPaths: MutableSet<String>?, circuits: MutableList<CircuitInfo>,
-            revisionSignatures: MutableList<String>, copiedBlocks: MutableList<String>
+            revisionSignatures: MutableList<String>, copiedBlocks: MutableList<String>, seed: Long? = null
         ) : this(
             CircuitSim.VERSION, globalBitSize, clockSpeed,
-            libraryPaths, circuits, revisionSignatures, copiedBlocks
+            libraryPaths, circuits, revisionSignatures, copiedBlocks, seed
         )
     }
 
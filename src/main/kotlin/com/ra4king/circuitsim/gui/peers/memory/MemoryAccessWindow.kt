@@ -0,0 +1,156 @@
+package com.ra4king.circuitsim.gui.peers.memory
+
+import com.ra4king.circuitsim.simulator.Simulator
+import com.ra4king.circuitsim.simulator.components.memory.MemoryAccessTracer
+import com.ra4king.circuitsim.simulator.components.memory.MemoryAccessTracer.PageCount
+import com.ra4king.circuitsim.simulator.components.memory.MemoryUnit
+import javafx.animation.AnimationTimer
+import javafx.beans.property.ReadOnlyObjectWrapper
+import javafx.beans.property.ReadOnlyStringWrapper
+import javafx.collections.FXCollections
+import javafx.geometry.Insets
+import javafx.scene.Scene
+import javafx.scene.canvas.Canvas
+import javafx.scene.control.Button
+import javafx.scene.control.Label
+import javafx.scene.control.TableColumn
+import javafx.scene.control.TableView
+import javafx.scene.layout.HBox
+import javafx.scene.layout.Priority
+import javafx.scene.layout.VBox
+import javafx.scene.image.PixelFormat
+import javafx.stage.Stage
+
+/**
+ * A window that attaches a MemoryAccessTracer to a RAM or ROM while it is open, and shows the pages with the most
+ * accesses over the whole run along with a timeline of the most recent accesses, where time goes right and addresses go
+ * down.
+ */
+class MemoryAccessWindow(
+    owner: Stage,
+    private val simulator: Simulator,
+    private val memory: MemoryUnit,
+    name: String,
+    private val onClosed: () -> Unit,
+) {
+    private val tracer = MemoryAccessTracer(1 shl memory.netAddrBits)
+    private val stage = Stage()
+    private val summary = Label()
+    private val hotPages = TableView<PageCount>()
+    private val timeline = Canvas(TIMELINE_WIDTH.toDouble(), TIMELINE_HEIGHT.toDouble())
+
+    // Only the raw ring buffer entries are copied under the lock, then they are drawn into pixels outside of it
+    private val entries = IntArray(tracer.capacity)
+    private val pixels = IntArray(TIMELINE_WIDTH * TIMELINE_HEIGHT)
+
+    private val updater = object : AnimationTimer() {
+        private var lastUpdate = 0L
+
+        override fun handle(now: Long) {
+            if (now - lastUpdate >= UPDATE_NANOS) {
+                lastUpdate = now
+                update()
+            }
+        }
+    }
+
+    init {
+        stage.initOwner(owner)
+        stage.title = "Memory accesses - $name"
+
+        val addressColumn = TableColumn<PageCount, String>("Addresses")
+        addressColumn.setCellValueFactory {
+            ReadOnlyStringWrapper("${formatAddress(it.value.start)} - ${formatAddress(it.value.end - 1)}")
+        }
+        val loadsColumn = TableColumn<PageCount, Long>("Loads")
+        loadsColumn.setCellValueFactory { ReadOnlyObjectWrapper(it.value.loads) }
+        val storesColumn = TableColumn<PageCount, Long>("Stores")
+        storesColumn.setCellValueFactory { ReadOnlyObjectWrapper(it.value.stores) }
+        hotPages.columns.setAll(addressColumn, loadsColumn, storesColumn)
+        hotPages.columnResizePolicy = TableView.CONSTRAINED_RESIZE_POLICY
+        hotPages.prefWidth = 320.0
+        HBox.setHgrow(hotPages, Priority.ALWAYS)
+
+        val resetButton = Button("Reset")
+        resetButton.setOnAction {
+            simulator.runSync { tracer.reset() }
+            update()
+        }
+
+        val content = VBox(8.0, HBox(8.0, resetButton, summary), HBox(8.0, hotPages, timeline))
+        content.padding = Insets(8.0)
+        stage.scene = Scene(content)
+
+        stage.setOnHidden {
+            updater.stop()
+            simulator.runSync {
+                if (memory.accessTracer === tracer) {
+                    memory.accessTracer = null
+                }
+            }
+            onClosed()
+        }
+    }
+
+    fun show() {
+        if (!stage.isShowing) {
+            simulator.runSync { memory.accessTracer = tracer }
+            updater.start()
+        }
+        stage.show()
+        stage.toFront()
+    }
+
+    private fun update() {
+        val (loads, stores, pages, count) = simulator.runSync {
+            Snapshot(tracer.loadCount, tracer.storeCount, tracer.hotPages(HOT_PAGES), tracer.copyRecentEntries(entries))
+        }
+
+        summary.text = "$loads loads, $stores stores"
+        hotPages.items = FXCollections.observableList(pages)
+
+        // Each access sets the pixels it covers, and a store wins over a load drawn at the same pixel
+        pixels.fill(WHITE)
+        val width = maxOf(1, TIMELINE_WIDTH / maxOf(count, 1))
+        val height = maxOf(1, TIMELINE_HEIGHT / tracer.size)
+        for (index in 0 until count) {
+            val entry = entries[index]
+            val x = (index.toLong() * TIMELINE_WIDTH / count).toInt()
+            val y = ((entry and Int.MAX_VALUE).toLong() * TIMELINE_HEIGHT / tracer.size).toInt()
+            val color = if (entry < 0) RED else BLUE
+            for (row in y until minOf(y + height, TIMELINE_HEIGHT)) {
+                for (column in x until minOf(x + width, TIMELINE_WIDTH)) {
+                    val pixel = row * TIMELINE_WIDTH + column
+                    if (pixels[pixel] != RED) pixels[pixel] = color
+                }
+            }
+        }
+        timeline.graphicsContext2D.pixelWriter.setPixels(
+            0, 0, TIMELINE_WIDTH, TIMELINE_HEIGHT, PixelFormat.getIntArgbInstance(), pixels, 0, TIMELINE_WIDTH
+        )
+    }
+
+    // Formats a word index as an address of the memory
+    private fun formatAddress(index: Int) =
+        "0x" + (index * memory.bytesPerEntry).toString(16).uppercase().padStart((memory.addressWidth + 3) / 4, '0')
+
+    private data class Snapshot(
+        val loads: Long,
+        val stores: Long,
+        val pages: List<PageCount>,
+        val count: Int,
+    )
+
+    companion object {
+        private const val HOT_PAGES = 32
+        private const val TIMELINE_WIDTH = 512
+        private const val TIMELINE_HEIGHT = 384
+
+        private const val WHITE = 0xFFFFFFFF.toInt()
+        private const val RED = 0xFFFF0000.toInt()
+        private const val BLUE = 0xFF0000FF.toInt()
+
+        // Drawing the whole ring buffer is too much work for every frame
+        private const val UPDATE_NANOS = 250_000_000L
+    }
+}
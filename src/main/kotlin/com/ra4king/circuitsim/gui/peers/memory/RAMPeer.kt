@@ -11,7 +11,7 @@ import com.ra4king.circuitsim.gui.Properties
 import com.ra4king.circuitsim.gui.properties.PropertyFileValidator
 import com.ra4king.circuitsim.gui.properties.PropertyListValidator
 import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator
-import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator.MemoryLine
+import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator.MemoryModel
 import com.ra4king.circuitsim.gui.properties.PropertyValidators
 import com.ra4king.circuitsim.simulator.CircuitState
 import com.ra4king.circuitsim.simulator.WireValue
@@ -35,7 +35,14 @@ class RAMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<RAM>(x, y, 9, 5
     val isSeparateLoadStore: Boolean
         get() = component.isSeparateLoadStore
 
+    /**
+     * Whether the contents of this RAM are saved next to the circuit file and restored when it is loaded.
+     */
+    val persistContents: Boolean
+        get() = properties.getValue(PERSIST_CONTENTS)
+
     private val isEditorOpen = AtomicBoolean(false)
+    private var accessWindow: MemoryAccessWindow? = null
 
     init {
         val properties = Properties()
@@ -46,6 +53,7 @@ class RAMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<RAM>(x, y, 9, 5
         properties.ensureProperty(Properties.ADDRESS_BITS)
         properties.ensureProperty(SEPARATE_LOAD_STORE_PORTS)
         properties.ensureProperty(srcFile)
+        properties.ensureProperty(PERSIST_CONTENTS)
         properties.mergeIfExists(props)
 
         val addressBits = properties.getValue(Properties.ADDRESS_BITS)
@@ -91,46 +99,72 @@ class RAMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<RAM>(x, y, 9, 5
         val menuItem = MenuItem("Edit contents")
         menuItem.setOnAction {
             val ram = component
-            val memoryValidator =
-                PropertyMemoryValidator(ram)
-
-            val memory = ArrayList<MemoryLine>()
-            val listener = { address: Int, data: Int ->
-                val index = address / 16
-                val line = memory[index]
-                line.values[address - index * 16].value = memoryValidator.formatValue(data)
-            }
+            val memoryValidator = PropertyMemoryValidator(ram)
+            val simulator = circuit.simulatorWindow.simulator
+            val currentState = circuit.circuitBoard.currentState
 
             if (isEditorOpen.getAndSet(true)) {
                 return@setOnAction
             }
-            try {
-                // Internal state can change in between and data can get out of sync
-                val simulatorWindow = circuit.simulatorWindow
-                simulatorWindow.simulator.runSync {
-                    ram.addMemoryListener(listener)
-                    val currentState = circuit.circuitBoard.currentState
-                    memory.addAll(
-                        memoryValidator.parseLine(ram.getMemoryContents(currentState))
-                        { address: Int, value: Int ->
-                            simulatorWindow.simulator.runSync {
-                                // Component has been removed
-                                if (ram.circuit == null) {
-                                    return@runSync
-                                }
-                                ram.store(currentState, ram.effective(address), value)
-                            }
-                        }
-                    )
+
+            // The editor pulls the changed words once per frame instead of being called on every store
+            val tracker = simulator.runSync { ram.trackChanges() }
+
+            val memory = object : MemoryModel() {
+                override fun size() = 1 shl ram.netAddrBits
+
+                override fun get(index: Int) = simulator.runSync { ram.getMemory(currentState)[index] }
+
+                override fun getRange(start: Int, values: IntArray) = simulator.runSync {
+                    val contents = ram.getMemory(currentState)
+                    for (i in values.indices) {
+                        values[i] = contents[start + i]
+                    }
+                }
+
+                override fun set(index: Int, value: Int) = simulator.runSync {
+                    // Component has been removed
+                    if (ram.circuit != null) {
+                        ram.store(currentState, index * ram.bytesPerEntry, value)
+                    }
+                }
+
+                override fun setRange(start: Int, values: IntArray) = simulator.runSync {
+                    if (ram.circuit != null) {
+                        ram.storeRange(currentState, start, values)
+                    }
+                }
+
+                override fun clear() = simulator.runSync {
+                    if (ram.circuit != null) {
+                        ram.clear(currentState)
+                    }
+                }
+
+                override fun pollChanges() = tracker.isDirty && simulator.runSync {
+                    var changed = false
+                    tracker.drain { changed = true }
+                    changed
                 }
+            }
 
-                memoryValidator.createAndShowMemoryWindow(simulatorWindow.stage, memory)
+            try {
+                memoryValidator.createAndShowMemoryWindow(circuit.simulatorWindow.stage, memory)
             } finally {
-                ram.removeMemoryListener(listener)
+                simulator.runSync { ram.stopTracking(tracker) }
                 isEditorOpen.set(false)
             }
         }
-        return mutableListOf(menuItem)
+
+        val traceItem = MenuItem("Trace accesses")
+        traceItem.setOnAction {
+            val window = accessWindow ?: MemoryAccessWindow(
+                circuit.simulatorWindow.stage, circuit.simulatorWindow.simulator, component, "RAM ${component.name}"
+            ) { accessWindow = null }
+            accessWindow = window
+            window.show()
+        }
+        return mutableListOf(menuItem, traceItem)
     }
 
     override fun paint(graphics: GraphicsContext, circuitState: CircuitState?) {
@@ -193,6 +227,16 @@ class RAMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<RAM>(x, y, 9, 5
     companion object {
         val SEPARATE_LOAD_STORE_PORTS =
             Properties.Property("Separate Load/Store Ports?", PropertyValidators.YESNO_VALIDATOR, false)
+        // The saved contents are matched to a RAM by its circuit's name and its position, which are only written
+        // together with the contents when the circuit file is saved. If the circuit file is changed any other way, a
+        // RAM that was moved or whose circuit was renamed silently starts out empty.
+        val PERSIST_CONTENTS = Properties.Property(
+            "Persist Contents?", "Persist Contents?",
+            "Saves the contents to a .ram file next to the circuit file and restores them when it is opened. The " +
+                "contents are matched by circuit name and position, so they are not restored if the circuit file " +
+                "was changed outside of CircuitSim to move this RAM or rename its circuit.",
+            PropertyValidators.YESNO_VALIDATOR, false
+        )
 
         @JvmStatic
         fun installComponent(manager: ComponentManagerInterface) {
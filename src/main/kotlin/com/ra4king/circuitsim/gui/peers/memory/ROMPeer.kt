@@ -11,8 +11,8 @@ import com.ra4king.circuitsim.gui.Properties
 import com.ra4king.circuitsim.gui.properties.PropertyListValidator
 import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator
 import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator.MemoryLine
+import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator.MemoryModel
 import com.ra4king.circuitsim.simulator.CircuitState
-import com.ra4king.circuitsim.simulator.WireValue
 import com.ra4king.circuitsim.simulator.components.memory.ADDRESSABILITY
 import com.ra4king.circuitsim.simulator.components.memory.ADDRESSABILITY_PROP_NAME
 import com.ra4king.circuitsim.simulator.components.memory.Addressability
@@ -22,9 +22,6 @@ import javafx.scene.control.MenuItem
 import javafx.scene.image.Image
 import javafx.scene.paint.Color
 import java.util.concurrent.atomic.AtomicBoolean
-import kotlin.collections.flatMap
-import kotlin.collections.toIntArray
-import kotlin.text.toUInt
 
 /**
  * @author Roi Atalla
@@ -33,6 +30,7 @@ class ROMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<ROM>(x, y, 9, 5
     private val contentsProperty: Properties.Property<MutableList<MemoryLine>>
 
     private val isEditorOpen = AtomicBoolean(false)
+    private var accessWindow: MemoryAccessWindow? = null
 
     init {
         val properties = Properties()
@@ -74,8 +72,7 @@ class ROMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<ROM>(x, y, 9, 5
         }
         properties.setValue(contentsProperty, contentsProperty.validator.parse(oldMemory))
 
-        val memory: IntArray = properties.getValue(contentsProperty)?.flatMap { it.values }
-            ?.map { it.get().toUInt(16).toInt() }?.toIntArray() ?: IntArray(0)
+        val memory = properties.getValue(contentsProperty)?.let { PropertyMemoryValidator.toArray(it) } ?: IntArray(0)
         rom.initMemory(memory)
 
         val connections = arrayListOf(
@@ -94,57 +91,113 @@ class ROMPeer(props: Properties, x: Int, y: Int) : ComponentPeer<ROM>(x, y, 9, 5
             val property: Properties.Property<MutableList<MemoryLine>?> =
                 properties.getProperty(contentsProperty.name)
             val memoryValidator = property.validator as PropertyMemoryValidator
-
-            val lines = ArrayList<MemoryLine>()
-            val listener = { address: Int, data: Int ->
-                val index = address / 16
-                val line = property.value!![index]
-                line.values[address - index * 16].value = memoryValidator.formatValue(data)
-                circuit.circuit.forEachState { state: CircuitState? ->
-                    rom.valueChanged(
-                        state!!, WireValue(
-                            WireValue.State.Z
-                        ), 0
-                    )
-                }
-            }
+            val simulatorWindow = circuit.simulatorWindow
+            val simulator = simulatorWindow.simulator
 
             if (isEditorOpen.getAndSet(true)) {
                 return@setOnAction
             }
-            try {
-                val simulatorWindow = circuit.simulatorWindow
-                simulatorWindow.simulator.runSync {
-                    lines.addAll(memoryValidator.parseLine(rom.memory) { address: Int, newValue: Int ->
-                        simulatorWindow.simulator.runSync {
-                            // Component has been removed
-                            if (rom.circuit == null) {
-                                return@runSync
-                            }
-
-                            val oldValue = rom.load(address)
-                            rom.store(address, newValue)
-                            simulatorWindow.editHistory.addAction(object : EditHistory.Edit(circuit) {
-                                override fun undo() {
-                                    rom.store(address, oldValue)
-                                }
-
-                                override fun redo() {
-                                    rom.store(address, newValue)
-                                }
-                            })
+
+            // The editor pulls the changed words once per frame instead of being called on every store
+            val tracker = simulator.runSync { rom.trackChanges() }
+
+            val memory = object : MemoryModel() {
+                override fun size() = rom.memory.size
+
+                override fun get(index: Int) = simulator.runSync { rom.memory[index] }
+
+                override fun set(index: Int, value: Int) = simulator.runSync {
+                    // Component has been removed
+                    if (rom.circuit == null) {
+                        return@runSync
+                    }
+
+                    val address = index * rom.bytesPerEntry
+                    val oldValue = rom.load(address)
+                    rom.store(address, value)
+                    simulatorWindow.editHistory.addAction(object : EditHistory.Edit(circuit) {
+                        override fun undo() {
+                            rom.store(address, oldValue)
+                        }
+
+                        override fun redo() {
+                            rom.store(address, value)
+                        }
+                    })
+                }
+
+                override fun getRange(start: Int, values: IntArray) = simulator.runSync {
+                    rom.memory.copyInto(values, 0, start, start + values.size)
+                }
+
+                override fun setRange(start: Int, values: IntArray) = simulator.runSync {
+                    // Component has been removed
+                    if (rom.circuit == null) {
+                        return@runSync
+                    }
+
+                    val oldValues = rom.memory.copyOfRange(start, start + values.size)
+                    val newValues = values.copyOf()
+                    storeRange(start, newValues)
+                    simulatorWindow.editHistory.addAction(object : EditHistory.Edit(circuit) {
+                        override fun undo() {
+                            storeRange(start, oldValues)
+                        }
+
+                        override fun redo() {
+                            storeRange(start, newValues)
                         }
                     })
+                }
+
+                override fun clear() = setRange(0, IntArray(rom.memory.size))
+
+                // Writes the whole range at once, then updates the Contents property and the data output only once
+                private fun storeRange(start: Int, values: IntArray) = simulator.runSync {
+                    rom.storeRange(start, values)
+                    val lines = property.value!!
+                    for (address in start until start + values.size) {
+                        lines[address / 16].set(address % 16, values[address - start])
+                    }
+                    circuit.circuit.forEachState { state: CircuitState? -> rom.refresh(state!!) }
+                }
+
+                override fun pollChanges() = tracker.isDirty && simulator.runSync {
+                    var changed = false
+                    tracker.drain { changed = true }
+                    changed
+                }
+            }
+            val listener = { address: Int, data: Int ->
+                val index = address / 16
+                property.value!![index].set(address - index * 16, data)
+                circuit.circuit.forEachState { state: CircuitState? -> rom.refresh(state!!) }
+            }
+
+            try {
+                simulator.runSync {
                     rom.addMemoryListener(listener)
                 }
 
-                memoryValidator.createAndShowMemoryWindow(simulatorWindow.stage, lines)
+                memoryValidator.createAndShowMemoryWindow(simulatorWindow.stage, memory)
             } finally {
-                rom.removeMemoryListener(listener)
+                simulator.runSync {
+                    rom.removeMemoryListener(listener)
+                    rom.stopTracking(tracker)
+                }
                 isEditorOpen.set(false)
             }
         }
-        return mutableListOf(menuItem)
+
+        val traceItem = MenuItem("Trace accesses")
+        traceItem.setOnAction {
+            val window = accessWindow ?: MemoryAccessWindow(
+                circuit.simulatorWindow.stage, circuit.simulatorWindow.simulator, component, "ROM ${component.name}"
+            ) { accessWindow = null }
+            accessWindow = window
+            window.show()
+        }
+        return mutableListOf(menuItem, traceItem)
     }
 
     override fun paint(graphics: GraphicsContext, circuitState: CircuitState?) {
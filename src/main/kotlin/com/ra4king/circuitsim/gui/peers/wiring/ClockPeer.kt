@@ -8,13 +8,16 @@ import com.ra4king.circuitsim.gui.GuiUtils.drawName
 import com.ra4king.circuitsim.gui.GuiUtils.drawShape
 import com.ra4king.circuitsim.gui.GuiUtils.setBitColor
 import com.ra4king.circuitsim.gui.Properties
+import com.ra4king.circuitsim.gui.properties.IntegerString
+import com.ra4king.circuitsim.gui.properties.PropertyValidators
 import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.WireValue
 import com.ra4king.circuitsim.simulator.components.wiring.Clock
-import com.ra4king.circuitsim.simulator.components.wiring.Clock.Companion.getTickState
 import com.ra4king.circuitsim.simulator.components.wiring.Clock.Companion.tick
 import javafx.scene.canvas.GraphicsContext
 import javafx.scene.image.Image
 import javafx.scene.paint.Color
+import kotlin.math.max
 
 /**
  * @author Roi Atalla
@@ -25,9 +28,17 @@ class ClockPeer(props: Properties, x: Int, y: Int) : ComponentPeer<Clock>(x, y,
         properties.ensureProperty(Properties.LABEL)
         properties.ensureProperty(Properties.LABEL_LOCATION)
         properties.ensureProperty(Properties.DIRECTION)
+        properties.ensureProperty(DOMAIN)
+        properties.ensureProperty(DIVIDER)
+        properties.ensureProperty(PHASE)
         properties.mergeIfExists(props)
 
-        val clock = Clock(properties.getValue(Properties.LABEL))
+        val domain = Clock.Domain(
+            properties.getValue(DOMAIN),
+            max(1, properties.getValue(DIVIDER).value),
+            max(0, properties.getValue(PHASE).value)
+        )
+        val clock = Clock(properties.getValue(Properties.LABEL), domain)
 
         val connections = ArrayList<PortConnection>()
         when (properties.getValue(Properties.DIRECTION)) {
@@ -48,11 +59,14 @@ class ClockPeer(props: Properties, x: Int, y: Int) : ComponentPeer<Clock>(x, y,
     override fun paint(graphics: GraphicsContext, circuitState: CircuitState?) {
         drawName(graphics, this, properties.getValue(Properties.LABEL_LOCATION))
 
+        // The clock pushes the state of its domain, so the painted state is read from it rather than from the clock,
+        // which would take the simulator lock and could be ahead of a snapshot being painted
         val port = component.getPort(Clock.PORT)
-        if (circuitState!!.isShortCircuited(port.link)) {
+        val bit = circuitState!!.getLastPushed(port).getBit(0)
+        if (circuitState.isShortCircuited(port.link)) {
             graphics.fill = Color.RED
         } else {
-            setBitColor(graphics, circuitState.getLastPushed(port).getBit(0))
+            setBitColor(graphics, bit)
         }
         drawShape(this) { v: Double, v1: Double, v2: Double, v3: Double -> graphics.fillRect(v, v1, v2, v3) }
         graphics.stroke = Color.BLACK
@@ -60,8 +74,9 @@ class ClockPeer(props: Properties, x: Int, y: Int) : ComponentPeer<Clock>(x, y,
 
         graphics.stroke = Color.WHITE
         graphics.lineWidth = 1.5
-        val offset1 = if (getTickState(component.circuit!!.simulator)) 0.3 else 0.0
-        val offset2 = if (getTickState(component.circuit!!.simulator)) 0.6 else 0.0
+        val high = bit == WireValue.State.ONE
+        val offset1 = if (high) 0.3 else 0.0
+        val offset2 = if (high) 0.6 else 0.0
 
 
         // lower line
@@ -110,6 +125,28 @@ class ClockPeer(props: Properties, x: Int, y: Int) : ComponentPeer<Clock>(x, y,
     }
 
     companion object {
+        private val DOMAIN = Properties.Property(
+            "Clock domain",
+            "Clock domain",
+            "Clocks in the same domain toggle together. Leave empty for the main clock.",
+            PropertyValidators.ANY_STRING_VALIDATOR,
+            ""
+        )
+        private val DIVIDER = Properties.Property(
+            "Divider",
+            "Divider",
+            "Number of main clock ticks between two edges of this domain.",
+            PropertyValidators.INTEGER_VALIDATOR,
+            IntegerString(1)
+        )
+        private val PHASE = Properties.Property(
+            "Phase",
+            "Phase",
+            "Number of main clock ticks this domain lags behind the main clock.",
+            PropertyValidators.INTEGER_VALIDATOR,
+            IntegerString(0)
+        )
+
         @JvmStatic
         fun installComponent(manager: ComponentManagerInterface) {
             manager.addComponent(
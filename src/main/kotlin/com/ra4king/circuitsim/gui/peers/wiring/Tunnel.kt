@@ -12,6 +12,7 @@ import com.ra4king.circuitsim.gui.properties.PropertyValidators
 import com.ra4king.circuitsim.simulator.Circuit
 import com.ra4king.circuitsim.simulator.CircuitState
 import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
 import com.ra4king.circuitsim.simulator.WireValue
 import javafx.scene.canvas.GraphicsContext
 import javafx.scene.image.Image
@@ -58,10 +59,11 @@ class Tunnel(props: Properties, x: Int, y: Int) : ComponentPeer<Component>(x, y,
                     if (label.isEmpty()) return
 
                     if (value != null) {
-                        val tunnelSet = tunnels.computeIfAbsent(value) { HashMap() }
+                        val tunnelSet = tunnelsOf(value).computeIfAbsent(value) { HashMap() }
                         val toNotify = tunnelSet.computeIfAbsent(label) { HashSet() }
                         toNotify.add(this@Tunnel)
                     } else {
+                        val tunnels = tunnelsOf(oldCircuit ?: return)
                         val tunnelSet = tunnels[oldCircuit] ?: return
                         val toNotify = tunnelSet[label] ?: return
 
@@ -78,7 +80,7 @@ class Tunnel(props: Properties, x: Int, y: Int) : ComponentPeer<Component>(x, y,
             override fun init(circuitState: CircuitState, lastProperty: Any?) {
                 if (label.isEmpty()) return
 
-                val tunnelSet = tunnels[circuit] ?: return
+                val tunnelSet = tunnelsIn(circuit) ?: return
                 val toNotify: MutableSet<Tunnel> = tunnelSet[label]!!
                 val value = WireValue(bitSize)
 
@@ -100,7 +102,7 @@ class Tunnel(props: Properties, x: Int, y: Int) : ComponentPeer<Component>(x, y,
             }
 
             override fun uninit(circuitState: CircuitState) {
-                val tunnelSet = tunnels[circuit] ?: return
+                val tunnelSet = tunnelsIn(circuit) ?: return
                 val toNotify = tunnelSet[label]
                 if (toNotify != null) {
                     tunnels@ for (tunnel in toNotify) {
@@ -128,7 +130,7 @@ class Tunnel(props: Properties, x: Int, y: Int) : ComponentPeer<Component>(x, y,
             }
 
             override fun valueChanged(state: CircuitState, value: WireValue, portIndex: Int) {
-                val tunnelSet = tunnels[circuit] ?: return
+                val tunnelSet = tunnelsIn(circuit) ?: return
                 val toNotify = tunnelSet[label] ?: return
 
                 tunnels@ for (tunnel in toNotify) {
@@ -189,7 +191,7 @@ class Tunnel(props: Properties, x: Int, y: Int) : ComponentPeer<Component>(x, y,
 
     private val isIncompatible: Boolean
         get() {
-            val tunnelMap = tunnels[tunnel.circuit] ?: return false
+            val tunnelMap = tunnelsIn(tunnel.circuit) ?: return false
             val tunnelSet = tunnelMap[label] ?: return false
             for (tunnel in tunnelSet) {
                 if (tunnel.bitSize != bitSize) return true
@@ -288,7 +290,21 @@ class Tunnel(props: Properties, x: Int, y: Int) : ComponentPeer<Component>(x, y,
     }
 
     companion object {
-        private val tunnels = HashMap<Circuit?, MutableMap<String?, MutableSet<Tunnel>>>()
+        // Tunnels are registered per Simulator so that discarding a Simulator releases them
+        private fun tunnelsOf(circuit: Circuit) = circuit.simulator.getContext(Tunnel::class.java) {
+            HashMap<Circuit, MutableMap<String?, MutableSet<Tunnel>>>()
+        }
+
+        private fun tunnelsIn(circuit: Circuit?) = circuit?.let { tunnelsOf(it)[it] }
+
+        /**
+         * Returns the ports of all tunnels in the given circuit, grouped by label and bit size.
+         */
+        @JvmStatic
+        fun getTunnelGroups(circuit: Circuit): Collection<Collection<Port>> =
+            tunnelsIn(circuit)?.values?.flatMap { set ->
+                set.groupBy { it.bitSize }.values.map { group -> group.map { it.tunnel.getPort(0) } }
+            } ?: emptyList()
 
         private val WIDTH = Properties.Property(
             "Width",
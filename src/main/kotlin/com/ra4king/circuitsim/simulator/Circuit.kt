@@ -2,18 +2,36 @@ package com.ra4king.circuitsim.simulator
 
 import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.function.Consumer
+import kotlin.concurrent.Volatile
 
 /**
  * @author Roi Atalla
  */
 open class Circuit(var name: String, open val simulator: Simulator) {
 
-	val components = HashSet<Component>()
-    private val states = HashSet<CircuitState>()
+	val components = LinkedHashSet<Component>()
+    private val states = LinkedHashSet<CircuitState>()
 	val topLevelState = CircuitState.init(this)
     private val listeners = ConcurrentLinkedQueue<CircuitChangeListener>()
     private var exception: RuntimeException? = null
 
+    // Reused last-in first-out, so that a component replaced by updateComponent keeps its slot
+    private val freeSlots = ArrayDeque<Int>()
+
+    /**
+     * One more than the highest slot of the components of this Circuit.
+     */
+    var slotCount = 0
+        private set
+
+    /**
+     * Incremented whenever a Component is added or removed or two Links are joined or split. Analyses that cache
+     * results derived from the structure of this Circuit compare against this value to detect changes.
+     */
+    @Volatile
+    var revision = 0L
+        private set
+
     /**
      * Creates a new Circuit. It is added to the Simulator's list of circuits.
      * @param simulator The Simulator instance this Circuit belongs to.
@@ -24,7 +42,9 @@ open class Circuit(var name: String, open val simulator: Simulator) {
 
     private fun <T : Component> add(newComponent: T, oldComponentProps: HashMap<CircuitState, Any?> = HashMap()) {
         newComponent.circuit = this
+        newComponent.slot = freeSlots.removeLastOrNull() ?: slotCount++
         components.add(newComponent)
+        markModified()
         states.forEach {
             try {
                 newComponent.init(it, oldComponentProps[it])
@@ -38,6 +58,7 @@ open class Circuit(var name: String, open val simulator: Simulator) {
     private fun <T : Component> remove(component: T, removeLinks: Boolean): HashMap<CircuitState, Any?> {
         states.forEach { it.ensureUnlinked(component, removeLinks) }
         components.remove(component)
+        markModified()
         val oldComponentProperties = HashMap<CircuitState, Any?>()
         states.forEach {
             try {
@@ -49,6 +70,10 @@ open class Circuit(var name: String, open val simulator: Simulator) {
             }
         }
         component.circuit = null
+        freeSlots.addLast(component.slot)
+        // A replaced component passes its slot on to the new one along with its properties
+        if (removeLinks) simulator.slotReleased(this, component.slot)
+        component.slot = -1
         listeners.forEach { it.circuitChanged(this, component, false) }
         return oldComponentProperties
     }
@@ -118,6 +143,10 @@ open class Circuit(var name: String, open val simulator: Simulator) {
         HashSet(components).forEach { this.removeComponent(it) }
     }
 
+    internal fun markModified() {
+        revision++
+    }
+
     fun addState(state: CircuitState) {
         states.add(state)
     }
@@ -119,11 +119,50 @@ open class CircuitState private constructor(
             val lastPushed = linkState.getLastPushed(port)
             if (value != lastPushed) {
                 lastPushed.set(value)
+                circuit.simulator.valuePushed(this, port, value)
                 circuit.simulator.valueChanged(this, port)
             }
         }
     }
 
+    /**
+     * Push all the given values then run the Simulator until it settles, acquiring the Simulator lock only once. This
+     * is much cheaper than calling `pushValue` for each input followed by `Simulator.stepAll()` when driving many
+     * inputs per test vector.
+     * An IllegalStateException is thrown if this CircuitState is read-only.
+     *
+     * @param inputs  The values to push, keyed by the Port pushing them, e.g. `pin.port`.
+     * @param outputs The Ports whose last received values are returned, in order.
+     * @param result  The result to fill in. Passing the result of a previous call reuses its buffers.
+     * @return The result holding the last value received by each output Port.
+     */
+    @JvmOverloads
+    fun apply(
+        inputs: Map<Port, WireValue>,
+        outputs: List<Port> = emptyList(),
+        result: SettleResult = SettleResult()
+    ): SettleResult {
+        check(!readOnly) { "This CircuitState is read-only" }
+
+        val simulator = circuit.simulator
+        simulator.runSync {
+            for ((port, value) in inputs) {
+                val lastPushed = get(port.link).getLastPushed(port)
+                if (value != lastPushed) {
+                    lastPushed.set(value)
+                    simulator.valuePushed(this, port, value)
+                    simulator.valueChanged(this, port)
+                }
+            }
+
+            simulator.stepAll()
+
+            result.prepare(outputs)
+            outputs.forEachIndexed { i, port -> result[i].set(get(port.link).getLastReceived(port)) }
+        }
+        return result
+    }
+
     fun ensureUnlinked(component: Component, removeLinks: Boolean) {
         for (i in 0..< component.numPorts) {
             val port = component.getPort(i)
@@ -138,6 +177,40 @@ open class CircuitState private constructor(
         }
     }
 
+    /**
+     * The values received by the output Ports passed to `apply`. The values are overwritten when the result is reused
+     * for another call, copy them if they need to be kept.
+     */
+    class SettleResult {
+        private val values = ArrayList<WireValue>()
+
+        var ports: List<Port> = emptyList()
+            private set
+
+        val size
+            get() = ports.size
+
+        operator fun get(index: Int): WireValue {
+            if (index !in ports.indices) throw IndexOutOfBoundsException("Index $index out of bounds for size $size")
+            return values[index]
+        }
+
+        operator fun get(port: Port): WireValue {
+            val index = ports.indexOf(port)
+            require(index >= 0) { "Port was not requested as an output: $port" }
+            return values[index]
+        }
+
+        internal fun prepare(outputs: List<Port>) {
+            ports = outputs
+            outputs.forEachIndexed { i, port ->
+                val bitSize = port.link.bitSize
+                if (i == values.size) values.add(WireValue(bitSize))
+                else if (values[i].bitSize != bitSize) values[i] = WireValue(bitSize)
+            }
+        }
+    }
+
     internal inner class LinkState {
 
 		val link: Port.Link
@@ -234,12 +307,25 @@ open class CircuitState private constructor(
             }
 
             var exception: RuntimeException? = null
+            val listeners = circuit.simulator.simulationListeners
+            val timed = listeners.isNotEmpty() && circuit.simulator.timingEvaluations
 
             for ((participantPort, incomingValue) in toNotify.entries) {
                 try {
-                    participantPort
-                        .component
-                        .valueChanged(this@CircuitState, incomingValue, participantPort.portIndex)
+                    val component = participantPort.component
+                    if (listeners.isEmpty()) {
+                        component.valueChanged(this@CircuitState, incomingValue, participantPort.portIndex)
+                    } else {
+                        val start = if (timed) System.nanoTime() else 0L
+                        try {
+                            component.valueChanged(this@CircuitState, incomingValue, participantPort.portIndex)
+                        } finally {
+                            val nanos = if (timed) System.nanoTime() - start else -1L
+                            listeners.forEach {
+                                it.componentEvaluated(this@CircuitState, component, participantPort.portIndex, nanos)
+                            }
+                        }
+                    }
                 } catch (e: ShortCircuitException) {
                     shortCircuit = e
                 } catch (e: RuntimeException) {
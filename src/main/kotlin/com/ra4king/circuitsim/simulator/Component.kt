@@ -5,6 +5,13 @@ package com.ra4king.circuitsim.simulator
  */
 abstract class Component protected constructor(var name: String, portBits: IntArray) {
     open var circuit: Circuit? = null
+
+    /**
+     * The index of this Component in its Circuit, or -1 if it does not belong to one. Slots of removed components are
+     * reused, so tools can keep per-component data in primitive arrays sized by `Circuit.slotCount`.
+     */
+    var slot = -1
+        internal set
     private val ports = Array(portBits.size) {Port(this, it, portBits[it])}
 
     fun getPort(portIndex: Int) = ports[portIndex]
@@ -45,6 +45,8 @@ open class Port(val component: Component, val portIndex: Int, bitSize: Int) {
 
             for (p in portParticipants) p.link = this
 
+            circuit.markModified()
+
             return this
         }
 
@@ -59,6 +61,7 @@ open class Port(val component: Component, val portIndex: Int, bitSize: Int) {
             port.link = link
 
             circuit!!.forEachState { state -> state.unlink(this, port) }
+            circuit.markModified()
 
             return this
         }
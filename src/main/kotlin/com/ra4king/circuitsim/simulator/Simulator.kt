@@ -1,14 +1,20 @@
 package com.ra4king.circuitsim.simulator
 
+import com.ra4king.circuitsim.simulator.metrics.SimulationMetrics
+import com.ra4king.circuitsim.simulator.trace.PropagateSignalEvent
+import com.ra4king.circuitsim.simulator.trace.SettleEvent
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.locks.ReentrantLock
+import jdk.jfr.EventType
 
 /**
  * @author Roi Atalla
  */
-open class Simulator {
+open class Simulator : AutoCloseable {
 
-    val circuits = HashSet<Circuit>()
+    val circuits = LinkedHashSet<Circuit>()
     var linksToUpdate = LinkedHashSet<Pair<CircuitState, Port.Link>>()
         private set
     private var temp = LinkedHashSet<Pair<CircuitState, Port.Link>>()
@@ -18,6 +24,101 @@ open class Simulator {
     // Create a Lock with a fair policy
     val lock = ReentrantLock(true)
 
+    private val contexts = ConcurrentHashMap<Any, Any>()
+
+    private var random = SplittableRandom()
+
+    /**
+     * Live statistics of this Simulator, readable from any thread. They are only recorded once enabled.
+     */
+    val metrics = SimulationMetrics()
+
+    // Replaced rather than mutated so that step() can iterate it without copying
+    internal var simulationListeners = emptyList<SimulationListener>()
+        private set
+
+    // Whether the step in progress passes evaluation times to the listeners, see SimulationListener.timesEvaluations
+    internal var timingEvaluations = false
+        private set
+
+    /**
+     * Observes signal propagation. Callbacks are invoked on the simulating thread while holding the Simulator lock, so
+     * they must be quick and must not wait for other threads. For each step they are called in this order:
+     * `stepStarted`, then for each link `valuePushed` and `componentEvaluated` for every component it notified,
+     * followed by `linkPropagated`, then `stepFinished`. Once `stepAll` has no links left to update, `settled` is
+     * called.
+     *
+     * When no listener is added, the simulation only pays for a single check per propagated link.
+     */
+    interface SimulationListener {
+        /**
+         * Called before a step propagates the given number of queued links.
+         */
+        fun stepStarted(linkCount: Int) {}
+
+        /**
+         * Returns whether `componentEvaluated` should receive the time spent in each evaluation of the step that just
+         * started. Timing reads the clock twice per evaluation, so only return true for steps whose times are used.
+         * Called right after `stepStarted`.
+         */
+        fun timesEvaluations() = false
+
+        /**
+         * Called after a component was notified of a new value on one of its ports.
+         *
+         * @param nanos The time spent in `Component.valueChanged`, or -1 if no listener times the evaluations of this
+         * step.
+         */
+        fun componentEvaluated(state: CircuitState, component: Component, portIndex: Int, nanos: Long) {}
+
+        /**
+         * Called when a port pushes a value different from the previous one, queuing its link for the next step.
+         */
+        fun valuePushed(state: CircuitState, port: Port, value: WireValue) {}
+
+        /**
+         * Called after the values of the Link were propagated to its ports in the given CircuitState.
+         */
+        fun linkPropagated(state: CircuitState, link: Port.Link) {}
+
+        /**
+         * Called after a step propagated the given number of links.
+         */
+        fun stepFinished(linkCount: Int) {}
+
+        /**
+         * Called when `stepAll` finished and no links are left to update.
+         */
+        fun settled() {}
+
+        /**
+         * Called when a component was removed from the Circuit and its `Component.slot` may be given to an unrelated
+         * component. Not called when a component is replaced by `Circuit.updateComponent`, which keeps the slot.
+         */
+        fun slotReleased(circuit: Circuit, slot: Int) {}
+    }
+
+    /**
+     * The seed from which components such as RandomGenerator derive their random streams. When null, a different seed
+     * is picked for every run. Changing the seed only affects components initialized afterwards, call `reset()` to
+     * restart all of them from the new seed.
+     */
+    var seed: Long? = null
+        set(value) {
+            runSync {
+                field = value
+                random = if (value == null) SplittableRandom() else SplittableRandom(value)
+            }
+        }
+
+    /**
+     * Creates a new random stream split from this Simulator's seed. Each caller gets its own generator, so components
+     * drawing from them do not contend with each other. Streams are handed out in the order components are initialized,
+     * which follows the order circuits, states and components were added, so building the same circuits the same way
+     * under the same seed reproduces every stream.
+     */
+    fun newRandom(): SplittableRandom = runSync { random.split() }
+
     /**
      * Allows execution of code that is synchronized with the Simulator
      *
@@ -35,6 +136,51 @@ open class Simulator {
         }
     }
 
+    /**
+     * Returns the state registered under the given key, creating it on first use. Components that share state across a
+     * whole simulation keep it here instead of in static fields, so it is discarded together with this Simulator.
+     *
+     * @param key     The key identifying the state, usually the class holding it.
+     * @param factory Creates the state the first time it is requested.
+     */
+    fun <T : Any> getContext(key: Any, factory: (Simulator) -> T): T {
+        @Suppress("UNCHECKED_CAST")
+        return contexts.computeIfAbsent(key) { factory(this) } as T
+    }
+
+    /**
+     * Closes all registered context states that are AutoCloseable, such as running clocks, then clears this Simulator.
+     * Context states requested after this call are created anew.
+     */
+    override fun close() {
+        val closing = runSync {
+            val values = ArrayList(contexts.values)
+            contexts.clear()
+            values
+        }
+
+        // Closed outside of the lock since closing may wait for other threads that need it
+        var exception: Exception? = null
+        for (context in closing) {
+            try {
+                (context as? AutoCloseable)?.close()
+            } catch (e: Exception) {
+                if (exception == null) exception = e else exception.addSuppressed(e)
+            }
+        }
+
+        clear()
+        if (exception != null) throw exception
+    }
+
+    fun addSimulationListener(listener: SimulationListener) {
+        runSync { simulationListeners = simulationListeners + listener }
+    }
+
+    fun removeSimulationListener(listener: SimulationListener) {
+        runSync { simulationListeners = simulationListeners - listener }
+    }
+
     fun hasLinksToUpdate(): Boolean {
         val tmp = AtomicBoolean()
         runSync { tmp.set(!linksToUpdate.isEmpty()) }
@@ -51,6 +197,7 @@ open class Simulator {
             temp.clear()
             lastShortCircuitedLinks.clear()
             history.clear()
+            seed = null
         }
     }
 
@@ -58,10 +205,10 @@ open class Simulator {
      * Resets all CircuitStates of all attached Circuits.
      */
     fun reset() {
-        runSync { circuits.forEach {
-            circuit -> circuit.forEachState {
-                it.reset()
-            } } }
+        runSync {
+            seed?.let { random = SplittableRandom(it) }
+            circuits.forEach { circuit -> circuit.forEachState { it.reset() } }
+        }
     }
 
     /**
@@ -102,6 +249,15 @@ open class Simulator {
         runSync { linksToUpdate.add(Pair(state, link)) }
     }
 
+    internal fun valuePushed(state: CircuitState, port: Port, value: WireValue) {
+        val listeners = simulationListeners
+        if (listeners.isNotEmpty()) listeners.forEach { it.valuePushed(state, port, value) }
+    }
+
+    internal fun slotReleased(circuit: Circuit, slot: Int) {
+        simulationListeners.forEach { it.slotReleased(circuit, slot) }
+    }
+
     /**
      * Removes the Link from the processing queue.
      */
@@ -115,6 +271,9 @@ open class Simulator {
 
     private val stepping = AtomicBoolean(false)
 
+    // Guarded by the lock, used to sample one in every PROPAGATION_SAMPLE_MASK + 1 instrumented propagations for JFR
+    private var propagationCount = 0L
+
     /**
      * Perform only a single propagation step. This is thread-safe.
      */
@@ -132,6 +291,13 @@ open class Simulator {
                 temp = tmp
 
                 var lastException: RuntimeException? = null
+                val listeners = simulationListeners
+                if (listeners.isNotEmpty()) {
+                    listeners.forEach { it.stepStarted(temp.size) }
+                    timingEvaluations = listeners.any { it.timesEvaluations() }
+                }
+                // Decided once per step, so that an uninstrumented step only takes a single branch per link
+                val instrumented = listeners.isNotEmpty() || PROPAGATE_SIGNAL_EVENT.isEnabled
 
                 for (pair in temp) {
                     val (state, link) = pair
@@ -141,7 +307,8 @@ open class Simulator {
                         continue
 
                     try {
-                        state.propagateSignal(link)
+                        if (instrumented) propagateInstrumented(state, link, listeners)
+                        else state.propagateSignal(link)
                     } catch (_: ShortCircuitException) {
                         lastShortCircuitedLinks.add(pair)
                     } catch (exc: RuntimeException) {
@@ -150,6 +317,8 @@ open class Simulator {
                     }
                 }
 
+                if (listeners.isNotEmpty()) listeners.forEach { it.stepFinished(temp.size) }
+
                 if (lastException != null) throw lastException
 
                 // Only throw the ShortCircuitException if there's no more links to update, which means that links have
@@ -168,11 +337,33 @@ open class Simulator {
                     lastShortCircuitedLinks.clear()
                 }
             } finally {
+                timingEvaluations = false
                 stepping.set(false)
             }
         }
     }
 
+    private fun propagateInstrumented(state: CircuitState, link: Port.Link, listeners: List<SimulationListener>) {
+        if (++propagationCount and PROPAGATION_SAMPLE_MASK == 0L) propagateSampled(state, link)
+        else state.propagateSignal(link)
+        listeners.forEach { it.linkPropagated(state, link) }
+    }
+
+    private fun propagateSampled(state: CircuitState, link: Port.Link) {
+        val event = PropagateSignalEvent()
+        event.begin()
+        try {
+            state.propagateSignal(link)
+        } finally {
+            event.end()
+            if (event.shouldCommit()) {
+                event.circuit = state.circuit.name
+                event.ports = link.participants.size
+                event.commit()
+            }
+        }
+    }
+
     /**
      * Continuously steps the simulation until no more propagation is needed. This is thread-safe.
      */
@@ -183,6 +374,12 @@ open class Simulator {
             }
             history.clear()
 
+            val event = SettleEvent()
+            event.begin()
+            val metrics = metrics.takeIf { it.isEnabled }
+            val start = if (metrics != null) System.nanoTime() else 0L
+            val allocatedAtStart = if (metrics != null) SimulationMetrics.currentThreadAllocatedBytes() else 0L
+
             var repeatCount = 0
 
             var lastException: RuntimeException? = null
@@ -195,6 +392,9 @@ open class Simulator {
                 }
 
                 history.add(LinkedHashSet(linksToUpdate))
+                event.steps++
+                event.links += linksToUpdate.size
+                metrics?.stepStarted(linksToUpdate.size)
 
                 try {
                     step()
@@ -207,8 +407,26 @@ open class Simulator {
                 }
             }
 
+            if (event.steps > 0) {
+                event.commit()
+                metrics?.settled(
+                    event.steps,
+                    System.nanoTime() - start,
+                    SimulationMetrics.currentThreadAllocatedBytes() - allocatedAtStart,
+                    lastShortCircuit != null
+                )
+            }
+
             if (lastException != null) throw lastException
             if (lastShortCircuit != null) throw lastShortCircuit
+
+            simulationListeners.forEach { it.settled() }
         }
     }
+
+    companion object {
+        private const val PROPAGATION_SAMPLE_MASK = 1023L
+
+        private val PROPAGATE_SIGNAL_EVENT = EventType.getEventType(PropagateSignalEvent::class.java)
+    }
 }
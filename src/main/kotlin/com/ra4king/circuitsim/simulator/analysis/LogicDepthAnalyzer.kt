@@ -0,0 +1,439 @@
+package com.ra4king.circuitsim.simulator.analysis
+
+import com.ra4king.circuitsim.simulator.Circuit
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.components.Subcircuit
+import com.ra4king.circuitsim.simulator.components.arithmetic.*
+import com.ra4king.circuitsim.simulator.components.debugging.Breakpoint
+import com.ra4king.circuitsim.simulator.components.gates.ControlledBuffer
+import com.ra4king.circuitsim.simulator.components.gates.Gate
+import com.ra4king.circuitsim.simulator.components.memory.*
+import com.ra4king.circuitsim.simulator.components.plexers.Decoder
+import com.ra4king.circuitsim.simulator.components.plexers.Demultiplexer
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer
+import com.ra4king.circuitsim.simulator.components.plexers.PriorityEncoder
+import com.ra4king.circuitsim.simulator.components.wiring.*
+
+/**
+ * Static logic depth analysis of a Circuit hierarchy.
+ *
+ * Every Link is assigned the largest sum of component weights along any combinational path that reaches it, starting
+ * from a sequential element (Register, flip-flop, RAM, ...) or an input Pin. Paths end at the inputs of sequential
+ * elements and at output Pins. Subcircuits are summarized as black boxes: their pin-to-pin delays and the delays to and
+ * from their internal sequential elements. Summaries are cached and reused until the revision of the subcircuit, or of
+ * any subcircuit nested inside it, changes.
+ *
+ * This class reads the structure of the circuits without locking, callers should run it inside `Simulator.runSync`.
+ *
+ * @param weights    Delay of each component type, looked up by class then superclasses. Unlisted types use a weight of 1.
+ * @param connectors Additional groups of Ports that should be treated as a single net, for example tunnels with the
+ * same label.
+ */
+class LogicDepthAnalyzer @JvmOverloads constructor(
+    private val weights: Map<Class<*>, Int> = DEFAULT_WEIGHTS,
+    private val connectors: (Circuit) -> Collection<Collection<Port>> = { emptyList() }
+) {
+    private val summaries = HashMap<Circuit, CircuitSummary>()
+
+    /**
+     * A start or end point of a timing path. For subcircuits, the depth is the delay hidden inside the subcircuit.
+     */
+    class Endpoint(val component: Component, val link: Port.Link, val depth: Int)
+
+    class Edge(val from: Port.Link, val to: Port.Link, val weight: Int, val component: Component)
+
+    class TimingPath(val start: Endpoint, val edges: List<Edge>, val end: Endpoint, val depth: Int) {
+        val links: List<Port.Link>
+            get() = listOf(start.link) + edges.map { it.to }
+
+        override fun toString() = buildString {
+            append("depth ").append(depth).append(": ").append(describe(start.component))
+            edges.forEach { append(" -> ").append(describe(it.component)) }
+            append(" -> ").append(describe(end.component))
+        }
+    }
+
+    class Report(val circuit: Circuit, val depths: Map<Port.Link, Int>, val paths: List<TimingPath>) {
+        val maxDepth
+            get() = paths.firstOrNull()?.depth ?: 0
+
+        fun format() = buildString {
+            append("Logic depth report for \"").append(circuit.name).append("\"\n")
+            append("Maximum depth: ").append(maxDepth).append('\n')
+            append("Nets analyzed: ").append(depths.size).append("\n\n")
+            paths.forEachIndexed { i, path -> append(i + 1).append(". ").append(path).append('\n') }
+        }
+    }
+
+    /**
+     * Analyze the given circuit, reusing the cached summaries of all unchanged subcircuits.
+     *
+     * @param circuit The Circuit to analyze.
+     * @param topN    The maximum number of paths to report, each ending at a different sink.
+     */
+    @JvmOverloads
+    fun analyze(circuit: Circuit, topN: Int = 10): Report {
+        val graph = buildGraph(circuit, HashMap())
+        val pass = longestPaths(graph, graph.sources)
+
+        val paths = graph.sinks
+            .filter { graph.arrival(pass, it.link) != null }
+            .sortedByDescending { graph.arrival(pass, it.link)!! + it.depth }
+            .take(topN)
+            .map { sink ->
+                val net = graph.latestNet(pass, sink.link)
+                val hops = ArrayList<NetEdge>()
+                var hop = pass.predecessor[net]
+                while (hop != null) {
+                    hops.add(hop)
+                    hop = pass.predecessor[hop.from]
+                }
+                hops.reverse()
+
+                // Every component is entered from the net of one of its inputs and left to the net of an output
+                val edges = hops.chunked(2) { (into, out) -> Edge(into.link, out.link, out.weight, out.component) }
+                val start = pass.origin[hops.firstOrNull()?.from ?: net]!!
+                TimingPath(start, edges, sink, pass.arrival[net] + sink.depth)
+            }
+
+        val depths = HashMap<Port.Link, Int>()
+        graph.links.forEach { link -> graph.arrival(pass, link)?.let { depths[link] = it } }
+        return Report(circuit, depths, paths)
+    }
+
+    /**
+     * Drops all cached subcircuit summaries.
+     */
+    fun invalidate() = summaries.clear()
+
+    private class Role(val inputs: List<Int>, val outputs: List<Int>, val sequential: Boolean = false)
+
+    private class CircuitSummary(
+        val revisions: Map<Circuit, Long>,
+        val pinToPin: Map<Pin, Map<Pin, Int>>,
+        val sourceToPin: Map<Pin, Int>,
+        val pinToSink: Map<Pin, Int>
+    )
+
+    // A combinational component, or a single input of a subcircuit, through which each input reaches each output with
+    // the delay of that output
+    private class Hop(val component: Component, val inputs: List<Port.Link>, val outputs: List<Pair<Port.Link, Int>>)
+
+    private class NetEdge(val from: Int, val to: Int, val weight: Int, val link: Port.Link, val component: Component)
+
+    /**
+     * Every bit of every Link is a separate element, and the bits that splitters, tunnels and unknown components connect
+     * are merged into a single net with a union-find. The nets and one node per Hop are the nodes of the graph, so
+     * connected bits never need edges between them and only real combinational loops form cycles.
+     */
+    private class Graph {
+        val sources = ArrayList<Endpoint>()
+        val sinks = ArrayList<Endpoint>()
+        val hops = ArrayList<Hop>()
+
+        private val offsets = LinkedHashMap<Port.Link, Int>()
+        private var parent = IntArray(64)
+        private var bits = 0
+
+        val links: Set<Port.Link>
+            get() = offsets.keys
+
+        lateinit var edges: Array<MutableList<NetEdge>?>
+            private set
+        lateinit var nodes: IntArray
+            private set
+
+        val size
+            get() = bits + hops.size
+
+        fun add(link: Port.Link) {
+            if (offsets.containsKey(link)) return
+            offsets[link] = bits
+            if (bits + link.bitSize > parent.size) parent = parent.copyOf(maxOf(parent.size * 2, bits + link.bitSize))
+            for (i in bits until bits + link.bitSize) parent[i] = i
+            bits += link.bitSize
+        }
+
+        fun union(a: Port.Link, aBit: Int, b: Port.Link, bBit: Int) {
+            add(a)
+            add(b)
+            val rootA = find(offsets[a]!! + aBit)
+            val rootB = find(offsets[b]!! + bBit)
+            if (rootA != rootB) parent[maxOf(rootA, rootB)] = minOf(rootA, rootB)
+        }
+
+        private fun find(bit: Int): Int {
+            var i = bit
+            while (parent[i] != i) {
+                parent[i] = parent[parent[i]]
+                i = parent[i]
+            }
+            return i
+        }
+
+        // The distinct nets of the bits of a Link
+        fun nets(link: Port.Link): IntArray {
+            val offset = offsets[link]!!
+            return IntArray(link.bitSize) { find(offset + it) }.distinct().toIntArray()
+        }
+
+        fun arrival(pass: Pass, link: Port.Link) =
+            nets(link).maxOf { pass.arrival[it] }.takeIf { it != Int.MIN_VALUE }
+
+        fun latestNet(pass: Pass, link: Port.Link) = nets(link).maxBy { pass.arrival[it] }
+
+        /**
+         * Connects each Hop to the nets of its ports once all nets have been merged.
+         */
+        fun resolve() {
+            val edges = arrayOfNulls<MutableList<NetEdge>>(size)
+            fun addEdge(edge: NetEdge) {
+                (edges[edge.from] ?: ArrayList<NetEdge>().also { edges[edge.from] = it }).add(edge)
+            }
+
+            hops.forEachIndexed { index, hop ->
+                val node = bits + index
+                for (input in hop.inputs) nets(input).forEach { addEdge(NetEdge(it, node, 0, input, hop.component)) }
+                for ((output, weight) in hop.outputs)
+                    nets(output).forEach { addEdge(NetEdge(node, it, weight, output, hop.component)) }
+            }
+
+            this.edges = edges
+            nodes = (0 until size).filter { it >= bits || find(it) == it }.toIntArray()
+        }
+    }
+
+    private class Pass(size: Int) {
+        val arrival = IntArray(size) { Int.MIN_VALUE }
+        val predecessor = arrayOfNulls<NetEdge>(size)
+        val origin = arrayOfNulls<Endpoint>(size)
+    }
+
+    private fun summarize(circuit: Circuit, dependencies: MutableMap<Circuit, Long>): CircuitSummary {
+        summaries[circuit]?.let { cached ->
+            if (cached.revisions.all { (c, revision) -> c.revision == revision }) {
+                dependencies.putAll(cached.revisions)
+                return cached
+            }
+        }
+
+        val revisions = HashMap<Circuit, Long>()
+        revisions[circuit] = circuit.revision
+        val graph = buildGraph(circuit, revisions)
+
+        val outputPins = graph.sinks.filter { it.component is Pin }
+        val internalSinks = graph.sinks.filter { it.component !is Pin }
+
+        val pinToPin = HashMap<Pin, Map<Pin, Int>>()
+        val pinToSink = HashMap<Pin, Int>()
+        for (source in graph.sources) {
+            val pin = source.component as? Pin ?: continue
+            val pass = longestPaths(graph, listOf(source))
+            pinToPin[pin] = outputPins
+                .mapNotNull { out -> graph.arrival(pass, out.link)?.let { out.component as Pin to it } }
+                .toMap()
+            internalSinks.mapNotNull { sink -> graph.arrival(pass, sink.link)?.let { it + sink.depth } }.maxOrNull()
+                ?.let { pinToSink[pin] = it }
+        }
+
+        val pass = longestPaths(graph, graph.sources.filter { it.component !is Pin })
+        val sourceToPin = outputPins
+            .mapNotNull { out -> graph.arrival(pass, out.link)?.let { out.component as Pin to it } }
+            .toMap()
+
+        val summary = CircuitSummary(revisions, pinToPin, sourceToPin, pinToSink)
+        summaries[circuit] = summary
+        dependencies.putAll(revisions)
+        return summary
+    }
+
+    private fun buildGraph(circuit: Circuit, dependencies: MutableMap<Circuit, Long>): Graph {
+        val graph = Graph()
+
+        for (component in circuit.components) {
+            for (i in 0..<component.numPorts) graph.add(component.getPort(i).link)
+
+            if (component is Pin) {
+                val endpoint = Endpoint(component, component.port.link, 0)
+                if (component.isInput) graph.sources.add(endpoint) else graph.sinks.add(endpoint)
+                continue
+            }
+
+            if (component is Subcircuit) {
+                val summary = summarize(component.subcircuit, dependencies)
+                for (pin in component.pins) {
+                    val link = component.getPort(pin)!!.link
+                    summary.pinToPin[pin]?.let { delays ->
+                        val outputs = delays.map { (out, delay) -> component.getPort(out)!!.link to delay }
+                        graph.hops.add(Hop(component, listOf(link), outputs))
+                    }
+                    summary.sourceToPin[pin]?.let { graph.sources.add(Endpoint(component, link, it)) }
+                    summary.pinToSink[pin]?.let { graph.sinks.add(Endpoint(component, link, it)) }
+                }
+                continue
+            }
+
+            if (component is Splitter) {
+                // Each bit of the joined port is the same net as its bit in the fanned out port, if any
+                val joined = component.getPort(component.portJoined).link
+                val fanBits = IntArray(component.numPorts)
+                component.bitFanIndices.forEachIndexed { bit, fan ->
+                    if (fan >= 0) graph.union(joined, bit, component.getPort(fan).link, fanBits[fan]++)
+                }
+                continue
+            }
+
+            val role = roleOf(component)
+            if (role == null) {
+                // Other unknown components join all of their ports into a single net
+                val first = component.getPort(0).link
+                for (i in 0..<component.numPorts) {
+                    val link = component.getPort(i).link
+                    for (bit in 0..<link.bitSize) graph.union(first, 0, link, bit)
+                }
+                continue
+            }
+
+            val weight = weightOf(component)
+            if (role.sequential) {
+                role.inputs.forEach { graph.sinks.add(Endpoint(component, component.getPort(it).link, 0)) }
+                role.outputs.forEach { graph.sources.add(Endpoint(component, component.getPort(it).link, weight)) }
+            } else if (role.inputs.isNotEmpty() && role.outputs.isNotEmpty()) {
+                graph.hops.add(Hop(
+                    component,
+                    role.inputs.map { component.getPort(it).link },
+                    role.outputs.map { component.getPort(it).link to weight }
+                ))
+            }
+        }
+
+        for (group in connectors(circuit)) {
+            val first = group.firstOrNull()?.link ?: continue
+            for (port in group)
+                for (bit in 0..<minOf(first.bitSize, port.link.bitSize)) graph.union(first, bit, port.link, bit)
+        }
+
+        graph.resolve()
+        return graph
+    }
+
+    /**
+     * Longest path over the graph using Kahn's algorithm. Combinational loops are broken by forcing the next unprocessed
+     * node once no node is left without pending predecessors. Nodes are never relaxed after they have been processed,
+     * which keeps the predecessor chains acyclic.
+     */
+    private fun longestPaths(graph: Graph, sources: List<Endpoint>): Pass {
+        val pass = Pass(graph.size)
+        for (source in sources) {
+            for (net in graph.nets(source.link)) {
+                if (source.depth > pass.arrival[net]) {
+                    pass.arrival[net] = source.depth
+                    pass.origin[net] = source
+                }
+            }
+        }
+
+        val pending = IntArray(graph.size)
+        graph.edges.forEach { edges -> edges?.forEach { pending[it.to]++ } }
+
+        val processed = BooleanArray(graph.size)
+        var processedCount = 0
+        val queue = ArrayDeque<Int>()
+        graph.nodes.filterTo(queue) { pending[it] == 0 }
+
+        val remaining = graph.nodes.iterator()
+        while (processedCount < graph.nodes.size) {
+            val node = queue.removeFirstOrNull() ?: remaining.next()
+            if (processed[node]) continue
+            processed[node] = true
+            processedCount++
+
+            val arrival = pass.arrival[node]
+            graph.edges[node]?.forEach { edge ->
+                if (processed[edge.to]) return@forEach
+
+                if (arrival != Int.MIN_VALUE && arrival + edge.weight > pass.arrival[edge.to]) {
+                    pass.arrival[edge.to] = arrival + edge.weight
+                    pass.predecessor[edge.to] = edge
+                    pass.origin[edge.to] = pass.origin[node]!!
+                }
+
+                if (--pending[edge.to] == 0) queue.add(edge.to)
+            }
+        }
+
+        return pass
+    }
+
+    private fun weightOf(component: Component): Int {
+        var clazz: Class<*>? = component.javaClass
+        while (clazz != null) {
+            weights[clazz]?.let { return it }
+            clazz = clazz.superclass
+        }
+        return 1
+    }
+
+    private fun roleOf(component: Component): Role? {
+        val all = (0..<component.numPorts).toList()
+        return when (component) {
+            is Gate -> Role(all - component.numInputs, listOf(component.numInputs))
+            is ControlledBuffer, is Transistor, is SimpleTransistor, is Shifter, is ROM -> Role(listOf(0, 1), listOf(2))
+            is Adder, is Subtractor, is Multiplier -> Role(listOf(0, 1, 2), listOf(3, 4))
+            is Divider -> Role(listOf(0, 1), listOf(2, 3))
+            is Comparator -> Role(listOf(0, 1), listOf(2, 3, 4))
+            is Negator, is BitExtender -> Role(listOf(0), listOf(1))
+            is Multiplexer -> Role(all.dropLast(1), listOf(component.numPorts - 1))
+            is Demultiplexer -> Role(all.takeLast(2), all.dropLast(2))
+            is Decoder -> Role(listOf(component.numPorts - 1), all.dropLast(1))
+            is PriorityEncoder -> Role(all.dropLast(3), all.takeLast(3))
+
+            is Register -> Role(listOf(0, 1, 2, 3), listOf(4), true)
+            is DFlipFlop -> Role(listOf(0, 1, 2, 3, 4), listOf(5, 6), true)
+            is SRFlipFlop -> Role(listOf(0, 1, 2, 3, 4, 5), listOf(6, 7), true)
+            is RAM -> Role(all, listOf(RAM.Ports.PORT_DATA.ordinal), true)
+            is RandomGenerator -> Role(listOf(0), listOf(1), true)
+            is Clock, is Constant, is Power, is Ground -> Role(emptyList(), listOf(0), true)
+            is Breakpoint -> Role(all, emptyList(), true)
+            else -> null
+        }
+    }
+
+    companion object {
+        /**
+         * Rough relative delays of the built-in components, in units of a single gate.
+         */
+        @JvmField
+        val DEFAULT_WEIGHTS: Map<Class<*>, Int> = mapOf(
+            Gate::class.java to 1,
+            ControlledBuffer::class.java to 1,
+            Adder::class.java to 4,
+            Subtractor::class.java to 4,
+            Multiplier::class.java to 8,
+            Divider::class.java to 8,
+            Comparator::class.java to 2,
+            Shifter::class.java to 2,
+            Negator::class.java to 2,
+            BitExtender::class.java to 0,
+            Multiplexer::class.java to 2,
+            Demultiplexer::class.java to 2,
+            Decoder::class.java to 2,
+            PriorityEncoder::class.java to 2,
+            ROM::class.java to 2,
+            RAM::class.java to 2,
+            Register::class.java to 0,
+            DFlipFlop::class.java to 0,
+            SRFlipFlop::class.java to 0,
+            RandomGenerator::class.java to 0,
+            Clock::class.java to 0,
+            Constant::class.java to 0,
+            Power::class.java to 0,
+            Ground::class.java to 0,
+        )
+
+        private fun describe(component: Component) =
+            if (component.name.isEmpty()) component.javaClass.simpleName
+            else "${component.javaClass.simpleName} \"${component.name}\""
+    }
+}
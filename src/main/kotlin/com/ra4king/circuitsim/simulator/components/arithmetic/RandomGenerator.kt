@@ -5,29 +5,27 @@ import com.ra4king.circuitsim.simulator.Component
 import com.ra4king.circuitsim.simulator.WireValue
 import com.ra4king.circuitsim.simulator.WireValue.Companion.of
 import com.ra4king.circuitsim.simulator.components.arithmetic.RandomGenerator.Ports.*
+import java.util.*
 
 /**
  * @author Roi Atalla
  */
 class RandomGenerator(name: String, private val bitSize: Int) : Component(name, intArrayOf(1, bitSize)) {
     override fun init(circuitState: CircuitState, lastProperty: Any?) {
-        circuitState.pushValue(
-            getPort(PORT_OUT),
-            this.randomValue
-        )
+        // Each state gets its own stream split from the Simulator's seed, making runs reproducible when it is set
+        val random = circuitState.circuit.simulator.newRandom()
+        circuitState.putComponentProperty(this, random)
+        circuitState.pushValue(getPort(PORT_OUT), randomValue(random))
     }
 
     override fun valueChanged(state: CircuitState, value: WireValue, portIndex: Int) {
         if (portIndex == PORT_CLK.ordinal && value.getBit(0) == WireValue.State.ONE) {
-            state.pushValue(
-                getPort(PORT_OUT),
-                this.randomValue
-            )
+            val random = state.getComponentProperty(this) as SplittableRandom
+            state.pushValue(getPort(PORT_OUT), randomValue(random))
         }
     }
 
-    private val randomValue: WireValue
-        get() = of((Math.random() * (1L shl bitSize)).toLong(), bitSize)
+    private fun randomValue(random: SplittableRandom) = of(random.nextLong(1L shl bitSize), bitSize)
 
     enum class Ports {
         PORT_CLK, PORT_OUT
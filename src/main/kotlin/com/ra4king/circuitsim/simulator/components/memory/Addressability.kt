@@ -14,6 +14,11 @@ interface MemoryUnit {
     val dataWidth: Int
     val addressability: Addressability
 
+    /**
+     * The tracer recording the loads and stores made by the circuit, if any.
+     */
+    var accessTracer: MemoryAccessTracer?
+
     val bytesPerEntry get() = when (addressability) {
         Addressability.BYTE -> if (dataWidth == 16) 2 else 4
         Addressability.HALF_WORD -> 2
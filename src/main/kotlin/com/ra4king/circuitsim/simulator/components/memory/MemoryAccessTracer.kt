@@ -0,0 +1,142 @@
+package com.ra4king.circuitsim.simulator.components.memory
+
+/**
+ * Records the loads and stores a circuit makes to a memory, to find out which addresses a program uses and how often,
+ * such as a stack that keeps growing. The most recent accesses are kept in a fixed-size ring buffer for a timeline, and
+ * every access is counted per page of `2^pageBits` words to find the hot regions over the whole run. Recording an
+ * access only writes a few array elements, so a tracer can stay attached for millions of cycles, and a memory without
+ * a tracer only pays for a null check.
+ *
+ * Only the accesses made by the circuit through the ports of the memory are recorded, not reads by the GUI or edits of
+ * the contents. Addresses are word indices into the memory, and accesses from all CircuitStates are recorded together.
+ * Like the memory, this is guarded by the Simulator lock.
+ *
+ * @param size The number of words in the memory.
+ * @param capacity The number of recent accesses kept.
+ * @param pageBits The log2 of the number of words per counted page.
+ */
+class MemoryAccessTracer @JvmOverloads constructor(
+    val size: Int,
+    val capacity: Int = DEFAULT_CAPACITY,
+    val pageBits: Int = DEFAULT_PAGE_BITS,
+) {
+    init {
+        require(size > 0) { "Size must be positive" }
+        require(capacity > 0) { "Capacity must be positive" }
+        require(pageBits in 0..30) { "Page bits must be between 0 and 30" }
+    }
+
+    /**
+     * A recorded access, where `sequence` counts all accesses since the tracer was created or reset, starting at 0.
+     */
+    data class Access(val sequence: Long, val address: Int, val isStore: Boolean, val value: Int)
+
+    /**
+     * The accesses to the page of words from `start` (inclusive) to `end` (exclusive).
+     */
+    data class PageCount(val start: Int, val end: Int, val loads: Long, val stores: Long) {
+        val total
+            get() = loads + stores
+    }
+
+    // The ring buffer of recent accesses, the sign bit of the address is set for stores
+    private val addresses = IntArray(capacity)
+    private val values = IntArray(capacity)
+    private var position = 0
+
+    private val pageLoads = LongArray(((size - 1) ushr pageBits) + 1)
+    private val pageStores = LongArray(pageLoads.size)
+
+    var loadCount = 0L
+        private set
+    var storeCount = 0L
+        private set
+
+    val accessCount
+        get() = loadCount + storeCount
+
+    fun recordLoad(address: Int, value: Int) {
+        record(address, value)
+        pageLoads[address ushr pageBits]++
+        loadCount++
+    }
+
+    fun recordStore(address: Int, value: Int) {
+        record(address or Int.MIN_VALUE, value)
+        pageStores[address ushr pageBits]++
+        storeCount++
+    }
+
+    private fun record(entry: Int, value: Int) {
+        addresses[position] = entry
+        values[position] = value
+        if (++position == capacity) position = 0
+    }
+
+    /**
+     * Returns the last `limit` recorded accesses that are still in the ring buffer, oldest first.
+     */
+    @JvmOverloads
+    fun recentAccesses(limit: Int = capacity): List<Access> {
+        val count = minOf(limit.toLong(), capacity.toLong(), accessCount).toInt()
+        val first = accessCount - count
+        return List(count) {
+            val index = Math.floorMod(position - count + it, capacity)
+            val entry = addresses[index]
+            Access(first + it, entry and Int.MAX_VALUE, entry < 0, values[index])
+        }
+    }
+
+    /**
+     * Copies the last recorded accesses that are still in the ring buffer into `into`, oldest first, and returns how many
+     * were copied. Each entry is the address of an access with the sign bit set for stores. Unlike `recentAccesses`,
+     * this allocates nothing, so it is cheap enough to call under the Simulator lock while the simulation is running.
+     */
+    fun copyRecentEntries(into: IntArray): Int {
+        val count = minOf(into.size.toLong(), capacity.toLong(), accessCount).toInt()
+        val start = Math.floorMod(position - count, capacity)
+        val wrapped = maxOf(0, start + count - capacity)
+        addresses.copyInto(into, 0, start, start + count - wrapped)
+        addresses.copyInto(into, count - wrapped, 0, wrapped)
+        return count
+    }
+
+    /**
+     * Returns the number of loads from each page, indexed by `address >> pageBits`.
+     */
+    fun getPageLoads(): LongArray = pageLoads.copyOf()
+
+    /**
+     * Returns the number of stores to each page, indexed by `address >> pageBits`.
+     */
+    fun getPageStores(): LongArray = pageStores.copyOf()
+
+    /**
+     * Returns the `limit` pages with the most accesses, most accessed first. Pages that were never accessed are left
+     * out.
+     */
+    fun hotPages(limit: Int): List<PageCount> = pageLoads.indices
+        .filter { pageLoads[it] + pageStores[it] > 0 }
+        .sortedByDescending { pageLoads[it] + pageStores[it] }
+        .take(limit)
+        .map {
+            val start = it shl pageBits
+            PageCount(start, minOf(size, start + (1 shl pageBits)), pageLoads[it], pageStores[it])
+        }
+
+    /**
+     * Forgets all recorded accesses.
+     */
+    fun reset() {
+        position = 0
+        pageLoads.fill(0)
+        pageStores.fill(0)
+        loadCount = 0
+        storeCount = 0
+    }
+
+    companion object {
+        const val DEFAULT_CAPACITY = 1 shl 16
+        const val DEFAULT_PAGE_BITS = 8
+    }
+}
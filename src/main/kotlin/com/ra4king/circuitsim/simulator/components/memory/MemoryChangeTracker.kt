@@ -0,0 +1,97 @@
+package com.ra4king.circuitsim.simulator.components.memory
+
+import com.ra4king.circuitsim.simulator.Simulator
+import kotlin.concurrent.Volatile
+
+/**
+ * Records which words of a memory changed in a bitmap, so that a store only costs setting a bit. Consumers pull the
+ * changed words as coalesced ranges at their own pace, such as once per frame for a view of the memory.
+ *
+ * Marking and draining are guarded by the Simulator lock like the memory itself, only `isDirty` may be read without
+ * holding it.
+ *
+ * @param size The number of words in the memory.
+ */
+class MemoryChangeTracker(val size: Int) {
+    private val bits = LongArray((size + 63) ushr 6)
+
+    // The range of longs in bits that may have a bit set, to avoid scanning the whole bitmap
+    private var first = Int.MAX_VALUE
+    private var last = -1
+
+    /**
+     * Whether any word changed since the last call to `drain`.
+     */
+    @Volatile
+    var isDirty = false
+        private set
+
+    fun mark(index: Int) {
+        val word = index ushr 6
+        bits[word] = bits[word] or (1L shl index)
+        if (word < first) first = word
+        if (word > last) last = word
+        if (!isDirty) isDirty = true
+    }
+
+    /**
+     * Marks the words from `from` (inclusive) to `to` (exclusive).
+     */
+    fun mark(from: Int, to: Int) {
+        if (from >= to) return
+        val firstWord = from ushr 6
+        val lastWord = (to - 1) ushr 6
+        for (word in firstWord..lastWord) {
+            var mask = -1L
+            if (word == firstWord) mask = mask and (-1L shl from)
+            if (word == lastWord) mask = mask and (-1L ushr (63 - ((to - 1) and 63)))
+            bits[word] = bits[word] or mask
+        }
+        if (firstWord < first) first = firstWord
+        if (lastWord > last) last = lastWord
+        if (!isDirty) isDirty = true
+    }
+
+    /**
+     * Calls the consumer with every maximal range of consecutive changed words, in increasing order, and forgets them.
+     */
+    fun drain(consumer: (IntRange) -> Unit) {
+        if (last < 0) return
+
+        // The start of the run of set bits being scanned, which may span several longs
+        var start = -1
+        for (word in first..last) {
+            val value = bits[word]
+            bits[word] = 0
+            val base = word shl 6
+            var bit = 0
+            while (true) {
+                // Look for the next set bit outside a run, or the next clear bit inside one
+                val rest = (if (start < 0) value else value.inv()) ushr bit
+                if (rest == 0L) break
+                bit += java.lang.Long.numberOfTrailingZeros(rest)
+                if (start < 0) {
+                    start = base + bit
+                } else {
+                    consumer(start until base + bit)
+                    start = -1
+                }
+            }
+        }
+        // Bits past the size are never set, so a run that is still open ends with the last long
+        if (start >= 0) consumer(start until ((last + 1) shl 6))
+
+        first = Int.MAX_VALUE
+        last = -1
+        isDirty = false
+    }
+
+    /**
+     * Returns a listener that delivers the changes recorded by this tracker to the given callback every time the
+     * simulation settles, for consumers that only need the changes batched per settle. Add it with
+     * `Simulator.addSimulationListener`.
+     */
+    fun onSettled(callback: (IntRange) -> Unit) = object : Simulator.SimulationListener {
+        override fun settled() = drain(callback)
+    }
+}
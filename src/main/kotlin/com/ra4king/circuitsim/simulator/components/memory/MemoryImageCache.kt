@@ -0,0 +1,65 @@
+package com.ra4king.circuitsim.simulator.components.memory
+
+import java.io.File
+import java.lang.ref.SoftReference
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * A process-wide cache of parsed memory image files. A file is parsed once per modification, and every RAM that loads
+ * it gets a copy-on-write copy of the same pages, so initializing many CircuitStates or resetting the simulation does
+ * not read or parse the file again. Images are only softly reachable from the cache, so the garbage collector may drop
+ * them when memory runs low and they are then parsed again on the next load.
+ */
+object MemoryImageCache {
+    private data class Key(val path: String, val addressBits: Int, val dataBits: Int)
+
+    // The file's modification time and length when it was parsed, the image is never written to
+    private class Entry(val lastModified: Long, val length: Long, image: PagedMemory) {
+        val image = SoftReference(image)
+    }
+
+    private val images = ConcurrentHashMap<Key, Entry>()
+
+    /**
+     * Returns a copy of the contents of the given file for a memory with the given number of address and data bits,
+     * or null if it could not be read. The file is only parsed if it was not already cached or if it changed since.
+     */
+    @JvmStatic
+    fun load(file: File, addressBits: Int, dataBits: Int): PagedMemory? {
+        if (!file.isFile) return null
+
+        val key = Key(file.absolutePath, addressBits, dataBits)
+        val lastModified = file.lastModified()
+        val length = file.length()
+
+        // Entries whose image was collected only hold their key, drop them so that the map does not grow forever
+        images.values.removeIf { it.image.get() == null }
+
+        val cached = images[key]
+        val cachedImage = cached?.takeIf { it.lastModified == lastModified && it.length == length }?.image?.get()
+        val (entry, image) = if (cachedImage != null) {
+            cached!! to cachedImage
+        } else {
+            val image = parse(file, addressBits, dataBits) ?: return null
+            Entry(lastModified, length, image).also { images[key] = it } to image
+        }
+
+        // copy() is not safe to call concurrently on the same memory
+        return synchronized(entry) { image.copy() }
+    }
+
+    /**
+     * Drops all cached images.
+     */
+    @JvmStatic
+    fun clear() {
+        images.clear()
+    }
+
+    private fun parse(file: File, addressBits: Int, dataBits: Int) = try {
+        PagedMemory.of(1 shl addressBits, MemoryImageLoader.load(file, addressBits, dataBits))
+    } catch (exception: Exception) {
+        exception.printStackTrace()
+        null
+    }
+}
@@ -0,0 +1,239 @@
+package com.ra4king.circuitsim.simulator.components.memory
+
+import com.ra4king.circuitsim.simulator.SimulationException
+import java.io.ByteArrayInputStream
+import java.io.File
+import java.io.InputStream
+
+/**
+ * Decodes memory images straight from bytes into arrays of words, without tokenizing into strings.
+ *
+ * The supported formats are:
+ * - TEXT: whitespace separated hex words, where `count-value` repeats a value `count` (decimal) times. This is the
+ *   format CircuitSim saves, and it also reads Logisim's `v2.0 raw` images, which use `count*value` and `#` comments.
+ * - INTEL_HEX: Intel HEX records with 16-bit, segment or linear addresses, where addresses count bytes.
+ * - BINARY: raw bytes.
+ *
+ * In the byte formats, every word is made of `(dataBits + 7) / 8` bytes, most significant byte first.
+ */
+object MemoryImageLoader {
+    enum class Format { TEXT, INTEL_HEX, BINARY }
+
+    private const val BUFFER_SIZE = 1 shl 16
+
+    /**
+     * Guesses the format of the given file: BINARY for a `.bin` file, INTEL_HEX if it starts with a `:`, TEXT otherwise.
+     */
+    @JvmStatic
+    fun detect(file: File): Format {
+        if (file.extension.equals("bin", true)) return Format.BINARY
+        file.inputStream().use {
+            val input = Input(it)
+            input.skipWhitespace()
+            return if (input.peek() == ':'.code) Format.INTEL_HEX else Format.TEXT
+        }
+    }
+
+    /**
+     * Reads at most `2^addressBits` words from the given file. The returned array ends at the last word read.
+     *
+     * @throws SimulationException If the file is malformed.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun load(file: File, addressBits: Int, dataBits: Int, format: Format = detect(file)) =
+        file.inputStream().use { parse(it, format, 1 shl addressBits, dataBits) }
+
+    /**
+     * Reads at most `size` words in the CircuitSim text format.
+     */
+    @JvmStatic
+    fun parseText(text: String, size: Int) = parse(ByteArrayInputStream(text.toByteArray()), Format.TEXT, size, 32)
+
+    @JvmStatic
+    fun parse(stream: InputStream, format: Format, size: Int, dataBits: Int): IntArray {
+        require(dataBits in 1..32) { "Data bits must be between 1 and 32" }
+        val input = Input(stream)
+        val words = IntArray(size)
+        val length = when (format) {
+            Format.TEXT -> parseText(input, words)
+            Format.INTEL_HEX -> parseIntelHex(input, words, (dataBits + 7) / 8)
+            Format.BINARY -> parseBinary(input, words, (dataBits + 7) / 8)
+        }
+        return if (length == size) words else words.copyOf(length)
+    }
+
+    private fun parseText(input: Input, words: IntArray): Int {
+        input.skipWhitespace()
+        if (input.peek() == 'v'.code) {
+            // The "v2.0 raw" header of Logisim images
+            input.skipLine()
+        }
+
+        var length = 0
+        while (length < words.size) {
+            input.skipWhitespace()
+            var c = input.read()
+            if (c == '#'.code) {
+                input.skipLine()
+                continue
+            }
+            if (c < 0) break
+
+            var value = 0L
+            var count = 0L
+            var repeatCount = -1L
+            var digits = 0
+            var decimal = true
+            while (c >= 0 && !isWhitespace(c)) {
+                val digit = hexDigit(c)
+                if (digit >= 0) {
+                    // Saturate instead of overflowing, a value that is too large is only an error if it is not a count
+                    value = minOf((value shl 4) or digit.toLong(), 1L shl 32)
+                    count = minOf(count * 10 + digit, Int.MAX_VALUE.toLong())
+                    decimal = decimal && digit < 10
+                    digits++
+                } else if ((c == '-'.code || c == '*'.code) && repeatCount < 0 && digits > 0 && decimal) {
+                    repeatCount = count
+                    value = 0
+                    digits = 0
+                } else {
+                    throw invalid("Cannot parse invalid hex value", length)
+                }
+                c = input.read()
+            }
+            if (digits == 0 || value > 0xFFFFFFFFL) throw invalid("Cannot parse invalid hex value", length)
+
+            val end = if (repeatCount >= 0) minOf(words.size.toLong(), length + repeatCount).toInt() else length + 1
+            words.fill(value.toInt(), length, end)
+            length = end
+        }
+        return length
+    }
+
+    private fun parseIntelHex(input: Input, words: IntArray, bytesPerWord: Int): Int {
+        var base = 0L
+        var length = 0
+        var line = 0
+        while (true) {
+            input.skipWhitespace()
+            val start = input.read()
+            if (start < 0) break
+            line++
+            if (start != ':'.code) throw invalid("Expected ':'", line, "record")
+
+            val byteCount = input.readHexByte(line)
+            val address = (input.readHexByte(line) shl 8) or input.readHexByte(line)
+            val type = input.readHexByte(line)
+            var checksum = byteCount + (address shr 8) + (address and 0xFF) + type
+
+            when (type) {
+                0x00 -> for (i in 0 until byteCount) {
+                    val byte = input.readHexByte(line)
+                    checksum += byte
+                    val byteAddress = base + address + i
+                    val index = byteAddress / bytesPerWord
+                    if (index < words.size) {
+                        val shift = (bytesPerWord - 1 - (byteAddress % bytesPerWord).toInt()) * 8
+                        words[index.toInt()] = words[index.toInt()] and (0xFF shl shift).inv() or (byte shl shift)
+                        length = maxOf(length, index.toInt() + 1)
+                    }
+                }
+
+                0x02, 0x04 -> {
+                    if (byteCount != 2) throw invalid("Invalid address record", line, "record")
+                    val high = input.readHexByte(line)
+                    val low = input.readHexByte(line)
+                    checksum += high + low
+                    base = ((high shl 8) or low).toLong() shl (if (type == 0x02) 4 else 16)
+                }
+
+                0x01, 0x03, 0x05 -> for (i in 0 until byteCount) {
+                    checksum += input.readHexByte(line)
+                }
+
+                else -> throw invalid("Unknown record type $type", line, "record")
+            }
+
+            checksum += input.readHexByte(line)
+            if ((checksum and 0xFF) != 0) throw invalid("Invalid checksum", line, "record")
+            if (type == 0x01) break
+        }
+        return length
+    }
+
+    private fun parseBinary(input: Input, words: IntArray, bytesPerWord: Int): Int {
+        var length = 0
+        while (length < words.size) {
+            var word = 0
+            for (i in 0 until bytesPerWord) {
+                val byte = input.read()
+                if (byte < 0) {
+                    // A trailing partial word is padded with zeros
+                    if (i > 0) words[length++] = word shl ((bytesPerWord - i) * 8)
+                    return length
+                }
+                word = (word shl 8) or byte
+            }
+            words[length++] = word
+        }
+        return length
+    }
+
+    // The value of every hex digit, and -1 for any other byte
+    private val HEX_DIGITS = IntArray(256) {
+        when (it) {
+            in '0'.code..'9'.code -> it - '0'.code
+            in 'a'.code..'f'.code -> it - 'a'.code + 10
+            in 'A'.code..'F'.code -> it - 'A'.code + 10
+            else -> -1
+        }
+    }
+
+    private fun isWhitespace(c: Int) = c == ' '.code || c == '\n'.code || c == '\r'.code || c == '\t'.code || c == 0x0C
+
+    private fun hexDigit(c: Int) = if (c < 0) -1 else HEX_DIGITS[c]
+
+    private fun invalid(message: String, index: Int, what: String = "word") =
+        SimulationException("$message at $what $index")
+
+    // A buffered byte source that is cheaper than going through a Reader
+    private class Input(private val stream: InputStream) {
+        private val buffer = ByteArray(BUFFER_SIZE)
+        private var position = 0
+        private var limit = 0
+
+        fun peek(): Int {
+            if (position == limit && !fill()) return -1
+            return buffer[position].toInt() and 0xFF
+        }
+
+        fun read() = peek().also { if (it >= 0) position++ }
+
+        fun skipWhitespace() {
+            while (isWhitespace(peek())) position++
+        }
+
+        fun skipLine() {
+            while (true) {
+                val c = read()
+                if (c < 0 || c == '\n'.code) return
+            }
+        }
+
+        fun readHexByte(line: Int): Int {
+            val high = hexDigit(read())
+            val low = hexDigit(read())
+            if (high < 0 || low < 0) throw invalid("Invalid hex digit", line, "record")
+            return (high shl 4) or low
+        }
+
+        private fun fill(): Boolean {
+            val read = stream.read(buffer)
+            if (read <= 0) return false
+            position = 0
+            limit = read
+            return true
+        }
+    }
+}
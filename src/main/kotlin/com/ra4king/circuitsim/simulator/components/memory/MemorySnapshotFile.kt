@@ -0,0 +1,136 @@
+package com.ra4king.circuitsim.simulator.components.memory
+
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+import java.nio.file.StandardOpenOption
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.Inflater
+import java.util.zip.InflaterInputStream
+
+/**
+ * Reads and writes the contents of memories to a compact binary file, so they can outlive the CircuitStates they were
+ * stored in. Only allocated pages are written and everything is deflated, so a mostly empty memory only takes a few
+ * bytes, and a large image is read back as fast as it can be inflated. The file goes through a FileChannel in chunks.
+ *
+ * The file starts with a magic number and the format version, followed by the deflated entries: their count, then for
+ * every entry its key, data bits, size in words and number of pages, then the index and words of every page. All
+ * numbers are big-endian.
+ */
+object MemorySnapshotFile {
+    /**
+     * The contents of a memory, identified by a key chosen by the caller.
+     */
+    class Entry(val key: String, val dataBits: Int, val memory: PagedMemory)
+
+    private const val MAGIC = 0x43534D45 // "CSME"
+    private const val VERSION = 1
+    private const val CHUNK_SIZE = 1 shl 16
+
+    /**
+     * Writes the given entries to the file, replacing it. The file is written next to its final location first, so a
+     * failed write does not lose the previous contents.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun write(path: Path, entries: List<Entry>) {
+        val target = path.toAbsolutePath()
+        val temp = Files.createTempFile(target.parent, target.fileName.toString(), ".tmp")
+        try {
+            FileChannel.open(temp, StandardOpenOption.WRITE).use { channel ->
+                val header = ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION).flip()
+                while (header.hasRemaining()) channel.write(header)
+
+                val deflater = Deflater(Deflater.BEST_SPEED)
+                try {
+                    val stream = DeflaterOutputStream(Channels.newOutputStream(channel), deflater, CHUNK_SIZE)
+                    DataOutputStream(BufferedOutputStream(stream, CHUNK_SIZE)).use { output ->
+                        output.writeInt(entries.size)
+                        entries.forEach { writeEntry(output, it) }
+                    }
+                } finally {
+                    deflater.end()
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+        } finally {
+            Files.deleteIfExists(temp)
+        }
+    }
+
+    private fun writeEntry(output: DataOutputStream, entry: Entry) {
+        val memory = entry.memory
+        output.writeUTF(entry.key)
+        output.writeInt(entry.dataBits)
+        output.writeInt(memory.size)
+        output.writeInt(memory.allocatedPages)
+
+        val bytes = ByteBuffer.allocate(PagedMemory.PAGE_SIZE * 4)
+        memory.forEachAllocatedPage { index, page ->
+            val length = minOf(page.size, memory.size - (index shl PagedMemory.PAGE_BITS))
+            bytes.clear()
+            bytes.asIntBuffer().put(page, 0, length)
+            output.writeInt(index)
+            output.write(bytes.array(), 0, length * 4)
+        }
+    }
+
+    /**
+     * Reads all entries from the file.
+     *
+     * @throws IOException If the file could not be read or is not a valid memory snapshot.
+     */
+    @JvmStatic
+    @Throws(IOException::class)
+    fun read(path: Path): List<Entry> = FileChannel.open(path, StandardOpenOption.READ).use { channel ->
+        val header = ByteBuffer.allocate(8)
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) throw IOException("Not a memory snapshot file")
+        }
+        header.flip()
+        if (header.getInt() != MAGIC) throw IOException("Not a memory snapshot file")
+        val version = header.getInt()
+        if (version != VERSION) throw IOException("Unsupported memory snapshot version $version")
+
+        val inflater = Inflater()
+        try {
+            val stream = InflaterInputStream(Channels.newInputStream(channel), inflater, CHUNK_SIZE)
+            val input = DataInputStream(BufferedInputStream(stream, CHUNK_SIZE))
+            List(input.readInt()) { readEntry(input) }
+        } finally {
+            inflater.end()
+        }
+    }
+
+    private fun readEntry(input: DataInputStream): Entry {
+        val key = input.readUTF()
+        val dataBits = input.readInt()
+        val size = input.readInt()
+        val pageCount = input.readInt()
+        if (dataBits !in 1..32 || size !in 1..(1 shl RAM.MAX_ADDRESS_BITS)) {
+            throw IOException("Invalid memory snapshot entry $key")
+        }
+
+        val memory = PagedMemory(size)
+        val bytes = ByteArray(PagedMemory.PAGE_SIZE * 4)
+        val words = IntArray(PagedMemory.PAGE_SIZE)
+        repeat(pageCount) {
+            val start = input.readInt() shl PagedMemory.PAGE_BITS
+            if (start !in 0 until size) throw IOException("Invalid page in memory snapshot entry $key")
+            val length = minOf(PagedMemory.PAGE_SIZE, size - start)
+            input.readFully(bytes, 0, length * 4)
+            ByteBuffer.wrap(bytes, 0, length * 4).asIntBuffer().get(words, 0, length)
+            memory.copyFrom(start, words, 0, length)
+        }
+        return Entry(key, dataBits, memory)
+    }
+}
@@ -0,0 +1,181 @@
+package com.ra4king.circuitsim.simulator.components.memory
+
+/**
+ * The contents of a memory, split into fixed-size pages that are only allocated the first time they are written to.
+ * Pages that were never written all share a single zero page, and a copy shares all of its pages with the original
+ * until either of them writes to a page. A large memory that is mostly unused, or that is copied into many
+ * CircuitStates, only pays for the pages that actually hold data.
+ *
+ * Reads and writes are O(1). Like the rest of the simulation state, this is not thread-safe and is guarded by the
+ * Simulator lock.
+ *
+ * @param size The number of words in this memory.
+ */
+class PagedMemory private constructor(val size: Int, private val pages: Array<IntArray>) {
+    constructor(size: Int) : this(size, Array(pageCount(size)) { ZERO_PAGE })
+
+    init {
+        require(size >= 0) { "Size cannot be negative" }
+    }
+
+    private val pageSize = minOf(size, PAGE_SIZE)
+
+    // Whether each page is private to this memory and may be written in place
+    private val owned = BooleanArray(pages.size)
+
+    /**
+     * The number of pages that were allocated by writes, which is 0 for a memory that was never written to.
+     */
+    val allocatedPages
+        get() = pages.count { it !== ZERO_PAGE }
+
+    operator fun get(address: Int) = pages[address ushr PAGE_BITS][address and PAGE_MASK]
+
+    operator fun set(address: Int, value: Int) {
+        val index = address ushr PAGE_BITS
+        val offset = address and PAGE_MASK
+        // Writing a zero to a shared zero page does not change anything
+        if (!owned[index] && pages[index][offset] == value) return
+        writablePage(index)[offset] = value
+    }
+
+    /**
+     * Sets every word from `from` (inclusive) to `to` (exclusive) to the given value. Whole pages that are cleared go
+     * back to sharing the zero page.
+     */
+    fun fill(from: Int, to: Int, value: Int) {
+        checkRange(from, to)
+        forEachPage(from, to) { index, start, end ->
+            if (value == 0 && start == 0 && end == pageSize) {
+                pages[index] = ZERO_PAGE
+                owned[index] = false
+            } else if (owned[index] || pages[index] !== ZERO_PAGE || value != 0) {
+                writablePage(index).fill(value, start, end)
+            }
+        }
+    }
+
+    /**
+     * Sets every word of this memory to 0, releasing all allocated pages.
+     */
+    fun clear() {
+        pages.fill(ZERO_PAGE)
+        owned.fill(false)
+    }
+
+    /**
+     * Copies `length` words of `values` starting at `offset` into this memory starting at `address`. Pages that are
+     * still unallocated and would only receive zeros stay unallocated.
+     */
+    @JvmOverloads
+    fun copyFrom(address: Int, values: IntArray, offset: Int = 0, length: Int = values.size - offset) {
+        checkRange(address, address + length)
+        if (offset < 0 || length < 0 || offset + length > values.size) {
+            throw IndexOutOfBoundsException("Offset $offset, length $length, array size ${values.size}")
+        }
+        forEachPage(address, address + length) { index, start, end ->
+            val source = offset + (index shl PAGE_BITS) + start - address
+            if (owned[index] || pages[index] !== ZERO_PAGE ||
+                (source until source + end - start).any { values[it] != 0 }) {
+                values.copyInto(writablePage(index), start, source, source + end - start)
+            }
+        }
+    }
+
+    /**
+     * Calls the action with the index and the words of every allocated page, in increasing order. The page may be
+     * shared with copies of this memory and must not be modified.
+     */
+    fun forEachAllocatedPage(action: (index: Int, page: IntArray) -> Unit) {
+        pages.forEachIndexed { index, page ->
+            if (page !== ZERO_PAGE) action(index, page)
+        }
+    }
+
+    private fun writablePage(index: Int): IntArray {
+        if (!owned[index]) {
+            pages[index] = pages[index].copyOf(pageSize)
+            owned[index] = true
+        }
+        return pages[index]
+    }
+
+    // Calls the action with the page index and the range within that page for every page overlapping [from, to)
+    private inline fun forEachPage(from: Int, to: Int, action: (index: Int, start: Int, end: Int) -> Unit) {
+        var address = from
+        while (address < to) {
+            val index = address ushr PAGE_BITS
+            val pageEnd = minOf(to, (index + 1) shl PAGE_BITS)
+            action(index, address and PAGE_MASK, pageEnd - (index shl PAGE_BITS))
+            address = pageEnd
+        }
+    }
+
+    private fun checkRange(from: Int, to: Int) {
+        if (from < 0 || to > size || from > to) {
+            throw IndexOutOfBoundsException("Range [$from, $to) out of bounds for size $size")
+        }
+    }
+
+    /**
+     * Returns a copy of this memory that shares all pages with it until either one is written to.
+     */
+    fun copy() = resize(size)
+
+    /**
+     * Returns a copy of this memory with the given size, truncated or padded with zeros. Pages are shared with this
+     * memory until either one is written to.
+     */
+    fun resize(newSize: Int): PagedMemory {
+        val copy = PagedMemory(newSize)
+        if (newSize >= PAGE_SIZE && pageSize == PAGE_SIZE) {
+            pages.copyInto(copy.pages, endIndex = minOf(pages.size, copy.pages.size))
+            // Both sides now have to copy a page before writing to it
+            owned.fill(false)
+        } else {
+            for (address in 0 until minOf(size, newSize)) {
+                copy[address] = this[address]
+            }
+        }
+        return copy
+    }
+
+    /**
+     * Returns the contents of this memory as a new dense array.
+     */
+    fun toIntArray(): IntArray {
+        val array = IntArray(size)
+        pages.forEachIndexed { index, page ->
+            if (page !== ZERO_PAGE) {
+                val start = index shl PAGE_BITS
+                page.copyInto(array, start, 0, minOf(page.size, size - start))
+            }
+        }
+        return array
+    }
+
+    companion object {
+        /**
+         * Pages hold 1024 words, which is 4 KB.
+         */
+        const val PAGE_BITS = 10
+        const val PAGE_SIZE = 1 shl PAGE_BITS
+        private const val PAGE_MASK = PAGE_SIZE - 1
+
+        private val ZERO_PAGE = IntArray(PAGE_SIZE)
+
+        private fun pageCount(size: Int) = (size + PAGE_MASK) ushr PAGE_BITS
+
+        /**
+         * Creates a memory with the given contents, only allocating the pages that contain a value other than 0.
+         */
+        @JvmStatic
+        fun of(size: Int, values: IntArray): PagedMemory {
+            val memory = PagedMemory(size)
+            for (address in 0 until minOf(size, values.size)) {
+                if (values[address] != 0) memory[address] = values[address]
+            }
+            return memory
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.ra4king.circuitsim.simulator.components.memory
 
-import com.ra4king.circuitsim.gui.properties.PropertyMemoryValidator
 import com.ra4king.circuitsim.simulator.CircuitState
 import com.ra4king.circuitsim.simulator.Component
 import com.ra4king.circuitsim.simulator.WireValue
@@ -25,6 +24,10 @@ class RAM(
     private val noValue: WireValue
 
     private val listeners = ArrayList<(Int, Int) -> Unit>()
+    private val rangeListeners = ArrayList<(IntRange) -> Unit>()
+    private val trackers = ArrayList<MemoryChangeTracker>()
+
+    override var accessTracer: MemoryAccessTracer? = null
 
     init {
         require(!(addressBits > MAX_ADDRESS_BITS || addressBits <= 0)) { "Address bits cannot be more than $MAX_ADDRESS_BITS bits." }
@@ -32,6 +35,9 @@ class RAM(
         this.noValue = WireValue(dataBits)
     }
 
+    /**
+     * Adds a listener called with the word index and the new value after every single word store.
+     */
     fun addMemoryListener(listener: (Int, Int) -> Unit) {
         listeners.add(listener)
     }
@@ -40,14 +46,42 @@ class RAM(
         listeners.remove(listener)
     }
 
+    /**
+     * Adds a listener called once with the range of word indices changed by a bulk operation such as `clear`, `fill`
+     * or `storeRange`. Memory listeners are not called for the individual words of a bulk operation.
+     */
+    fun addMemoryRangeListener(listener: (IntRange) -> Unit) {
+        rangeListeners.add(listener)
+    }
+
+    fun removeMemoryRangeListener(listener: (IntRange) -> Unit) {
+        rangeListeners.remove(listener)
+    }
+
+    /**
+     * Returns a tracker that records every word changed by a store or a bulk operation, in any CircuitState. Unlike
+     * listeners, a store only costs setting a bit, and the changes are pulled as coalesced ranges when convenient.
+     * Call `stopTracking` once the tracker is no longer needed.
+     */
+    fun trackChanges() = MemoryChangeTracker(1 shl netAddrBits).also { trackers.add(it) }
+
+    fun stopTracking(tracker: MemoryChangeTracker) {
+        trackers.remove(tracker)
+    }
+
     private fun notifyListeners(address: Int, data: Int) {
         listeners.forEach { it(address, data) }
     }
 
+    private fun notifyRangeListeners(range: IntRange) {
+        if (!range.isEmpty()) rangeListeners.forEach { it(range) }
+    }
+
     fun store(state: CircuitState, address: Int, data: Int) {
-        val array = getMemoryContents(state)
-        array[effective(address)] = data
-        state.putComponentProperty(this, array)
+        val index = effective(address)
+        val memory = getMemory(state)
+        memory[index] = data
+        state.putComponentProperty(this, memory)
 
         val enabled = state.getLastReceived(getPort(PORT_ENABLE)).getBit(0) != WireValue.State.ZERO
         val load = state.getLastReceived(getPort(PORT_LOAD)).getBit(0) != WireValue.State.ZERO
@@ -56,17 +90,88 @@ class RAM(
             state.pushValue(getPort(PORT_DATA), of(data.toLong(), this.dataBits))
         }
 
-        notifyListeners(effective(address), data)
+        for (i in trackers.indices) trackers[i].mark(index)
+        notifyListeners(index, data)
+    }
+
+    /**
+     * Sets every word of this RAM to 0 in the given CircuitState.
+     */
+    fun clear(state: CircuitState) {
+        val memory = getMemory(state)
+        memory.clear()
+        bulkStored(state, memory, 0 until memory.size)
+    }
+
+    /**
+     * Sets the words from index `from` (inclusive) to `to` (exclusive) to the given value. Unlike `store`, these are
+     * word indices into the memory rather than addresses.
+     */
+    fun fill(state: CircuitState, from: Int, to: Int, value: Int) {
+        val memory = getMemory(state)
+        memory.fill(from, to, value)
+        bulkStored(state, memory, from until to)
+    }
+
+    /**
+     * Copies the given values into consecutive words starting at word index `start`.
+     */
+    @JvmOverloads
+    fun storeRange(state: CircuitState, start: Int, values: IntArray, offset: Int = 0, length: Int = values.size - offset) {
+        val memory = getMemory(state)
+        memory.copyFrom(start, values, offset, length)
+        bulkStored(state, memory, start until start + length)
+    }
+
+    /**
+     * Replaces the contents of this RAM in the given CircuitState with the given memory, which must have as many words
+     * as this RAM and is used as is without being copied.
+     */
+    fun replaceMemory(state: CircuitState, memory: PagedMemory) {
+        require(memory.size == 1 shl netAddrBits) { "Memory has ${memory.size} words instead of ${1 shl netAddrBits}" }
+        bulkStored(state, memory, 0 until memory.size)
+    }
+
+    // Updates the data output once and notifies the trackers and range listeners once for the whole range
+    private fun bulkStored(state: CircuitState, memory: PagedMemory, range: IntRange) {
+        state.putComponentProperty(this, memory)
+
+        val enabled = state.getLastReceived(getPort(PORT_ENABLE)).getBit(0) != WireValue.State.ZERO
+        val load = state.getLastReceived(getPort(PORT_LOAD)).getBit(0) != WireValue.State.ZERO
+        val addressValue = state.getLastReceived(getPort(PORT_ADDRESS))
+        if (enabled && load && addressValue.isValidValue && effective(addressValue.value) in range) {
+            state.pushValue(getPort(PORT_DATA), of(memory[effective(addressValue.value)].toLong(), this.dataBits))
+        }
+
+        for (i in trackers.indices) trackers[i].mark(range.first, range.last + 1)
+        notifyRangeListeners(range)
+    }
+
+    fun load(circuitState: CircuitState, address: Int) = getMemory(circuitState)[effective(address)]
+
+    // A load made by the circuit, as opposed to the GUI
+    private fun tracedLoad(state: CircuitState, address: Int): Int {
+        val index = effective(address)
+        val value = getMemory(state)[index]
+        accessTracer?.recordLoad(index, value)
+        return value
     }
 
-    fun load(circuitState: CircuitState, address: Int) = getMemoryContents(circuitState)[effective(address)]
+    /**
+     * Returns the live contents of this RAM in the given CircuitState. Pages are only allocated once written to.
+     */
+    fun getMemory(circuitState: CircuitState) =
+        circuitState.getComponentProperty(this) as? PagedMemory ?: PagedMemory(1 shl netAddrBits)
 
-    fun getMemoryContents(circuitState: CircuitState) = circuitState.getComponentProperty(this) as? IntArray ?: IntArray(1 shl netAddrBits)
+    /**
+     * Returns a dense snapshot of the contents of this RAM in the given CircuitState.
+     */
+    fun getMemoryContents(circuitState: CircuitState) = getMemory(circuitState).toIntArray()
 
     override fun init(circuitState: CircuitState, lastProperty: Any?) {
-        val contents = srcFile?.let { try { PropertyMemoryValidator.parseFile(it, netAddrBits, dataBits) } catch (_: Exception) { null } }
-        val memory = (lastProperty as? IntArray)?.let { prev -> IntArray(1 shl netAddrBits) { if (it < prev.size) prev[it] else 0 } }
-            ?: contents?.let { IntArray(1 shl netAddrBits) { i -> contents[i / 16]?.values?.get(i % 16)?.value?.toUInt(16)?.toInt() ?: 0 } }
+        val size = 1 shl netAddrBits
+        val memory = (lastProperty as? PagedMemory)?.resize(size)
+            ?: srcFile?.let { MemoryImageCache.load(it, netAddrBits, dataBits) }
         circuitState.putComponentProperty(this, memory)
     }
 
@@ -75,8 +180,6 @@ class RAM(
     }
 
     override fun valueChanged(state: CircuitState, value: WireValue, portIndex: Int) {
-        val memory = getMemoryContents(state)
-
         val enabled = state.getLastReceived(getPort(PORT_ENABLE)).getBit(0) != WireValue.State.ZERO
         val clear = state.getLastReceived(getPort(PORT_CLEAR)).getBit(0) == WireValue.State.ONE
         val load = state.getLastReceived(getPort(PORT_LOAD)).getBit(0) == WireValue.State.ONE
@@ -93,7 +196,7 @@ class RAM(
                 if (enabled && load && address.isValidValue) {
                     state.pushValue(
                         getPort(PORT_DATA), of(
-                            load(state, address.value).toLong(),
+                            tracedLoad(state, address.value).toLong(),
                             this.dataBits
                         )
                     )
@@ -103,7 +206,7 @@ class RAM(
             PORT_ADDRESS -> if (enabled && load && address.isValidValue) {
                 state.pushValue(
                     getPort(PORT_DATA), of(
-                        load(state, address.value).toLong(),
+                        tracedLoad(state, address.value).toLong(),
                         this.dataBits
                     )
                 )
@@ -112,19 +215,13 @@ class RAM(
             PORT_CLK -> if (store && value.getBit(0) == WireValue.State.ONE && address.isValidValue) {
                 val lastReceived =
                     state.getLastReceived(getPort(if (isSeparateLoadStore) PORT_DATA_IN else PORT_DATA))
-                if (lastReceived.isValidValue) {
-                    store(state, address.value, lastReceived.value)
-                } else {
-                    store(state, address.value, of(-1, this.dataBits).value)
-                }
+                val data = if (lastReceived.isValidValue) lastReceived.value else of(-1, this.dataBits).value
+                store(state, address.value, data)
+                accessTracer?.recordStore(effective(address.value), data)
             }
 
             PORT_CLEAR -> if (clear) {
-                var i = 0
-                while (i < memory.size) {
-                    store(state, i, 0)
-                    i++
-                }
+                clear(state)
             }
             else -> {}
         }
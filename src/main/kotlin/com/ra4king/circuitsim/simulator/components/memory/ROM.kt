@@ -20,6 +20,10 @@ class ROM(
     val memory = IntArray(1 shl netAddrBits)
 
     private val listeners = ArrayList<(Int, Int) -> Unit>()
+    private val rangeListeners = ArrayList<(IntRange) -> Unit>()
+    private val trackers = ArrayList<MemoryChangeTracker>()
+
+    override var accessTracer: MemoryAccessTracer? = null
 
     init {
         require(!(addressBits > MAX_ADDRESS_BITS || addressBits <= 0)) { "Address bits cannot be more than $MAX_ADDRESS_BITS bits." }
@@ -37,6 +41,27 @@ class ROM(
         listeners.remove(listener)
     }
 
+    /**
+     * Adds a listener called once with the range of word indices changed by `storeRange`. Memory listeners are not
+     * called for the individual words of the range.
+     */
+    fun addMemoryRangeListener(listener: (IntRange) -> Unit) {
+        rangeListeners.add(listener)
+    }
+
+    fun removeMemoryRangeListener(listener: (IntRange) -> Unit) {
+        rangeListeners.remove(listener)
+    }
+
+    /**
+     * Returns a tracker that records every word changed by a store. Call `stopTracking` once it is no longer needed.
+     */
+    fun trackChanges() = MemoryChangeTracker(memory.size).also { trackers.add(it) }
+
+    fun stopTracking(tracker: MemoryChangeTracker) {
+        trackers.remove(tracker)
+    }
+
     private fun notifyListeners(address: Int, data: Int) {
         listeners.forEach { it(address, data) }
     }
@@ -49,15 +74,37 @@ class ROM(
     fun store(address: Int, value: Int) {
         val eff = effective(address)
         memory[eff] = value
+        for (i in trackers.indices) trackers[i].mark(eff)
         notifyListeners(eff, value)
     }
 
-    override fun valueChanged(state: CircuitState, value: WireValue, portIndex: Int) {
+    /**
+     * Copies the given values into consecutive words starting at word index `start`. Trackers and range listeners are
+     * notified once for the whole range and memory listeners are not called for the individual words, so the caller
+     * updates the data output with `refresh`.
+     */
+    fun storeRange(start: Int, values: IntArray) {
+        values.copyInto(memory, start)
+        for (i in trackers.indices) trackers[i].mark(start, start + values.size)
+        val range = start until start + values.size
+        rangeListeners.forEach { it(range) }
+    }
+
+    override fun valueChanged(state: CircuitState, value: WireValue, portIndex: Int) = update(state, true)
+
+    /**
+     * Pushes the word at the current address to the data output after the contents were edited, without recording a
+     * load with the access tracer.
+     */
+    fun refresh(state: CircuitState) = update(state, false)
+
+    private fun update(state: CircuitState, traced: Boolean) {
         val enabled = state.getLastReceived(getPort(PORT_ENABLE)).getBit(0) != WireValue.State.ZERO
         val address = state.getLastReceived(getPort(PORT_ADDRESS))
 
         if (enabled && address.isValidValue) {
             state.pushValue(getPort(PORT_DATA), loadWireValue(address.value)!!)
+            if (traced) accessTracer?.recordLoad(effective(address.value), load(address.value))
         } else {
             state.pushValue(getPort(PORT_DATA), WireValue(dataBits))
         }
@@ -2,6 +2,8 @@ package com.ra4king.circuitsim.simulator.components.wiring
 
 import com.ra4king.circuitsim.simulator.*
 import com.ra4king.circuitsim.simulator.WireValue.Companion.of
+import com.ra4king.circuitsim.simulator.trace.ClockRateEvent
+import com.ra4king.circuitsim.simulator.trace.ClockTickEvent
 import javafx.beans.property.SimpleObjectProperty
 import javafx.beans.value.ChangeListener
 import java.util.*
@@ -13,15 +15,71 @@ import kotlin.math.max
 /**
  * @author Roi Atalla
  */
-class Clock(name: String) : Component(name, intArrayOf(1)) {
+class Clock @JvmOverloads constructor(name: String, val domain: Domain = Domain.DEFAULT) :
+    Component(name, intArrayOf(1)) {
+
+    /**
+     * A group of clocks that toggle together. Time is counted in ticks of the main clock: a domain toggles every
+     * `divider` ticks, starting `phase` ticks after the main clock. All domains are driven by the same clock thread, so
+     * their edges are interleaved in time order. Clocks with the same name but a different timing belong to different
+     * domains.
+     */
+    data class Domain @JvmOverloads constructor(val name: String, val divider: Int = 1, val phase: Int = 0) {
+        init {
+            require(divider >= 1) { "Clock divider must be at least 1" }
+            require(phase >= 0) { "Clock phase must not be negative" }
+        }
+
+        fun togglesAt(tick: Long) = tick > phase && (tick - phase) % divider == 0L
+
+        companion object {
+            @JvmField
+            val DEFAULT = Domain("")
+        }
+    }
+
     class EnabledInfo(val enabled: Boolean, val hertz: Int) {
         override fun equals(other: Any?) = other is EnabledInfo && enabled == other.enabled && hertz == other.hertz
 
         override fun hashCode() = Objects.hash(enabled, hertz)
     }
 
-    private class ClockInfo(private val simulator: Simulator) {
-        val clocks = ConcurrentHashMap<Clock, Any?>()
+    /**
+     * The outcome of `runCycles` or `runUntil`.
+     *
+     * @param cycles       The number of full clock cycles that were run.
+     * @param elapsedNanos The wall-clock time spent running them.
+     * @param conditionMet Whether the run stopped because the condition became true.
+     * @param halted       Whether the run stopped because `halt` was called, such as by a watchpoint.
+     */
+    class RunResult(val cycles: Long, val elapsedNanos: Long, val conditionMet: Boolean, val halted: Boolean) {
+        val hertz
+            get() = if (elapsedNanos == 0L) 0.0 else cycles * 1e9 / elapsedNanos
+
+        override fun toString() = 
+            "RunResult(cycles = $cycles, elapsedNanos = $elapsedNanos, conditionMet = $conditionMet, halted = $halted)"
+    }
+
+    private class DomainInfo {
+        var high = false
+
+        // The port of each clock in this domain, for every CircuitState it was initialized in
+        val fanOut = LinkedHashSet<Pair<CircuitState, Port>>()
+
+        val value
+            get() = of((if (high) 1 else 0).toLong(), 1)
+
+        fun push() {
+            val value = value
+            fanOut.forEach { (state, port) -> state.pushValue(port, value) }
+        }
+    }
+
+    private class ClockInfo(private val simulator: Simulator) : AutoCloseable {
+        // Guarded by the Simulator lock
+        private val domains = hashMapOf(Domain.DEFAULT to DomainInfo())
+        private var currentTick = 0L
+
         val clockChangeListeners =
             ConcurrentHashMap<(WireValue?) -> Unit, Any?>()
 
@@ -31,7 +89,6 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
 
         private var currentClock: InternalClockInfo? = null
         val clockEnabled = SimpleObjectProperty(EnabledInfo(false, 0))
-        var clock = false
 
         private var lastTickTime: Long = 0
         private var lastPrintTime: Long = 0
@@ -40,6 +97,11 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
         @Volatile
         var lastTickCount = 0
 
+        // Checked by the clock thread and by run() rather than stopping the clock directly, since halt() may be called
+        // while holding the Simulator lock, which must not be taken before this ClockInfo
+        @Volatile
+        var haltRequested = false
+
         init {
             clockEnabled.addListener(ChangeListener { _, _, newValue ->
                 if (newValue.enabled) startClock(newValue.hertz)
@@ -47,29 +109,79 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
             })
         }
 
+        override fun close() {
+            stopClock(true)
+        }
+
+        fun isHigh(domain: Domain) = simulator.runSync { domains[domain]?.high ?: false }
+
+        fun addFanOut(domain: Domain, state: CircuitState, port: Port) = simulator.runSync {
+            val info = domains.getOrPut(domain) { DomainInfo() }
+            info.fanOut.add(Pair(state, port))
+            info.value
+        }
+
+        fun removeFanOut(domain: Domain, state: CircuitState, port: Port) = simulator.runSync {
+            domains[domain]?.fanOut?.remove(Pair(state, port))
+        }
+
         fun reset() {
             stopClock(true)
             synchronized(this) {
-                if (clock) tick()
+                val changed = simulator.runSync {
+                    currentTick = 0
+                    domains.values.filter { it.high }.onEach {
+                        it.high = false
+                        it.push()
+                    }.isNotEmpty()
+                }
+                if (changed) {
+                    val clockValue = of(0, 1)
+                    clockChangeListeners.forEach { (listener, _) -> listener(clockValue) }
+                }
             }
         }
 
         @Synchronized
         fun tick() {
-            clock = !clock
-            val clockValue = of((if (clock) 1 else 0).toLong(), 1)
-
-            simulator.runSync {
-                clocks.forEach { (clock: Clock, _: Any?) ->
-                    val circuit = clock.circuit
-                    circuit?.forEachState { state: CircuitState ->
-                        state.pushValue(clock.getPort(PORT), clockValue)
+            val clockValue = simulator.runSync {
+                currentTick++
+                domains.forEach { (domain, info) ->
+                    if (domain.togglesAt(currentTick)) {
+                        info.high = !info.high
+                        info.push()
                     }
                 }
+                domains[Domain.DEFAULT]!!.value
             }
             clockChangeListeners.forEach { (listener, _) -> listener(clockValue) }
         }
 
+        fun run(maxCycles: Long, condition: (() -> Boolean)?): RunResult {
+            require(maxCycles >= 0) { "maxCycles must be non-negative" }
+            check(!clockEnabled.get().enabled) { "Cannot run cycles while the clock is running" }
+
+            val start = System.nanoTime()
+            var cycles = 0L
+            haltRequested = false
+            var conditionMet = condition != null && simulator.runSync(condition)
+            while (!conditionMet && !haltRequested && cycles < maxCycles) {
+                // Same lock order as the clock thread: this ClockInfo first, then the Simulator
+                conditionMet = synchronized(this) {
+                    simulator.runSync {
+                        tick()
+                        simulator.stepAll()
+                        tick()
+                        simulator.stepAll()
+                        condition != null && condition()
+                    }
+                }
+                cycles++
+            }
+
+            return RunResult(cycles, System.nanoTime() - start, conditionMet, haltRequested && !conditionMet)
+        }
+
         @Synchronized
         fun startClock(hertz: Int) {
             if (currentClock != null) {
@@ -80,8 +192,10 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
             lastTickTime = lastPrintTime
             tickCount = 0
             lastTickCount = tickCount
+            haltRequested = false
 
-            val nanosPerTick = (1e9 / (2L * hertz)).toLong()
+            val unthrottled = hertz == MAX_SPEED
+            val nanosPerTick = if (unthrottled) 0L else (1e9 / (2L * hertz)).toLong()
 
             val clockThread = Thread {
                 val currentClock = this.currentClock
@@ -95,10 +209,30 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
                         tickCount = 0
                         lastPrintTime = now
                         lastTickTime = now
+
+                        val rateEvent = ClockRateEvent()
+                        rateEvent.targetHertz = hertz
+                        rateEvent.achievedHertz = lastTickCount shr 1
+                        rateEvent.commit()
                     }
 
+                    val tickEvent = ClockTickEvent()
+                    tickEvent.begin()
                     tick()
                     tickCount++
+                    tickEvent.end()
+                    if (tickEvent.shouldCommit()) {
+                        tickEvent.targetHertz = hertz
+                        tickEvent.lateness = if (unthrottled) 0 else max(0, now - lastTickTime)
+                        tickEvent.commit()
+                    }
+
+                    if (haltRequested) {
+                        clockEnabled.set(EnabledInfo(false, 0))
+                        break
+                    }
+
+                    if (unthrottled) continue
 
                     lastTickTime += nanosPerTick
 
@@ -142,28 +276,27 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
         }
     }
 
-    override var circuit = super.circuit
-        set(value) {
-            val old = field
-            field = value
-            old?.let { simulatorClocks[it.simulator]?.clocks?.remove(this) }
-            value?.let { get(it.simulator).clocks[this] = this }
-        }
-
     override fun init(circuitState: CircuitState, lastProperty: Any?) {
-        val clock: ClockInfo = get(circuit!!.simulator)
-        circuitState.pushValue(getPort(PORT), of((if (clock.clock) 1 else 0).toLong(), 1))
+        val port = getPort(PORT)
+        circuitState.pushValue(port, get(circuitState.circuit.simulator).addFanOut(domain, circuitState, port))
+    }
+
+    override fun uninit(circuitState: CircuitState) {
+        get(circuitState.circuit.simulator).removeFanOut(domain, circuitState, getPort(PORT))
     }
 
     override fun valueChanged(state: CircuitState, value: WireValue, portIndex: Int) {}
 
     companion object {
-        private val simulatorClocks = ConcurrentHashMap<Simulator, ClockInfo>()
-
         const val PORT: Int = 0
 
+        /**
+         * Passing this as the frequency runs the clock in a tight loop, as fast as the circuit can be simulated.
+         */
+        const val MAX_SPEED: Int = 0
+
         private operator fun get(simulator: Simulator) =
-            simulatorClocks.computeIfAbsent(simulator) { ClockInfo(it) }
+            simulator.getContext(ClockInfo::class.java) { ClockInfo(it) }
 
         @JvmStatic
 		fun tick(simulator: Simulator) {
@@ -171,7 +304,10 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
         }
 
         @JvmStatic
-		fun getTickState(simulator: Simulator) = this[simulator].clock
+		fun getTickState(simulator: Simulator) = this[simulator].isHigh(Domain.DEFAULT)
+
+        @JvmStatic
+        fun getTickState(simulator: Simulator, domain: Domain) = this[simulator].isHigh(domain)
 
         @JvmStatic
 		fun getLastTickCount(simulator: Simulator) = this[simulator].lastTickCount
@@ -186,6 +322,21 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
             this[simulator].clockEnabled.set(EnabledInfo(true, hertz))
         }
 
+        /**
+         * Toggles the clock through the given number of full cycles as fast as possible, settling the simulation after
+         * each edge. This runs on the calling thread and throws an IllegalStateException if the clock is running.
+         */
+        @JvmStatic
+        fun runCycles(simulator: Simulator, cycles: Long) = this[simulator].run(cycles, null)
+
+        /**
+         * Like `runCycles`, but stops as soon as the condition is true after a full cycle. The condition is evaluated
+         * while holding the Simulator lock, so it may read values from any CircuitState.
+         */
+        @JvmStatic
+        fun runUntil(simulator: Simulator, maxCycles: Long, condition: () -> Boolean) =
+            this[simulator].run(maxCycles, condition)
+
         @JvmStatic
 		fun isRunning(simulator: Simulator) = this[simulator].clockEnabled.get().enabled
 
@@ -196,6 +347,15 @@ class Clock(name: String) : Component(name, intArrayOf(1)) {
             this[simulator].clockEnabled.set(EnabledInfo(false, 0))
         }
 
+        /**
+         * Stops the clock after its current tick, and makes a `runCycles` or `runUntil` call in progress return after the
+         * current cycle. Unlike `stopClock`, this is safe to call while holding the Simulator lock.
+         */
+        @JvmStatic
+        fun halt(simulator: Simulator) {
+            this[simulator].haltRequested = true
+        }
+
         @JvmStatic
 		fun addChangeListener(simulator: Simulator, listener: (WireValue?) -> Unit) {
             this[simulator].clockChangeListeners[listener] = listener
@@ -0,0 +1,218 @@
+package com.ra4king.circuitsim.simulator.debugger
+
+import com.ra4king.circuitsim.simulator.Circuit
+import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.Simulator
+import com.ra4king.circuitsim.simulator.components.memory.RAM
+import com.ra4king.circuitsim.simulator.components.memory.ROM
+import com.ra4king.circuitsim.simulator.components.wiring.Clock
+import java.util.concurrent.ConcurrentLinkedQueue
+import kotlin.concurrent.Volatile
+
+/**
+ * Watchpoints of a Simulator: conditions on the values of a Circuit that are checked whenever the simulation settles,
+ * without adding any components to the circuit. A watchpoint is only evaluated in the CircuitStates where a net or
+ * memory it reads has changed. It hits when its condition goes from false to true, which halts the clock as well as
+ * `Clock.runCycles` and `Clock.runUntil`.
+ */
+class Debugger private constructor(private val simulator: Simulator) : Simulator.SimulationListener, AutoCloseable {
+    class Watchpoint internal constructor(val circuit: Circuit, val expression: String) {
+        /**
+         * Whether hitting this watchpoint halts the clock. When false, hits are only counted and reported to listeners.
+         */
+        @Volatile
+        var haltOnHit = true
+
+        @Volatile
+        var hitCount = 0
+            internal set
+
+        /**
+         * Set when the expression no longer compiles, for example because a component it names was removed.
+         */
+        @Volatile
+        var error: String? = null
+            internal set
+
+        internal var compiled: WatchExpression? = null
+        internal var revision = -1L
+        internal val dirtyStates = LinkedHashSet<CircuitState>()
+        internal val lastResults = HashMap<CircuitState, Boolean>()
+
+        // Memory listeners do not say in which state memory changed, so all states are checked
+        @Volatile
+        internal var memoryChanged = false
+        internal val memoryListener: (Int, Int) -> Unit = { _, _ -> memoryChanged = true }
+        internal val memoryRangeListener: (IntRange) -> Unit = { memoryChanged = true }
+
+        override fun toString() = expression
+    }
+
+    fun interface HitListener {
+        fun watchpointHit(watchpoint: Watchpoint, state: CircuitState)
+    }
+
+    // All guarded by the Simulator lock
+    private val watchpoints = ArrayList<Watchpoint>()
+    private val watchpointsByLink = HashMap<Port.Link, MutableList<Watchpoint>>()
+
+    private val hitListeners = ConcurrentLinkedQueue<HitListener>()
+
+    /**
+     * Compiles the expression and adds it as a watchpoint on the given Circuit. It only hits once its condition changes
+     * from false to true, not if it already holds now.
+     *
+     * @throws IllegalArgumentException If the expression is invalid, see `WatchExpression`.
+     */
+    fun addWatchpoint(circuit: Circuit, expression: String): Watchpoint = simulator.runSync {
+        val watchpoint = Watchpoint(circuit, expression)
+        compile(watchpoint, WatchExpression.compile(expression, circuit))
+        watchpoint.compiled?.let { compiled -> circuit.forEachState { watchpoint.lastResults[it] = compiled.test(it) } }
+
+        if (watchpoints.isEmpty()) simulator.addSimulationListener(this)
+        watchpoints.add(watchpoint)
+        rebuildIndex()
+        watchpoint
+    }
+
+    fun removeWatchpoint(watchpoint: Watchpoint) {
+        simulator.runSync {
+            if (!watchpoints.remove(watchpoint)) return@runSync
+            detachMemories(watchpoint)
+            rebuildIndex()
+            if (watchpoints.isEmpty()) simulator.removeSimulationListener(this)
+        }
+    }
+
+    fun getWatchpoints(circuit: Circuit) = simulator.runSync { watchpoints.filter { it.circuit == circuit } }
+
+    fun addHitListener(listener: HitListener) {
+        hitListeners.add(listener)
+    }
+
+    fun removeHitListener(listener: HitListener) {
+        hitListeners.remove(listener)
+    }
+
+    /**
+     * Removes all watchpoints.
+     */
+    fun clear() {
+        simulator.runSync {
+            watchpoints.forEach { detachMemories(it) }
+            watchpoints.clear()
+            watchpointsByLink.clear()
+            simulator.removeSimulationListener(this)
+        }
+    }
+
+    override fun close() = clear()
+
+    override fun linkPropagated(state: CircuitState, link: Port.Link) {
+        watchpointsByLink[link]?.forEach { it.dirtyStates.add(state) }
+    }
+
+    override fun settled() {
+        var halt = false
+        var rebuild = false
+
+        for (watchpoint in watchpoints) {
+            val circuit = watchpoint.circuit
+            if (watchpoint.revision != circuit.revision) {
+                // The links may have been replaced while editing, so the index may have missed changes
+                recompile(watchpoint)
+                rebuild = true
+                watchpoint.memoryChanged = true
+            }
+
+            val compiled = watchpoint.compiled ?: continue
+            if (watchpoint.memoryChanged) {
+                watchpoint.memoryChanged = false
+                circuit.forEachState { watchpoint.dirtyStates.add(it) }
+            }
+
+            for (state in watchpoint.dirtyStates) {
+                if (!circuit.containsState(state)) {
+                    watchpoint.lastResults.remove(state)
+                    continue
+                }
+
+                val result = compiled.test(state)
+                if (watchpoint.lastResults.put(state, result) != true && result) {
+                    watchpoint.hitCount++
+                    halt = halt || watchpoint.haltOnHit
+                    hitListeners.forEach { it.watchpointHit(watchpoint, state) }
+                }
+            }
+            watchpoint.dirtyStates.clear()
+        }
+
+        if (rebuild) rebuildIndex()
+        if (halt) Clock.halt(simulator)
+    }
+
+    private fun recompile(watchpoint: Watchpoint) {
+        detachMemories(watchpoint)
+        try {
+            compile(watchpoint, WatchExpression.compile(watchpoint.expression, watchpoint.circuit))
+        } catch (e: IllegalArgumentException) {
+            watchpoint.compiled = null
+            watchpoint.error = e.message
+            watchpoint.revision = watchpoint.circuit.revision
+        }
+    }
+
+    private fun compile(watchpoint: Watchpoint, compiled: WatchExpression) {
+        watchpoint.compiled = compiled
+        watchpoint.error = null
+        watchpoint.revision = watchpoint.circuit.revision
+        compiled.memories.forEach { addMemoryListeners(it, watchpoint) }
+    }
+
+    private fun detachMemories(watchpoint: Watchpoint) {
+        watchpoint.compiled?.memories?.forEach { removeMemoryListeners(it, watchpoint) }
+    }
+
+    private fun rebuildIndex() {
+        watchpointsByLink.clear()
+        watchpoints.forEach { watchpoint ->
+            watchpoint.compiled?.links?.forEach { watchpointsByLink.getOrPut(it) { ArrayList(1) }.add(watchpoint) }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        fun get(simulator: Simulator) = simulator.getContext(Debugger::class.java) { Debugger(it) }
+
+        // Bulk operations such as clearing a RAM only notify range listeners, so both kinds are needed
+        private fun addMemoryListeners(memory: Component, watchpoint: Watchpoint) = when (memory) {
+            is RAM -> {
+                memory.addMemoryListener(watchpoint.memoryListener)
+                memory.addMemoryRangeListener(watchpoint.memoryRangeListener)
+            }
+
+            is ROM -> {
+                memory.addMemoryListener(watchpoint.memoryListener)
+                memory.addMemoryRangeListener(watchpoint.memoryRangeListener)
+            }
+
+            else -> Unit
+        }
+
+        private fun removeMemoryListeners(memory: Component, watchpoint: Watchpoint) = when (memory) {
+            is RAM -> {
+                memory.removeMemoryListener(watchpoint.memoryListener)
+                memory.removeMemoryRangeListener(watchpoint.memoryRangeListener)
+            }
+
+            is ROM -> {
+                memory.removeMemoryListener(watchpoint.memoryListener)
+                memory.removeMemoryRangeListener(watchpoint.memoryRangeListener)
+            }
+
+            else -> Unit
+        }
+    }
+}
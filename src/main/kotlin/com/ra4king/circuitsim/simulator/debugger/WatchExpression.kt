@@ -0,0 +1,259 @@
+package com.ra4king.circuitsim.simulator.debugger
+
+import com.ra4king.circuitsim.simulator.Circuit
+import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.ShortCircuitException
+import com.ra4king.circuitsim.simulator.components.memory.MemoryUnit
+import com.ra4king.circuitsim.simulator.components.memory.RAM
+import com.ra4king.circuitsim.simulator.components.memory.ROM
+import com.ra4king.circuitsim.simulator.components.memory.Register
+import com.ra4king.circuitsim.simulator.components.wiring.Pin
+
+/**
+ * A condition over the values of a Circuit such as `PC == 0x3000 && MEM[0x4000] != 0`. It is compiled once into a tree
+ * of closures, so evaluating it does not parse or look up anything by name.
+ *
+ * Identifiers name components of the Circuit: a Pin or Register reads its value, any other component with a single
+ * port (such as a Tunnel) reads the net it is attached to, and `NAME[address]` reads a word of a RAM or ROM. Names that
+ * are not plain identifiers may be written in double quotes. Numbers may be decimal, hex (`0x`) or binary (`0b`).
+ *
+ * Operators have the same precedence as in C: `! ~ -`, `* / %`, `+ -`, `<< >>`, `< <= > >=`, `== !=`, `&`, `^`, `|`,
+ * `&&`, `||`. Comparisons and logical operators produce 1 or 0 and the condition holds when the result is not 0.
+ */
+class WatchExpression private constructor(
+    val text: String,
+    private val root: Node,
+    /** The Links whose values this expression reads. */
+    val links: Set<Port.Link>,
+    /** The RAM and ROM components whose contents this expression reads. */
+    val memories: Set<Component>,
+) {
+    private fun interface Node {
+        fun eval(state: CircuitState): Long
+    }
+
+    // Thrown while evaluating when a value is floating, shorted or out of range. Stackless since it is expected.
+    private object UndefinedValue : RuntimeException(null, null, false, false)
+
+    /**
+     * Evaluates this expression in the given CircuitState. It does not hold if any value it reads is undefined.
+     */
+    fun test(state: CircuitState) = try {
+        root.eval(state) != 0L
+    } catch (_: UndefinedValue) {
+        false
+    } catch (_: ShortCircuitException) {
+        false
+    }
+
+    override fun toString() = text
+
+    private class Parser(private val text: String, private val circuit: Circuit) {
+        private var pos = 0
+        val links = LinkedHashSet<Port.Link>()
+        val memories = LinkedHashSet<Component>()
+
+        fun parse(): Node {
+            val node = parseBinary(0)
+            skipSpaces()
+            if (pos < text.length) error("Unexpected '${text[pos]}'")
+            return node
+        }
+
+        private fun error(message: String): Nothing =
+            throw IllegalArgumentException("$message at position ${pos + 1} of \"$text\"")
+
+        private fun skipSpaces() {
+            while (pos < text.length && text[pos].isWhitespace()) pos++
+        }
+
+        private fun accept(token: String): Boolean {
+            skipSpaces()
+            if (!text.startsWith(token, pos)) return false
+            // Do not take the first character of a longer operator, such as '<' of '<<' or '&' of '&&'
+            val next = text.getOrNull(pos + token.length)
+            if (token.length == 1 && next != null && (token + next) in LONG_OPERATORS) return false
+            pos += token.length
+            return true
+        }
+
+        private fun expect(token: String) {
+            if (!accept(token)) error("Expected '$token'")
+        }
+
+        private fun parseBinary(level: Int): Node {
+            if (level == BINARY_OPERATORS.size) return parseUnary()
+
+            var left = parseBinary(level + 1)
+            while (true) {
+                val operator = BINARY_OPERATORS[level].firstOrNull { accept(it) } ?: return left
+                val right = parseBinary(level + 1)
+                left = combine(operator, left, right)
+            }
+        }
+
+        private fun combine(operator: String, a: Node, b: Node) = when (operator) {
+            "||" -> Node { if (a.eval(it) != 0L || b.eval(it) != 0L) 1L else 0L }
+            "&&" -> Node { if (a.eval(it) != 0L && b.eval(it) != 0L) 1L else 0L }
+            "|" -> Node { a.eval(it) or b.eval(it) }
+            "^" -> Node { a.eval(it) xor b.eval(it) }
+            "&" -> Node { a.eval(it) and b.eval(it) }
+            "==" -> Node { if (a.eval(it) == b.eval(it)) 1L else 0L }
+            "!=" -> Node { if (a.eval(it) != b.eval(it)) 1L else 0L }
+            "<" -> Node { if (a.eval(it) < b.eval(it)) 1L else 0L }
+            "<=" -> Node { if (a.eval(it) <= b.eval(it)) 1L else 0L }
+            ">" -> Node { if (a.eval(it) > b.eval(it)) 1L else 0L }
+            ">=" -> Node { if (a.eval(it) >= b.eval(it)) 1L else 0L }
+            "<<" -> Node { a.eval(it) shl b.eval(it).toInt() }
+            ">>" -> Node { a.eval(it) ushr b.eval(it).toInt() }
+            "+" -> Node { a.eval(it) + b.eval(it) }
+            "-" -> Node { a.eval(it) - b.eval(it) }
+            "*" -> Node { a.eval(it) * b.eval(it) }
+            "/" -> Node { b.eval(it).let { d -> if (d == 0L) throw UndefinedValue else a.eval(it) / d } }
+            "%" -> Node { b.eval(it).let { d -> if (d == 0L) throw UndefinedValue else a.eval(it) % d } }
+            else -> throw IllegalStateException(operator)
+        }
+
+        private fun parseUnary(): Node = when {
+            accept("!") -> parseUnary().let { a -> Node { if (a.eval(it) == 0L) 1L else 0L } }
+            accept("~") -> parseUnary().let { a -> Node { a.eval(it).inv() } }
+            accept("-") -> parseUnary().let { a -> Node { -a.eval(it) } }
+            else -> parsePrimary()
+        }
+
+        private fun parsePrimary(): Node {
+            skipSpaces()
+            val c = text.getOrNull(pos) ?: error("Unexpected end of expression")
+            return when {
+                accept("(") -> parseBinary(0).also { expect(")") }
+                c.isDigit() -> parseNumber()
+                c == '"' || c.isLetter() || c == '_' -> parseReference()
+                else -> error("Unexpected '$c'")
+            }
+        }
+
+        private fun parseNumber(): Node {
+            val start = pos
+            val radix = when {
+                text.startsWith("0x", pos, true) -> 16
+                text.startsWith("0b", pos, true) -> 2
+                else -> 10
+            }
+            if (radix != 10) pos += 2
+            val digitsStart = pos
+            while (pos < text.length && (text[pos].isLetterOrDigit() || text[pos] == '_')) pos++
+            val value = text.substring(digitsStart, pos).replace("_", "").toLongOrNull(radix)
+                ?: run { pos = start; error("Invalid number") }
+            return Node { value }
+        }
+
+        private fun parseName(): String {
+            if (text[pos] == '"') {
+                val end = text.indexOf('"', pos + 1)
+                if (end < 0) error("Unterminated name")
+                return text.substring(pos + 1, end).also { pos = end + 1 }
+            }
+            val start = pos
+            while (pos < text.length && (text[pos].isLetterOrDigit() || text[pos] == '_' || text[pos] == '.')) pos++
+            return text.substring(start, pos)
+        }
+
+        private fun parseReference(): Node {
+            val start = pos
+            val name = parseName()
+            val candidates = circuit.components.filter { it.name == name }
+            if (candidates.isEmpty()) {
+                pos = start
+                error("No component named \"$name\"")
+            }
+
+            if (accept("[")) {
+                val memory = candidates.firstOrNull { it is MemoryUnit } ?: run {
+                    pos = start
+                    error("\"$name\" is not a RAM or ROM")
+                }
+                val address = parseBinary(0)
+                expect("]")
+                memories.add(memory)
+                return memoryRead(memory, address)
+            }
+
+            // Every Tunnel with the same label is attached to the same net, so a single match is enough
+            val port = candidates.firstNotNullOfOrNull { if (it is Pin || it is Register) getValuePort(it) else null }
+                ?: candidates.firstNotNullOfOrNull(::getValuePort) ?: run {
+                pos = start
+                error("\"$name\" does not have a single value")
+            }
+            links.add(port.link)
+
+            val mask = (1L shl port.link.bitSize) - 1
+            return Node {
+                val value = it.getMergedValue(port.link)
+                if (!value.isValidValue) throw UndefinedValue
+                value.value.toLong() and mask
+            }
+        }
+
+        private fun memoryRead(memory: Component, address: Node): Node {
+            val unit = memory as MemoryUnit
+            val size = 1L shl unit.netAddrBits
+            val mask = (1L shl unit.dataWidth) - 1
+            return Node { state ->
+                val addr = address.eval(state)
+                if (addr < 0 || addr > Int.MAX_VALUE || unit.effective(addr.toInt()) >= size) {
+                    throw UndefinedValue
+                }
+                val value = when (memory) {
+                    is RAM -> memory.load(state, addr.toInt())
+                    is ROM -> memory.load(addr.toInt())
+                    else -> throw UndefinedValue
+                }
+                value.toLong() and mask
+            }
+        }
+    }
+
+    companion object {
+        // Ordered from the lowest to the highest precedence, longer operators first within a level
+        private val BINARY_OPERATORS = listOf(
+            listOf("||"),
+            listOf("&&"),
+            listOf("|"),
+            listOf("^"),
+            listOf("&"),
+            listOf("==", "!="),
+            listOf("<=", ">=", "<", ">"),
+            listOf("<<", ">>"),
+            listOf("+", "-"),
+            listOf("*", "/", "%"),
+        )
+
+        private val LONG_OPERATORS = setOf("||", "&&", "==", "!=", "<=", ">=", "<<", ">>")
+
+        /**
+         * Returns the Port whose net holds the value of the given component when it is named in an expression: the
+         * port of a Pin, the output of a Register or the only port of any other component. Returns null otherwise.
+         */
+        @JvmStatic
+        fun getValuePort(component: Component) = when {
+            component is Pin -> component.port
+            component is Register -> component.getPort(Register.Ports.PORT_OUT)
+            component.numPorts == 1 -> component.getPort(0)
+            else -> null
+        }
+
+        /**
+         * Compiles the expression against the components of the given Circuit.
+         *
+         * @throws IllegalArgumentException If the expression is malformed or names a component that does not exist.
+         */
+        @JvmStatic
+        fun compile(text: String, circuit: Circuit): WatchExpression {
+            val parser = Parser(text, circuit)
+            val root = circuit.simulator.runSync { parser.parse() }
+            return WatchExpression(text, root, parser.links, parser.memories)
+        }
+    }
+}
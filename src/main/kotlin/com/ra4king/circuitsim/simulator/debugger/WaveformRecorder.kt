@@ -0,0 +1,321 @@
+package com.ra4king.circuitsim.simulator.debugger
+
+import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.ShortCircuitException
+import com.ra4king.circuitsim.simulator.Simulator
+import com.ra4king.circuitsim.simulator.WireValue
+import java.io.Writer
+import java.time.LocalDateTime
+import java.util.*
+
+/**
+ * Records the history of selected nets and exports it as a Value Change Dump (VCD) that external waveform viewers can
+ * open. Time is counted in settles: it advances by one every time the simulation settles after a change, such as after
+ * every clock edge, whether or not a recorded net changed, so the signals line up with the clock. Nets that are not recorded only cost a hash lookup when they propagate, and nothing at all while the
+ * recorder is stopped.
+ *
+ * @param capacity The number of changes kept for each signal, older changes are dropped once it is full.
+ */
+class WaveformRecorder @JvmOverloads constructor(
+    private val simulator: Simulator,
+    val capacity: Int = DEFAULT_CAPACITY,
+) : Simulator.SimulationListener, AutoCloseable {
+    init {
+        require(capacity > 0) { "Capacity must be positive" }
+    }
+
+    /**
+     * The recorded changes of one net in one CircuitState, kept in a ring buffer of primitive timestamps and values.
+     * Values are encoded as the value bits in the low 32 bits and a mask of floating bits in the high 32 bits.
+     */
+    class Signal internal constructor(val name: String, val state: CircuitState, val port: Port, capacity: Int) {
+        private val times = LongArray(capacity)
+        private val values = LongArray(capacity)
+        private var start = 0
+
+        val bitSize = port.link.bitSize
+
+        var size = 0
+            private set
+
+        /**
+         * The number of changes that were dropped because the buffer was full.
+         */
+        var dropped = 0L
+            private set
+
+        internal var link: Port.Link? = null
+        internal var dirty = false
+
+        fun getTime(index: Int) = times[offset(index)]
+
+        fun getValue(index: Int) = values[offset(index)]
+
+        private fun offset(index: Int): Int {
+            if (index < 0 || index >= size) throw IndexOutOfBoundsException("Index $index, size $size")
+            return (start + index) % times.size
+        }
+
+        internal fun record(time: Long, value: Long) {
+            if (size > 0) {
+                val last = (start + size - 1) % times.size
+                if (values[last] == value) return
+                if (times[last] == time) {
+                    values[last] = value
+                    return
+                }
+            }
+
+            val index = if (size == times.size) {
+                dropped++
+                start.also { start = (start + 1) % times.size }
+            } else {
+                (start + size++) % times.size
+            }
+            times[index] = time
+            values[index] = value
+        }
+
+        internal fun clear() {
+            start = 0
+            size = 0
+            dropped = 0
+        }
+
+        override fun toString() = name
+    }
+
+    // All guarded by the Simulator lock
+    private val signals = ArrayList<Signal>()
+    private val signalsByLink = HashMap<Port.Link, MutableList<Signal>>()
+    private val dirtySignals = ArrayList<Signal>()
+    private var stepped = false
+
+    /**
+     * The current time, in number of settles since recording started.
+     */
+    var time = 0L
+        private set
+
+    var isRecording = false
+        private set
+
+    /**
+     * Records the net the given Port is attached to in the given CircuitState, starting with its current value.
+     */
+    fun addSignal(name: String, state: CircuitState, port: Port): Signal = simulator.runSync {
+        val signal = Signal(name, state, port, capacity)
+        signals.add(signal)
+        rebuildIndex()
+        signal.record(time, read(signal))
+        signal
+    }
+
+    fun removeSignal(signal: Signal) {
+        simulator.runSync {
+            if (signals.remove(signal)) {
+                dirtySignals.remove(signal)
+                rebuildIndex()
+            }
+        }
+    }
+
+    fun getSignals() = simulator.runSync { ArrayList(signals) }
+
+    fun start() {
+        simulator.runSync {
+            if (isRecording) return@runSync
+            isRecording = true
+            simulator.addSimulationListener(this)
+            // Values may have changed while stopped
+            signals.forEach { it.record(time, read(it)) }
+        }
+    }
+
+    fun stop() {
+        simulator.runSync {
+            isRecording = false
+            simulator.removeSimulationListener(this)
+        }
+    }
+
+    /**
+     * Drops all recorded changes and restarts time at 0, keeping the current value of every signal.
+     */
+    fun clear() {
+        simulator.runSync {
+            time = 0
+            signals.forEach {
+                it.clear()
+                it.record(0, read(it))
+            }
+        }
+    }
+
+    override fun close() = stop()
+
+    override fun linkPropagated(state: CircuitState, link: Port.Link) {
+        val linkSignals = signalsByLink[link] ?: return
+        for (signal in linkSignals) {
+            if (signal.state === state && !signal.dirty) {
+                signal.dirty = true
+                dirtySignals.add(signal)
+            }
+        }
+    }
+
+    override fun stepFinished(linkCount: Int) {
+        stepped = true
+    }
+
+    override fun settled() {
+        // Links are replaced when the circuit is edited, which the index would otherwise miss
+        if (signals.any { it.link !== it.port.link }) {
+            rebuildIndex()
+            signals.filter { !it.dirty }.forEach {
+                it.dirty = true
+                dirtySignals.add(it)
+            }
+        }
+
+        // Only a stepAll that had nothing to update is not a settle
+        if (stepped) time++
+        stepped = false
+        if (dirtySignals.isEmpty()) return
+
+        dirtySignals.forEach {
+            it.dirty = false
+            it.record(time, read(it))
+        }
+        dirtySignals.clear()
+    }
+
+    private fun rebuildIndex() {
+        signalsByLink.clear()
+        signals.forEach {
+            it.link = it.port.link
+            signalsByLink.getOrPut(it.port.link) { ArrayList(1) }.add(it)
+        }
+    }
+
+    /**
+     * Writes all recorded changes in the Value Change Dump format. Every CircuitState that has recorded signals is
+     * written as its own scope.
+     */
+    fun exportVcd(writer: Writer) {
+        simulator.runSync {
+            writer.write("\$date ${LocalDateTime.now()} \$end\n")
+            writer.write("\$version CircuitSim \$end\n")
+            writer.write("\$comment One time unit is one settle of the simulation \$end\n")
+            writer.write("\$timescale 1ns \$end\n")
+
+            val ids = signals.indices.map(::identifier)
+            signals.indices.groupBy { signals[it].state }.forEach { (state, indices) ->
+                writer.write("\$scope module ${sanitize(state.circuit.name)} \$end\n")
+                indices.forEach {
+                    val signal = signals[it]
+                    val range = if (signal.bitSize > 1) " [${signal.bitSize - 1}:0]" else ""
+                    writer.write("\$var wire ${signal.bitSize} ${ids[it]} ${sanitize(signal.name)}$range \$end\n")
+                }
+                writer.write("\$upscope \$end\n")
+            }
+            writer.write("\$enddefinitions \$end\n")
+
+            // Merge the changes of all signals in time order, starting at the oldest change still recorded
+            val cursors = IntArray(signals.size)
+            val queue = PriorityQueue<Int>(compareBy { signals[it].getTime(cursors[it]) })
+            signals.indices.filter { signals[it].size > 0 }.forEach { queue.add(it) }
+
+            var currentTime = queue.peek()?.let { signals[it].getTime(0) } ?: 0L
+            writer.write("#$currentTime\n\$dumpvars\n")
+            val hasInitialValue = BooleanArray(signals.size)
+            var dumpingVars = true
+            while (queue.isNotEmpty()) {
+                val index = queue.poll()
+                val signal = signals[index]
+                val changeTime = signal.getTime(cursors[index])
+                if (changeTime != currentTime) {
+                    if (dumpingVars) finishDumpVars(writer, signals, ids, hasInitialValue)
+                    dumpingVars = false
+                    currentTime = changeTime
+                    writer.write("#$currentTime\n")
+                }
+                hasInitialValue[index] = true
+                writeValue(writer, signal.bitSize, signal.getValue(cursors[index]), ids[index])
+
+                if (++cursors[index] < signal.size) queue.add(index)
+            }
+            if (dumpingVars) finishDumpVars(writer, signals, ids, hasInitialValue)
+            writer.flush()
+        }
+    }
+
+    companion object {
+        const val DEFAULT_CAPACITY = 1 shl 16
+
+        /**
+         * The encoded value of a short-circuited net, written as all unknown bits.
+         */
+        const val SHORTED = -1L
+
+        @JvmStatic
+        fun encode(value: WireValue): Long {
+            var bits = 0L
+            var floating = 0L
+            value.bits.forEachIndexed { i, bit ->
+                when (bit) {
+                    WireValue.State.ONE -> bits = bits or (1L shl i)
+                    WireValue.State.Z -> floating = floating or (1L shl i)
+                    WireValue.State.ZERO -> {}
+                }
+            }
+            return bits or (floating shl 32)
+        }
+
+        private fun read(signal: Signal) = try {
+            encode(signal.state.getMergedValue(signal.port.link))
+        } catch (_: ShortCircuitException) {
+            SHORTED
+        } catch (_: IllegalArgumentException) {
+            // The component was removed from the circuit
+            SHORTED
+        }
+
+        // Signals without a change at the first dumped time are unknown until their first recorded change
+        private fun finishDumpVars(writer: Writer, signals: List<Signal>, ids: List<String>, done: BooleanArray) {
+            signals.indices.filter { !done[it] }.forEach { writeValue(writer, signals[it].bitSize, SHORTED, ids[it]) }
+            writer.write("\$end\n")
+        }
+
+        private fun writeValue(writer: Writer, bitSize: Int, value: Long, id: String) {
+            val builder = StringBuilder(bitSize + id.length + 2)
+            if (bitSize > 1) builder.append('b')
+            for (i in bitSize - 1 downTo 0) {
+                builder.append(
+                    when {
+                        value == SHORTED -> 'x'
+                        value and (1L shl (i + 32)) != 0L -> 'z'
+                        value and (1L shl i) != 0L -> '1'
+                        else -> '0'
+                    }
+                )
+            }
+            if (bitSize > 1) builder.append(' ')
+            writer.write(builder.append(id).append('\n').toString())
+        }
+
+        // VCD identifiers use the printable ASCII characters from '!' to '~'
+        private fun identifier(index: Int): String {
+            val builder = StringBuilder()
+            var i = index
+            do {
+                builder.append('!' + i % 94)
+                i = i / 94 - 1
+            } while (i >= 0)
+            return builder.toString()
+        }
+
+        private fun sanitize(name: String) = name.ifEmpty { "unnamed" }.replace(Regex("\\s+"), "_")
+    }
+}
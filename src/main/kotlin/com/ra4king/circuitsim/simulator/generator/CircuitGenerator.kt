@@ -0,0 +1,269 @@
+package com.ra4king.circuitsim.simulator.generator
+
+import com.ra4king.circuitsim.simulator.Circuit
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.Simulator
+import com.ra4king.circuitsim.simulator.components.Subcircuit
+import com.ra4king.circuitsim.simulator.components.gates.Gate.AndGate
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate
+import com.ra4king.circuitsim.simulator.components.gates.Gate.OrGate
+import com.ra4king.circuitsim.simulator.components.gates.Gate.XnorGate
+import com.ra4king.circuitsim.simulator.components.gates.Gate.XorGate
+import com.ra4king.circuitsim.simulator.components.memory.Register
+import com.ra4king.circuitsim.simulator.components.plexers.Decoder
+import com.ra4king.circuitsim.simulator.components.plexers.Multiplexer
+import com.ra4king.circuitsim.simulator.components.wiring.Clock
+import com.ra4king.circuitsim.simulator.components.wiring.Constant
+import com.ra4king.circuitsim.simulator.components.wiring.Pin
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter
+
+/**
+ * Builds parameterized circuits out of gates, registers and subcircuits, to measure how the simulator scales with the
+ * size of a circuit. Every circuit is added to the given Simulator and is returned unsettled, so call `stepAll` before
+ * reading its outputs.
+ *
+ * Values wider than 32 bits are split into 32-bit Pins suffixed with their index, such as `A0` for bits 0 to 31 of `A`
+ * and `A1` for bits 32 to 63, so that every generated circuit can also be saved and opened in the editor.
+ */
+class CircuitGenerator(val simulator: Simulator) {
+    private var counter = 0
+
+    private fun newCircuit(name: String) = Circuit(uniqueName(name), simulator)
+
+    private fun uniqueName(name: String) = if (simulator.circuits.any { it.name == name }) "$name ${++counter}" else name
+
+    /**
+     * An N-bit ripple-carry adder made of 5 gates per bit, with inputs `A`, `B` and `Cin` and outputs `S` and `Cout`.
+     */
+    fun rippleAdder(bits: Int): Circuit {
+        require(bits > 0) { "Bit count must be positive" }
+
+        val circuit = newCircuit("Ripple adder $bits")
+        val a = inputBits(circuit, "A", bits)
+        val b = inputBits(circuit, "B", bits)
+        var carry = circuit.addComponent(Pin("Cin", 1, true)).port
+
+        val sum = (0 until bits).map {
+            val (s, c) = fullAdder(circuit, a[it], b[it], carry)
+            carry = c
+            s
+        }
+        outputBits(circuit, "S", sum)
+        circuit.addComponent(Pin("Cout", 1, false)).port.linkPort(carry)
+        return circuit
+    }
+
+    /**
+     * An M×N array multiplier: M rows of N AND gates for the partial products, summed by M - 1 rows of N full adders.
+     * The inputs are `A` (N bits) and `B` (M bits) and the output is `P` (M + N bits).
+     */
+    fun arrayMultiplier(m: Int, n: Int): Circuit {
+        require(m > 0 && n > 0) { "Operand sizes must be positive" }
+
+        val circuit = newCircuit("Array multiplier ${m}x$n")
+        val a = inputBits(circuit, "A", n)
+        val b = inputBits(circuit, "B", m)
+        val zero = circuit.addComponent(Constant("", 1, 0)).getPort(Constant.Ports.PORT)
+
+        fun partialProducts(row: Int) = a.map { bit ->
+            val and = circuit.addComponent(AndGate("", 1, 2))
+            and.getPort(0).linkPort(bit)
+            and.getPort(1).linkPort(b[row])
+            and.outPort
+        }
+
+        val product = ArrayList<Port>(m + n)
+        var accumulator = partialProducts(0)
+        var carry = zero
+        for (row in 1 until m) {
+            product.add(accumulator[0])
+            val shifted = accumulator.drop(1) + carry
+            val addend = partialProducts(row)
+
+            var rowCarry = zero
+            accumulator = (0 until n).map {
+                val (s, c) = fullAdder(circuit, shifted[it], addend[it], rowCarry)
+                rowCarry = c
+                s
+            }
+            carry = rowCarry
+        }
+        product.addAll(accumulator)
+        product.add(carry)
+
+        outputBits(circuit, "P", product)
+        return circuit
+    }
+
+    /**
+     * A register file with one write port and two read ports. The inputs are `Clock`, `WriteData`, `WriteEnable`,
+     * `WriteAddress`, `ReadAddress1` and `ReadAddress2`, and the outputs `ReadData1` and `ReadData2`.
+     *
+     * @param registers The number of registers, a power of two between 2 and 256.
+     */
+    fun registerFile(registers: Int, bitSize: Int): Circuit {
+        require(registers in 2..256 && registers and (registers - 1) == 0) {
+            "Register count must be a power of two between 2 and 256"
+        }
+        require(bitSize in 1..32) { "Bit size must be between 1 and 32" }
+
+        val circuit = newCircuit("Register file ${registers}x$bitSize")
+        val selectBits = Integer.numberOfTrailingZeros(registers)
+
+        val clock = circuit.addComponent(Clock("Clock")).getPort(Clock.PORT)
+        val writeData = circuit.addComponent(Pin("WriteData", bitSize, true)).port
+        val writeEnable = circuit.addComponent(Pin("WriteEnable", 1, true)).port
+        val decoder = circuit.addComponent(Decoder("", selectBits))
+        decoder.selectorPort.linkPort(circuit.addComponent(Pin("WriteAddress", selectBits, true)).port)
+
+        val readPorts = (1..2).map {
+            val mux = circuit.addComponent(Multiplexer("", bitSize, selectBits))
+            mux.selectorPort.linkPort(circuit.addComponent(Pin("ReadAddress$it", selectBits, true)).port)
+            mux.outPort.linkPort(circuit.addComponent(Pin("ReadData$it", bitSize, false)).port)
+            mux
+        }
+
+        for (i in 0 until registers) {
+            val register = circuit.addComponent(Register("R$i", bitSize))
+            val enable = circuit.addComponent(AndGate("", 1, 2))
+            enable.getPort(0).linkPort(decoder.getOutputPort(i))
+            enable.getPort(1).linkPort(writeEnable)
+
+            register.getPort(Register.Ports.PORT_IN).linkPort(writeData)
+            register.getPort(Register.Ports.PORT_ENABLE).linkPort(enable.outPort)
+            register.getPort(Register.Ports.PORT_CLK).linkPort(clock)
+            readPorts.forEach { it.getPort(i).linkPort(register.getPort(Register.Ports.PORT_OUT)) }
+        }
+        return circuit
+    }
+
+    /**
+     * A hierarchy of `depth + 1` circuits where the innermost one is a NOT gate between an `In` and an `Out` pin, and
+     * every other level chains `fanOut` instances of the level below it. The returned top level contains
+     * `fanOut ^ depth` NOT gates, each one in its own CircuitState.
+     */
+    fun hierarchy(depth: Int, fanOut: Int): Circuit {
+        require(depth >= 0) { "Depth must not be negative" }
+        require(fanOut > 0) { "Fan-out must be positive" }
+
+        var level = newCircuit("Hierarchy level 0")
+        val inverter = level.addComponent(NotGate("", 1))
+        inverter.getPort(0).linkPort(level.addComponent(Pin("In", 1, true)).port)
+        inverter.outPort.linkPort(level.addComponent(Pin("Out", 1, false)).port)
+
+        for (i in 1..depth) {
+            val child = level
+            val childIn = child.components.first { it is Pin && it.isInput } as Pin
+            val childOut = child.components.first { it is Pin && !it.isInput } as Pin
+
+            level = newCircuit("Hierarchy level $i")
+            var previous = level.addComponent(Pin("In", 1, true)).port
+            repeat(fanOut) {
+                val instance = level.addComponent(Subcircuit("", child))
+                instance.getPort(childIn)!!.linkPort(previous)
+                previous = instance.getPort(childOut)!!
+            }
+            level.addComponent(Pin("Out", 1, false)).port.linkPort(previous)
+        }
+        return level
+    }
+
+    /**
+     * A single bus of the given width driven by the `Bus` pin and read by `readers` NOT gates, the last of which drives
+     * the `Out` pin. Once saved, the bus is a set of `readers + 1` tunnels sharing one label.
+     */
+    fun bus(bitSize: Int, readers: Int): Circuit {
+        require(bitSize in 1..32) { "Bit size must be between 1 and 32" }
+        require(readers > 0) { "Reader count must be positive" }
+
+        val circuit = newCircuit("Bus ${bitSize}x$readers")
+        val bus = circuit.addComponent(Pin("Bus", bitSize, true)).port
+        var last: Port? = null
+        repeat(readers) {
+            val reader = circuit.addComponent(NotGate("", bitSize))
+            reader.getPort(0).linkPort(bus)
+            last = reader.outPort
+        }
+        circuit.addComponent(Pin("Out", bitSize, false)).port.linkPort(last!!)
+        return circuit
+    }
+
+    /**
+     * A ring of 1-bit registers clocked by `Clock`, where the first register is fed the XNOR of the last two. XNOR
+     * feedback moves away from the all-zero reset state, but the sequence is not necessarily of maximal length. The
+     * last register drives the `Out` pin.
+     */
+    fun lfsrRing(length: Int): Circuit {
+        require(length >= 2) { "Length must be at least 2" }
+
+        val circuit = newCircuit("LFSR $length")
+        val clock = circuit.addComponent(Clock("Clock")).getPort(Clock.PORT)
+        val registers = (0 until length).map {
+            circuit.addComponent(Register("R$it", 1)).also { register ->
+                register.getPort(Register.Ports.PORT_CLK).linkPort(clock)
+            }
+        }
+        for (i in 1 until length) {
+            registers[i].getPort(Register.Ports.PORT_IN).linkPort(registers[i - 1].getPort(Register.Ports.PORT_OUT))
+        }
+
+        val feedback = circuit.addComponent(XnorGate("", 1, 2))
+        feedback.getPort(0).linkPort(registers[length - 1].getPort(Register.Ports.PORT_OUT))
+        feedback.getPort(1).linkPort(registers[length - 2].getPort(Register.Ports.PORT_OUT))
+        registers[0].getPort(Register.Ports.PORT_IN).linkPort(feedback.outPort)
+
+        circuit.addComponent(Pin("Out", 1, false)).port.linkPort(registers[length - 1].getPort(Register.Ports.PORT_OUT))
+        return circuit
+    }
+
+    private fun fullAdder(circuit: Circuit, a: Port, b: Port, carry: Port): Pair<Port, Port> {
+        val halfSum = circuit.addComponent(XorGate("", 1, 2))
+        halfSum.getPort(0).linkPort(a)
+        halfSum.getPort(1).linkPort(b)
+
+        val sum = circuit.addComponent(XorGate("", 1, 2))
+        sum.getPort(0).linkPort(halfSum.outPort)
+        sum.getPort(1).linkPort(carry)
+
+        val generate = circuit.addComponent(AndGate("", 1, 2))
+        generate.getPort(0).linkPort(a)
+        generate.getPort(1).linkPort(b)
+
+        val propagate = circuit.addComponent(AndGate("", 1, 2))
+        propagate.getPort(0).linkPort(halfSum.outPort)
+        propagate.getPort(1).linkPort(carry)
+
+        val carryOut = circuit.addComponent(OrGate("", 1, 2))
+        carryOut.getPort(0).linkPort(generate.outPort)
+        carryOut.getPort(1).linkPort(propagate.outPort)
+
+        return Pair(sum.outPort, carryOut.outPort)
+    }
+
+    // Returns one 1-bit Port per bit of a value made of one or more input Pins of at most 32 bits each
+    private fun inputBits(circuit: Circuit, name: String, bits: Int) = pinBits(circuit, name, bits, true)
+
+    private fun outputBits(circuit: Circuit, name: String, bits: List<Port>) {
+        pinBits(circuit, name, bits.size, false).zip(bits).forEach { (pinBit, bit) -> pinBit.linkPort(bit) }
+    }
+
+    private fun pinBits(circuit: Circuit, name: String, bits: Int, isInput: Boolean): List<Port> {
+        val chunks = (bits + MAX_BITS - 1) / MAX_BITS
+        return (0 until chunks).flatMap { chunk ->
+            val width = minOf(MAX_BITS, bits - chunk * MAX_BITS)
+            val pin = circuit.addComponent(Pin(if (chunks == 1) name else "$name$chunk", width, isInput))
+            if (width == 1) {
+                listOf(pin.port)
+            } else {
+                val splitter = circuit.addComponent(Splitter("", width, width))
+                splitter.getPort(splitter.portJoined).linkPort(pin.port)
+                (0 until width).map { splitter.getPort(it) }
+            }
+        }
+    }
+
+    companion object {
+        // The widest Pin that can be edited and saved
+        const val MAX_BITS = 32
+    }
+}
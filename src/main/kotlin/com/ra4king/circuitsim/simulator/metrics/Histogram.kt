@@ -0,0 +1,61 @@
+package com.ra4king.circuitsim.simulator.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * A lock-free histogram of non-negative values with power-of-two buckets: bucket 0 counts the value 0 and bucket i
+ * counts values from 2^(i-1) to 2^i - 1. Percentiles are therefore only accurate to within a factor of two, which is
+ * plenty to tell apart a design that settles in a few steps from one that takes thousands.
+ */
+class Histogram {
+    private val buckets = AtomicLongArray(BUCKETS)
+    private val sum = AtomicLong()
+    private val max = AtomicLong()
+
+    fun record(value: Long) {
+        val v = value.coerceAtLeast(0)
+        buckets.incrementAndGet(BUCKETS - java.lang.Long.numberOfLeadingZeros(v))
+        sum.addAndGet(v)
+        max.accumulateAndGet(v, Math::max)
+    }
+
+    fun snapshot(): Snapshot {
+        val counts = LongArray(BUCKETS) { buckets.get(it) }
+        return Snapshot(counts, sum.get(), max.get())
+    }
+
+    class Snapshot internal constructor(private val counts: LongArray, val sum: Long, val max: Long) {
+        val count = counts.sum()
+
+        val mean
+            get() = if (count == 0L) 0.0 else sum.toDouble() / count
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile, from 0 to 100, capped at the maximum.
+         */
+        fun percentile(percentile: Double): Long {
+            require(percentile in 0.0..100.0) { "Percentile must be between 0 and 100" }
+            if (count == 0L) return 0
+
+            val rank = Math.ceil(count * percentile / 100).toLong().coerceAtLeast(1)
+            var seen = 0L
+            for (i in counts.indices) {
+                seen += counts[i]
+                if (seen >= rank) return if (i == 0) 0 else minOf(max, (1L shl i) - 1)
+            }
+            return max
+        }
+
+        /**
+         * Returns the values recorded since the given earlier snapshot of the same histogram. The maximum is that of the
+         * whole lifetime since it cannot be subtracted.
+         */
+        fun since(earlier: Snapshot) =
+            Snapshot(LongArray(BUCKETS) { counts[it] - earlier.counts[it] }, sum - earlier.sum, max)
+    }
+
+    companion object {
+        private const val BUCKETS = 64
+    }
+}
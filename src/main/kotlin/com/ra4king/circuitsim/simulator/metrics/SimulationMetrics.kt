@@ -0,0 +1,123 @@
+package com.ra4king.circuitsim.simulator.metrics
+
+import java.lang.management.ManagementFactory
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Live statistics of a Simulator, updated as it settles and readable from any thread without taking the Simulator
+ * lock. Compare two snapshots to get rates: a design that needs many steps per settle or keeps a deep queue is slow by
+ * itself, while a high settle latency with few steps points at the simulator.
+ *
+ * Nothing is recorded until the metrics are enabled.
+ */
+class SimulationMetrics {
+    /**
+     * Whether the Simulator records its settles. Disabled by default, so that settling does not pay for the counters
+     * and for measuring allocations when nobody reads them.
+     */
+    @Volatile
+    var isEnabled = false
+
+    private val settles = LongAdder()
+    private val steps = LongAdder()
+    private val links = LongAdder()
+    private val shortCircuits = LongAdder()
+    private val busyNanos = LongAdder()
+    private val allocatedBytes = LongAdder()
+
+    private val stepsPerSettle = Histogram()
+    private val queueDepth = Histogram()
+    private val settleNanos = Histogram()
+
+    internal fun stepStarted(queuedLinks: Int) {
+        queueDepth.record(queuedLinks.toLong())
+        links.add(queuedLinks.toLong())
+    }
+
+    internal fun settled(steps: Int, nanos: Long, allocated: Long, shortCircuited: Boolean) {
+        settles.increment()
+        this.steps.add(steps.toLong())
+        busyNanos.add(nanos)
+        if (allocated > 0) allocatedBytes.add(allocated)
+        if (shortCircuited) shortCircuits.increment()
+        stepsPerSettle.record(steps.toLong())
+        settleNanos.record(nanos)
+    }
+
+    fun snapshot() = Snapshot(
+        System.nanoTime(),
+        settles.sum(),
+        steps.sum(),
+        links.sum(),
+        shortCircuits.sum(),
+        busyNanos.sum(),
+        allocatedBytes.sum(),
+        stepsPerSettle.snapshot(),
+        queueDepth.snapshot(),
+        settleNanos.snapshot(),
+    )
+
+    /**
+     * The totals recorded while the metrics were enabled.
+     *
+     * @param settles        Calls to `stepAll` that had links to update.
+     * @param steps          Delta steps, each propagating every queued link once.
+     * @param links          Links propagated.
+     * @param busyNanos      Time spent settling.
+     * @param allocatedBytes Bytes allocated while settling, or 0 if the JVM cannot measure it.
+     * @param stepsPerSettle The distribution of delta steps needed to settle.
+     * @param queueDepth     The distribution of the number of queued links at the start of each step.
+     * @param settleNanos    The distribution of the time taken by each settle.
+     */
+    class Snapshot(
+        val timeNanos: Long,
+        val settles: Long,
+        val steps: Long,
+        val links: Long,
+        val shortCircuits: Long,
+        val busyNanos: Long,
+        val allocatedBytes: Long,
+        val stepsPerSettle: Histogram.Snapshot,
+        val queueDepth: Histogram.Snapshot,
+        val settleNanos: Histogram.Snapshot,
+    ) {
+        /**
+         * Returns what happened between the given earlier snapshot and this one. Rates are per second over that interval.
+         */
+        fun since(earlier: Snapshot) = Interval(this, earlier)
+    }
+
+    class Interval internal constructor(later: Snapshot, earlier: Snapshot) {
+        val nanos = (later.timeNanos - earlier.timeNanos).coerceAtLeast(1)
+        val settles = later.settles - earlier.settles
+        val steps = later.steps - earlier.steps
+        val links = later.links - earlier.links
+        val shortCircuits = later.shortCircuits - earlier.shortCircuits
+        val busyNanos = later.busyNanos - earlier.busyNanos
+        val allocatedBytes = later.allocatedBytes - earlier.allocatedBytes
+        val stepsPerSettle = later.stepsPerSettle.since(earlier.stepsPerSettle)
+        val queueDepth = later.queueDepth.since(earlier.queueDepth)
+        val settleNanos = later.settleNanos.since(earlier.settleNanos)
+
+        fun perSecond(count: Long) = count * 1e9 / nanos
+
+        /**
+         * The fraction of the interval spent settling, from 0 to 1 when a single thread drives the simulation.
+         */
+        val utilization
+            get() = busyNanos.toDouble() / nanos
+    }
+
+    companion object {
+        private val threadBean = ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+
+        /**
+         * Returns the bytes allocated so far by the current thread, or 0 if the JVM does not support measuring it.
+         */
+        internal fun currentThreadAllocatedBytes() = try {
+            threadBean?.takeIf { it.isThreadAllocatedMemoryEnabled }?.currentThreadAllocatedBytes ?: 0L
+        } catch (_: UnsupportedOperationException) {
+            0L
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.ra4king.circuitsim.simulator.trace
+
+import com.ra4king.circuitsim.simulator.Circuit
+import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Simulator.SimulationListener
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Counts how often each component is evaluated, both in total and over a sliding window made of `buckets` periods of
+ * `bucketNanos` each. Counts are kept per Circuit in primitive arrays indexed by `Component.slot`, so all instances of
+ * a subcircuit add up into the same counters.
+ *
+ * Add it with `Simulator.addSimulationListener`. It only counts evaluations and never asks for them to be timed.
+ * Counters are written while holding the Simulator lock but may be read without it, in which case they may be slightly
+ * out of date, which is fine for display.
+ */
+class ActivityTracker @JvmOverloads constructor(
+    val bucketNanos: Long = DEFAULT_BUCKET_NANOS,
+    val buckets: Int = DEFAULT_BUCKETS,
+) : SimulationListener {
+    init {
+        require(bucketNanos > 0) { "Bucket duration must be positive" }
+        require(buckets > 0) { "Bucket count must be positive" }
+    }
+
+    private inner class CircuitActivity {
+        var totals = LongArray(INITIAL_SLOTS)
+        val window = Array(buckets) { LongArray(INITIAL_SLOTS) }
+
+        fun increment(slot: Int) {
+            if (slot >= totals.size) grow(slot)
+            totals[slot]++
+            window[currentBucket][slot]++
+        }
+
+        fun clear(slot: Int) {
+            if (slot >= totals.size) return
+            totals[slot] = 0
+            window.forEach { it[slot] = 0 }
+        }
+
+        private fun grow(slot: Int) {
+            val size = Integer.highestOneBit(slot) shl 1
+            totals = totals.copyOf(size)
+            window.indices.forEach { window[it] = window[it].copyOf(size) }
+        }
+    }
+
+    // Concurrent since it may be read without the Simulator lock
+    private val circuits = ConcurrentHashMap<Circuit, CircuitActivity>()
+    private var lastCircuit: Circuit? = null
+    private var lastActivity: CircuitActivity? = null
+
+    @Volatile
+    private var currentBucket = 0
+    private var bucketStart = System.nanoTime()
+
+    override fun stepStarted(linkCount: Int) {
+        val now = System.nanoTime()
+        if (now - bucketStart >= bucketNanos) {
+            // Skip over as many buckets as have elapsed, clearing each one
+            val elapsed = minOf((now - bucketStart) / bucketNanos, buckets.toLong()).toInt()
+            repeat(elapsed) {
+                val next = (currentBucket + 1) % buckets
+                circuits.values.forEach { it.window[next].fill(0) }
+                currentBucket = next
+            }
+            bucketStart = now
+        }
+    }
+
+    override fun componentEvaluated(state: CircuitState, component: Component, portIndex: Int, nanos: Long) {
+        val circuit = component.circuit ?: return
+        val slot = component.slot
+        if (slot < 0) return
+
+        val activity = if (circuit === lastCircuit) lastActivity!! else {
+            circuits.getOrPut(circuit) { CircuitActivity() }.also {
+                lastCircuit = circuit
+                lastActivity = it
+            }
+        }
+        activity.increment(slot)
+    }
+
+    // The next component added to the Circuit gets the slot, and must not inherit the heat of the removed one
+    override fun slotReleased(circuit: Circuit, slot: Int) {
+        circuits[circuit]?.clear(slot)
+    }
+
+    /**
+     * Returns the number of evaluations of each component of the Circuit over the sliding window, indexed by slot. The
+     * array may be shorter than `Circuit.slotCount` if the last components were never evaluated.
+     */
+    fun getWindowCounts(circuit: Circuit): LongArray {
+        val activity = circuits[circuit] ?: return LongArray(0)
+        val counts = LongArray(activity.totals.size)
+        activity.window.forEach { bucket ->
+            for (i in 0 until minOf(counts.size, bucket.size)) counts[i] += bucket[i]
+        }
+        return counts
+    }
+
+    /**
+     * Returns the number of evaluations of each component of the Circuit since this tracker was created or reset,
+     * indexed by slot.
+     */
+    fun getTotalCounts(circuit: Circuit): LongArray = circuits[circuit]?.totals?.copyOf() ?: LongArray(0)
+
+    /**
+     * Clears all counters. Call this while holding the Simulator lock if the tracker is in use.
+     */
+    fun reset() {
+        circuits.clear()
+        lastCircuit = null
+        lastActivity = null
+    }
+
+    companion object {
+        const val DEFAULT_BUCKET_NANOS = 250_000_000L
+        const val DEFAULT_BUCKETS = 8
+
+        private const val INITIAL_SLOTS = 64
+    }
+}
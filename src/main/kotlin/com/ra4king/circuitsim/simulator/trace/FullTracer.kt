@@ -0,0 +1,41 @@
+package com.ra4king.circuitsim.simulator.trace
+
+import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.Simulator.SimulationListener
+import com.ra4king.circuitsim.simulator.WireValue
+
+/**
+ * Writes every traced event as a line of text, numbering steps from the start of the trace. Since a single settle of a
+ * large design can produce thousands of lines, this is meant for small designs or a few steps. Add it with
+ * `Simulator.addSimulationListener`.
+ */
+class FullTracer(private val out: Appendable) : SimulationListener {
+    var steps = 0L
+        private set
+
+    override fun stepStarted(linkCount: Int) {
+        out.append("step ").append(steps.toString()).append(": ").append(linkCount.toString()).append(" links\n")
+    }
+
+    override fun stepFinished(linkCount: Int) {
+        out.append("end of step ").append(steps.toString()).append('\n')
+        steps++
+    }
+
+    override fun timesEvaluations() = true
+
+    override fun linkPropagated(state: CircuitState, link: Port.Link) {
+        out.append("  propagated ").append(link.toString()).append(" in ").append(state.circuit.name).append('\n')
+    }
+
+    override fun componentEvaluated(state: CircuitState, component: Component, portIndex: Int, nanos: Long) {
+        out.append("    evaluated ").append(component.toString()).append(" port ").append(portIndex.toString())
+            .append(" in ").append(nanos.toString()).append(" ns\n")
+    }
+
+    override fun valuePushed(state: CircuitState, port: Port, value: WireValue) {
+        out.append("    pushed ").append(value.toString()).append(" from ").append(port.toString()).append('\n')
+    }
+}
@@ -0,0 +1,120 @@
+package com.ra4king.circuitsim.simulator.trace
+
+import com.ra4king.circuitsim.simulator.CircuitState
+import com.ra4king.circuitsim.simulator.Component
+import com.ra4king.circuitsim.simulator.Port
+import com.ra4king.circuitsim.simulator.Simulator.SimulationListener
+import com.ra4king.circuitsim.simulator.WireValue
+import kotlin.math.max
+
+/**
+ * Collects statistics with little overhead, for use on large designs. Steps, propagated links and pushed values are
+ * always counted, while component evaluations and per-link counts are only recorded during one out of every `interval`
+ * steps. Multiply sampled figures by `interval` to estimate the totals.
+ *
+ * Add it with `Simulator.addSimulationListener`. Like all listeners, it is updated while holding the Simulator lock, so
+ * read it while holding the lock as well or after it was removed from the Simulator.
+ */
+class SamplingTracer @JvmOverloads constructor(val interval: Int = DEFAULT_INTERVAL) : SimulationListener {
+    init {
+        require(interval > 0) { "Interval must be positive" }
+    }
+
+    class Stats {
+        var count = 0L
+            internal set
+        var nanos = 0L
+            internal set
+
+        override fun toString() = "count = $count, nanos = $nanos"
+    }
+
+    var steps = 0L
+        private set
+    var linksPropagated = 0L
+        private set
+    var valuesPushed = 0L
+        private set
+    var maxLinksPerStep = 0
+        private set
+
+    private var sampling = false
+    private val componentStats = HashMap<Component, Stats>()
+    private val linkStats = HashMap<Port.Link, Stats>()
+
+    override fun stepStarted(linkCount: Int) {
+        sampling = steps % interval == 0L
+        steps++
+        maxLinksPerStep = max(maxLinksPerStep, linkCount)
+    }
+
+    // Only sampled steps pay for timing evaluations
+    override fun timesEvaluations() = sampling
+
+    override fun stepFinished(linkCount: Int) {
+        sampling = false
+    }
+
+    override fun linkPropagated(state: CircuitState, link: Port.Link) {
+        linksPropagated++
+        if (sampling) linkStats.getOrPut(link, ::Stats).count++
+    }
+
+    override fun componentEvaluated(state: CircuitState, component: Component, portIndex: Int, nanos: Long) {
+        if (sampling) {
+            val stats = componentStats.getOrPut(component, ::Stats)
+            stats.count++
+            stats.nanos += nanos
+        }
+    }
+
+    override fun valuePushed(state: CircuitState, port: Port, value: WireValue) {
+        valuesPushed++
+    }
+
+    /**
+     * Returns the components that took the most time during sampled steps, slowest first.
+     */
+    fun getHottestComponents(limit: Int) = componentStats.entries
+        .sortedByDescending { it.value.nanos }
+        .take(limit)
+        .map { Pair(it.key, it.value) }
+
+    /**
+     * Returns the links that were propagated the most often during sampled steps, busiest first.
+     */
+    fun getBusiestLinks(limit: Int) = linkStats.entries
+        .sortedByDescending { it.value.count }
+        .take(limit)
+        .map { Pair(it.key, it.value) }
+
+    fun reset() {
+        steps = 0
+        linksPropagated = 0
+        valuesPushed = 0
+        maxLinksPerStep = 0
+        sampling = false
+        componentStats.clear()
+        linkStats.clear()
+    }
+
+    /**
+     * Returns a human-readable summary listing the given number of hottest components and busiest links.
+     */
+    @JvmOverloads
+    fun format(limit: Int = 10) = buildString {
+        append("Steps: $steps, links propagated: $linksPropagated, values pushed: $valuesPushed, ")
+        append("most links in a step: $maxLinksPerStep\n")
+        append("Sampled 1 in $interval steps\n")
+        append("Hottest components:\n")
+        getHottestComponents(limit).forEach { (component, stats) ->
+            append("  $component: ${stats.count} evaluations, ${stats.nanos} ns\n")
+        }
+        append("Busiest links:\n")
+        getBusiestLinks(limit).forEach { (link, stats) -> append("  $link: ${stats.count} propagations\n") }
+    }
+
+    companion object {
+        const val DEFAULT_INTERVAL = 64
+    }
+}
@@ -0,0 +1,71 @@
+package com.ra4king.circuitsim.simulator.trace
+
+import jdk.jfr.*
+
+/*
+ * Java Flight Recorder events of the simulator, recorded with the standard JFR tooling such as
+ * `-XX:StartFlightRecording` or `jcmd <pid> JFR.start`. When no recording is running, committing an event is a no-op
+ * that the JIT removes along with the event allocation.
+ */
+
+@Name("com.ra4king.circuitsim.Settle")
+@Label("Settle")
+@Category("CircuitSim", "Simulation")
+@Description("A call to Simulator.stepAll, propagating until no links are left to update")
+class SettleEvent : Event() {
+    @JvmField
+    @Label("Steps")
+    var steps = 0
+
+    @JvmField
+    @Label("Links Processed")
+    var links = 0L
+}
+
+@Name("com.ra4king.circuitsim.PropagateSignal")
+@Label("Propagate Signal")
+@Category("CircuitSim", "Simulation")
+@Description("One sampled call to CircuitState.propagateSignal, out of every 1024")
+class PropagateSignalEvent : Event() {
+    @JvmField
+    @Label("Circuit")
+    var circuit = ""
+
+    @JvmField
+    @Label("Ports")
+    var ports = 0
+}
+
+@Name("com.ra4king.circuitsim.ClockTick")
+@Label("Clock Tick")
+@Category("CircuitSim", "Clock")
+@Description("One edge of the running clock, disabled by default since there may be millions per second")
+@Enabled(false)
+class ClockTickEvent : Event() {
+    @JvmField
+    @Label("Target Frequency")
+    @Frequency
+    var targetHertz = 0
+
+    @JvmField
+    @Label("Lateness")
+    @Description("How long after its scheduled time the tick started, 0 when running at maximum speed")
+    @Timespan(Timespan.NANOSECONDS)
+    var lateness = 0L
+}
+
+@Name("com.ra4king.circuitsim.ClockRate")
+@Label("Clock Rate")
+@Category("CircuitSim", "Clock")
+@Description("The frequency the running clock achieved over the last second")
+class ClockRateEvent : Event() {
+    @JvmField
+    @Label("Target Frequency")
+    @Frequency
+    var targetHertz = 0
+
+    @JvmField
+    @Label("Achieved Frequency")
+    @Frequency
+    var achievedHertz = 0
+}
@@ -0,0 +1,68 @@
+package com.ra4king.circuitsim.gui.file;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.gui.CircuitBoard;
+import com.ra4king.circuitsim.gui.CircuitSim;
+import com.ra4king.circuitsim.gui.peers.wiring.PinPeer;
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.generator.CircuitGenerator;
+
+public class CircuitExporterTest {
+	private static Pin pin(CircuitBoard board, String name) {
+		return board
+			.getComponents()
+			.stream()
+			.filter(peer -> peer instanceof PinPeer)
+			.map(peer -> ((PinPeer)peer).getComponent())
+			.filter(pin -> pin.getName().equals(name))
+			.findFirst()
+			.orElseThrow();
+	}
+	
+	@Test
+	public void savedCircuitsBehaveTheSameWhenLoaded() throws Exception {
+		Simulator generatorSimulator = new Simulator();
+		CircuitGenerator generator = new CircuitGenerator(generatorSimulator);
+		Circuit adder = generator.rippleAdder(8);
+		Circuit hierarchy = generator.hierarchy(2, 3);
+		
+		File file = File.createTempFile("generated", ".sim");
+		file.deleteOnExit();
+		CircuitExporter.save(file, List.of(adder, hierarchy));
+		
+		CircuitSim sim = new CircuitSim(false);
+		sim.loadCircuits(file);
+		Simulator simulator = sim.getSimulator();
+		assertThat(sim.getCircuitBoards().keySet()).containsExactly(
+			adder.getName(),
+			"Hierarchy level 0",
+			"Hierarchy level 1",
+			hierarchy.getName());
+		
+		CircuitBoard adderBoard = sim.getCircuitBoards().get(adder.getName());
+		CircuitState state = adderBoard.getCurrentState();
+		pin(adderBoard, "A").setValue(state, WireValue.of(200, 8));
+		pin(adderBoard, "B").setValue(state, WireValue.of(100, 8));
+		pin(adderBoard, "Cin").setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		assertThat(state.getLastReceived(pin(adderBoard, "S").getPort()).getValue()).isEqualTo(301 & 0xFF);
+		assertThat(state.getLastReceived(pin(adderBoard, "Cout").getPort()).getValue()).isEqualTo(1);
+		
+		// 9 inverters in series
+		CircuitBoard top = sim.getCircuitBoards().get(hierarchy.getName());
+		state = top.getCurrentState();
+		pin(top, "In").setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		assertThat(state.getLastReceived(pin(top, "Out").getPort()).getValue()).isEqualTo(0);
+	}
+}
@@ -0,0 +1,92 @@
+package com.ra4king.circuitsim.gui.file;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.ra4king.circuitsim.gui.file.FileFormat.CircuitFile;
+
+public class FileFormatTest {
+	private static final File[] EXAMPLES = new File("examples").listFiles((dir, name) -> name.endsWith(".sim"));
+
+	private File file;
+
+	@BeforeEach
+	public void createFile() throws IOException {
+		file = File.createTempFile("circuit", ".sim");
+	}
+
+	@AfterEach
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void readMatchesParse() throws IOException {
+		assertThat(EXAMPLES).isNotEmpty();
+		for (File example : EXAMPLES) {
+			CircuitFile parsed = FileFormat.parse(Files.readString(example.toPath()));
+			CircuitFile read = FileFormat.read(example);
+			assertThat(FileFormat.stringify(read)).isEqualTo(FileFormat.stringify(parsed));
+			assertThat(read.revisionSignaturesAreValid()).isTrue();
+		}
+	}
+
+	@Test
+	public void verifiesReformattedFiles() throws IOException {
+		String contents = Files.readString(EXAMPLES[0].toPath());
+		Files.writeString(file.toPath(), new GsonBuilder().create().toJson(JsonParser.parseString(contents)));
+		assertThat(FileFormat.read(file).revisionSignaturesAreValid()).isTrue();
+
+		Files.writeString(file.toPath(), contents.replaceFirst("\"x\": ", "\"x\": 1"));
+		assertThat(FileFormat.read(file).revisionSignaturesAreValid()).isFalse();
+	}
+
+	@Test
+	public void rejectsTamperedDuplicateCircuits() throws IOException {
+		String contents = Files.readString(EXAMPLES[0].toPath());
+		String tampered = JsonParser.parseString(contents).getAsJsonObject().get("circuits").toString()
+			.replaceFirst("\"x\":", "\"x\":1");
+		String end = contents.substring(contents.lastIndexOf('}'));
+
+		// The parser binds the last value of a repeated key, while the bytes of the first one match the signature
+		for (String key : new String[] { "circuits", "circ\\u0075its" }) {
+			String duplicated = contents.substring(0, contents.lastIndexOf('}')).stripTrailing() + ",\n  \"" + key +
+				"\": " + tampered + "\n" + end;
+			Files.writeString(file.toPath(), duplicated);
+			assertThat(FileFormat.read(file).revisionSignaturesAreValid()).isFalse();
+		}
+	}
+
+	@Test
+	public void rejectsLenientSyntax() throws IOException {
+		String contents = Files.readString(EXAMPLES[0].toPath());
+		String key = "\"version\": ";
+		String version = contents.substring(contents.indexOf(key) + key.length(), contents.indexOf(','));
+
+		// The hash follows strict JSON, quotes and braces hidden in a comment or single-quoted string would desync it
+		for (String tampered : new String[] {
+			"'" + version.replace("\"", "") + "'",
+			"/* \"circuits\": [ { */ " + version,
+			"// \"\n" + version,
+			"# {\n" + version,
+		}) {
+			Files.writeString(file.toPath(), contents.replace(key + version, key + tampered));
+			assertThrows(IOException.class, () -> FileFormat.read(file));
+		}
+	}
+
+	@Test
+	public void emptyFileHasNoContents() throws IOException {
+		assertThat(FileFormat.read(file)).isNull();
+	}
+}
@@ -1,9 +1,12 @@
 package com.ra4king.circuitsim.integrated;
 
+import static com.google.common.truth.Truth.assertThat;
+
 import kotlin.Unit;
 import org.junit.jupiter.api.Test;
 
 import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
 import com.ra4king.circuitsim.simulator.Simulator;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
@@ -51,4 +54,74 @@ public class ClockTest {
         });
 		Clock.startClock(simulator, 1000000);
 	}
+	
+	@Test
+	public void testRunCycles() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Counter Test", simulator);
+		
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+		Register register = circuit.addComponent(new Register("Register", 32));
+		Adder adder = circuit.addComponent(new Adder("Adder", 32));
+		Pin din = circuit.addComponent(new Pin("Din", 32, true));
+		Pin cin = circuit.addComponent(new Pin("Cin", 1, true));
+		Pin out = circuit.addComponent(new Pin("Out", 32, false));
+		
+		register.getPort(Register.Ports.PORT_IN).linkPort(adder.getPort(Adder.Ports.PORT_OUT));
+		register.getPort(Register.Ports.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+		adder.getPort(Adder.Ports.PORT_A).linkPort(register.getPort(Register.Ports.PORT_OUT)).linkPort(out.getPort(Pin.Ports.PORT));
+		adder.getPort(Adder.Ports.PORT_B).linkPort(din.getPort(Pin.Ports.PORT));
+		adder.getPort(Adder.Ports.PORT_CARRY_IN).linkPort(cin.getPort(Pin.Ports.PORT));
+		
+		CircuitState state = circuit.getTopLevelState();
+		din.setValue(state, WireValue.of(1, 32));
+		cin.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+		
+		Clock.RunResult result = Clock.runCycles(simulator, 10);
+		assertThat(result.getCycles()).isEqualTo(10L);
+		assertThat(result.getConditionMet()).isFalse();
+		assertThat(state.getLastReceived(out.getPort()).getValue()).isEqualTo(10);
+		
+		result = Clock.runUntil(simulator, 100, () -> state.getLastReceived(out.getPort()).getValue() == 25);
+		assertThat(result.getCycles()).isEqualTo(15L);
+		assertThat(result.getConditionMet()).isTrue();
+		
+		result = Clock.runUntil(simulator, 5, () -> false);
+		assertThat(result.getCycles()).isEqualTo(5L);
+		assertThat(state.getLastReceived(out.getPort()).getValue()).isEqualTo(30);
+	}
+	
+	@Test
+	public void testClockDomains() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Domain Test", simulator);
+		
+		Clock.Domain slow = new Clock.Domain("slow", 2, 1);
+		Clock main = circuit.addComponent(new Clock("Main"));
+		Clock divided = circuit.addComponent(new Clock("Slow", slow));
+		Pin mainOut = circuit.addComponent(new Pin("Main out", 1, false));
+		Pin slowOut = circuit.addComponent(new Pin("Slow out", 1, false));
+		main.getPort(Clock.PORT).linkPort(mainOut.getPort());
+		divided.getPort(Clock.PORT).linkPort(slowOut.getPort());
+		
+		CircuitState state = circuit.getTopLevelState();
+		StringBuilder mainWave = new StringBuilder();
+		StringBuilder slowWave = new StringBuilder();
+		for (int i = 0; i < 8; i++) {
+			Clock.tick(simulator);
+			simulator.stepAll();
+			mainWave.append(state.getLastReceived(mainOut.getPort()).getValue());
+			slowWave.append(state.getLastReceived(slowOut.getPort()).getValue());
+		}
+		
+		assertThat(mainWave.toString()).isEqualTo("10101010");
+		assertThat(slowWave.toString()).isEqualTo("00110011");
+		assertThat(Clock.getTickState(simulator, slow)).isTrue();
+		
+		Clock.reset(simulator);
+		simulator.stepAll();
+		assertThat(state.getLastReceived(slowOut.getPort()).getValue()).isEqualTo(0);
+		assertThat(Clock.getTickState(simulator)).isFalse();
+	}
 }
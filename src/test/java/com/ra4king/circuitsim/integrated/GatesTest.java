@@ -4,11 +4,14 @@ import static com.google.common.truth.Truth.assertThat;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
 import com.ra4king.circuitsim.simulator.Circuit;
 import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.CircuitState.SettleResult;
+import com.ra4king.circuitsim.simulator.Port;
 import com.ra4king.circuitsim.simulator.Simulator;
 import com.ra4king.circuitsim.simulator.WireValue;
 import com.ra4king.circuitsim.simulator.components.gates.Gate.AndGate;
@@ -62,4 +65,33 @@ public class GatesTest {
 		assertThat(state.getLastReceived(out.getPort())).isEqualTo(new WireValue(1).set(1));
 		assertThat(valueChanges).containsExactly(new WireValue(1).set(1));
 	}
+	
+	@Test
+	public void testAndGateBatched() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Gate Test", simulator);
+		
+		AndGate andGate = circuit.addComponent(new AndGate("", 1, 2));
+		Pin in1 = circuit.addComponent(new Pin("A", 1, true));
+		Pin in2 = circuit.addComponent(new Pin("B", 1, true));
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+		
+		andGate.getPort(0).linkPort(in1.getPort());
+		andGate.getPort(1).linkPort(in2.getPort());
+		andGate.getOutPort().linkPort(out.getPort());
+		
+		CircuitState state = circuit.getTopLevelState();
+		List<Port> outputs = List.of(out.getPort());
+		
+		SettleResult result = state.apply(Map.of(in1.getPort(), new WireValue(1).set(1),
+		                                         in2.getPort(), new WireValue(1).set(1)), outputs);
+		assertThat(result.get(out.getPort())).isEqualTo(new WireValue(1).set(1));
+		
+		WireValue buffer = result.get(0);
+		SettleResult reused = state.apply(Map.of(in2.getPort(), new WireValue(1).set(0)), outputs, result);
+		assertThat(reused).isSameInstanceAs(result);
+		assertThat(reused.get(0)).isSameInstanceAs(buffer);
+		assertThat(reused.get(0)).isEqualTo(new WireValue(1).set(0));
+		assertThat(simulator.hasLinksToUpdate()).isFalse();
+	}
 }
@@ -0,0 +1,108 @@
+package com.ra4king.circuitsim.integrated;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.arithmetic.RandomGenerator;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class RandomGeneratorTest {
+	private static List<Integer> sample(Simulator simulator, int count) {
+		Circuit circuit = new Circuit("Random Test", simulator);
+
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+		RandomGenerator random = circuit.addComponent(new RandomGenerator("Random", 32));
+		Pin out = circuit.addComponent(new Pin("Out", 32, false));
+
+		random.getPort(RandomGenerator.Ports.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+		random.getPort(RandomGenerator.Ports.PORT_OUT).linkPort(out.getPort());
+		simulator.stepAll();
+
+		CircuitState state = circuit.getTopLevelState();
+		List<Integer> values = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Clock.runCycles(simulator, 1);
+			values.add(state.getLastReceived(out.getPort()).getValue());
+		}
+		return values;
+	}
+
+	private static List<Pin> addGenerators(Simulator simulator, int generators) {
+		Circuit circuit = new Circuit("Random Test", simulator);
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+
+		List<Pin> outs = new ArrayList<>();
+		for (int i = 0; i < generators; i++) {
+			RandomGenerator random = circuit.addComponent(new RandomGenerator("Random " + i, 32));
+			Pin out = circuit.addComponent(new Pin("Out " + i, 32, false));
+			random.getPort(RandomGenerator.Ports.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+			random.getPort(RandomGenerator.Ports.PORT_OUT).linkPort(out.getPort());
+			outs.add(out);
+		}
+		simulator.stepAll();
+		return outs;
+	}
+
+	private static List<List<Integer>> sampleEach(Simulator simulator, List<Pin> outs, int count) {
+		List<List<Integer>> values = new ArrayList<>();
+		outs.forEach(out -> values.add(new ArrayList<>()));
+		for (int i = 0; i < count; i++) {
+			Clock.runCycles(simulator, 1);
+			for (int j = 0; j < outs.size(); j++) {
+				CircuitState state = outs.get(j).getCircuit().getTopLevelState();
+				values.get(j).add(state.getLastReceived(outs.get(j).getPort()).getValue());
+			}
+		}
+		return values;
+	}
+
+	@Test
+	public void sameSeedIsReproducible() {
+		Simulator first = new Simulator();
+		first.setSeed(1234L);
+		Simulator second = new Simulator();
+		second.setSeed(1234L);
+
+		List<Integer> values = sample(first, 20);
+		assertThat(sample(second, 20)).containsExactlyElementsIn(values).inOrder();
+		assertThat(values.stream().distinct().count()).isGreaterThan(1L);
+	}
+
+	@Test
+	public void differentSeedsDiffer() {
+		Simulator first = new Simulator();
+		first.setSeed(1L);
+		Simulator second = new Simulator();
+		second.setSeed(2L);
+
+		assertThat(sample(first, 20)).isNotEqualTo(sample(second, 20));
+	}
+
+	@Test
+	public void eachGeneratorIsReproducible() {
+		Simulator first = new Simulator();
+		first.setSeed(1234L);
+		List<Pin> firstOuts = addGenerators(first, 2);
+		Simulator second = new Simulator();
+		second.setSeed(1234L);
+		List<Pin> secondOuts = addGenerators(second, 2);
+
+		List<List<Integer>> values = sampleEach(first, firstOuts, 20);
+		assertThat(sampleEach(second, secondOuts, 20)).containsExactlyElementsIn(values).inOrder();
+		assertThat(values.get(0)).isNotEqualTo(values.get(1));
+
+		// Resetting hands the streams out again, and every generator must get its own stream back
+		first.reset();
+		second.reset();
+		assertThat(sampleEach(first, firstOuts, 20)).containsExactlyElementsIn(values).inOrder();
+		assertThat(sampleEach(second, secondOuts, 20)).containsExactlyElementsIn(values).inOrder();
+	}
+}
@@ -8,6 +8,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -36,6 +38,20 @@ public class SimulatorTest {
 		assertThat(simulator.getCircuits()).isEmpty();
 	}
 	
+	@Test
+	public void testContextIsClosedWithSimulator() throws Exception {
+		AtomicInteger closeCount = new AtomicInteger();
+		AutoCloseable context = simulator.getContext(SimulatorTest.class, s -> closeCount::incrementAndGet);
+		assertThat(simulator.getContext(SimulatorTest.class, s -> (AutoCloseable) () -> {})).isSameInstanceAs(context);
+		
+		simulator.addCircuit(circuit);
+		simulator.close();
+		assertThat(closeCount.get()).isEqualTo(1);
+		assertThat(simulator.getCircuits()).isEmpty();
+		
+		assertThat(simulator.getContext(SimulatorTest.class, s -> (AutoCloseable) () -> {})).isNotEqualTo(context);
+	}
+	
 	@Test
 	public void testValueChangedAndStep() {
 		CircuitState state = mockCircuitState();
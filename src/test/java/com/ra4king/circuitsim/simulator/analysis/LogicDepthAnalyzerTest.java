@@ -0,0 +1,137 @@
+package com.ra4king.circuitsim.simulator.analysis;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.components.Subcircuit;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.AndGate;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+import com.ra4king.circuitsim.simulator.components.wiring.Splitter;
+
+public class LogicDepthAnalyzerTest {
+	@Test
+	public void gateChain() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Chain", simulator);
+
+		Pin a = circuit.addComponent(new Pin("A", 1, true));
+		Pin b = circuit.addComponent(new Pin("B", 1, true));
+		AndGate and = circuit.addComponent(new AndGate("", 1, 2));
+		NotGate not = circuit.addComponent(new NotGate("", 1));
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+
+		and.getPort(0).linkPort(a.getPort());
+		and.getPort(1).linkPort(b.getPort());
+		and.getOutPort().linkPort(not.getPort(0));
+		not.getOutPort().linkPort(out.getPort());
+
+		LogicDepthAnalyzer.Report report = new LogicDepthAnalyzer().analyze(circuit);
+		assertThat(report.getMaxDepth()).isEqualTo(2);
+		assertThat(report.getDepths().get(and.getOutPort().getLink())).isEqualTo(1);
+		assertThat(report.getPaths().get(0).getEnd().getComponent()).isSameInstanceAs(out);
+		assertThat(report.getPaths().get(0).getEdges()).hasSize(2);
+	}
+
+	@Test
+	public void registerBreaksFeedbackLoop() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Counter", simulator);
+
+		Register register = circuit.addComponent(new Register("", 1));
+		NotGate not = circuit.addComponent(new NotGate("", 1));
+
+		register.getPort(Register.Ports.PORT_OUT).linkPort(not.getPort(0));
+		not.getOutPort().linkPort(register.getPort(Register.Ports.PORT_IN));
+
+		LogicDepthAnalyzer.Report report = new LogicDepthAnalyzer().analyze(circuit);
+		assertThat(report.getMaxDepth()).isEqualTo(1);
+		assertThat(report.getPaths().get(0).getStart().getComponent()).isSameInstanceAs(register);
+		assertThat(report.getPaths().get(0).getEnd().getComponent()).isSameInstanceAs(register);
+	}
+
+	@Test
+	public void pathsGoThroughSplitters() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Split", simulator);
+
+		// Added from the end of the path, so the nets after the splitter come first
+		Pin out = circuit.addComponent(new Pin("Out", 2, false));
+		NotGate after = circuit.addComponent(new NotGate("", 2));
+		Register register = circuit.addComponent(new Register("", 2));
+		Splitter splitter = circuit.addComponent(new Splitter("", 4, 2));
+		NotGate before = circuit.addComponent(new NotGate("", 4));
+		Pin in = circuit.addComponent(new Pin("In", 4, true));
+
+		in.getPort().linkPort(before.getPort(0));
+		before.getOutPort().linkPort(splitter.getPort(splitter.getPortJoined()));
+		splitter.getPort(0).linkPort(after.getPort(0));
+		after.getOutPort().linkPort(out.getPort());
+		splitter.getPort(1).linkPort(register.getPort(Register.Ports.PORT_IN));
+
+		LogicDepthAnalyzer.Report report = new LogicDepthAnalyzer().analyze(circuit);
+		assertThat(report.getMaxDepth()).isEqualTo(2);
+		assertThat(report.getDepths().get(splitter.getPort(1).getLink())).isEqualTo(1);
+		LogicDepthAnalyzer.TimingPath path = report.getPaths().get(0);
+		assertThat(path.getStart().getComponent()).isSameInstanceAs(in);
+		assertThat(path.getEnd().getComponent()).isSameInstanceAs(out);
+		assertThat(path.getEdges()).hasSize(2);
+		assertThat(path.getEdges().get(1).getFrom()).isSameInstanceAs(splitter.getPort(0).getLink());
+	}
+
+	@Test
+	public void pathsGoThroughConnectors() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Tunnel", simulator);
+
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+		NotGate after = circuit.addComponent(new NotGate("", 1));
+		NotGate before = circuit.addComponent(new NotGate("", 1));
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+
+		in.getPort().linkPort(before.getPort(0));
+		after.getOutPort().linkPort(out.getPort());
+
+		// The output of the first gate reaches the second one only through the connector, like a pair of tunnels
+		LogicDepthAnalyzer analyzer = new LogicDepthAnalyzer(LogicDepthAnalyzer.DEFAULT_WEIGHTS,
+			c -> List.of(List.of(before.getOutPort(), after.getPort(0))));
+		LogicDepthAnalyzer.Report report = analyzer.analyze(circuit);
+		assertThat(report.getMaxDepth()).isEqualTo(2);
+		assertThat(report.getPaths().get(0).getStart().getComponent()).isSameInstanceAs(in);
+		assertThat(report.getDepths().get(after.getPort(0).getLink())).isEqualTo(1);
+	}
+
+	@Test
+	public void subcircuitSummaryIsInvalidatedOnChange() {
+		Simulator simulator = new Simulator();
+		Circuit inner = new Circuit("Inner", simulator);
+		Pin in = inner.addComponent(new Pin("In", 1, true));
+		NotGate not1 = inner.addComponent(new NotGate("", 1));
+		Pin innerOut = inner.addComponent(new Pin("Out", 1, false));
+		in.getPort().linkPort(not1.getPort(0));
+		not1.getOutPort().linkPort(innerOut.getPort());
+
+		Circuit outer = new Circuit("Outer", simulator);
+		Pin a = outer.addComponent(new Pin("A", 1, true));
+		Subcircuit subcircuit = outer.addComponent(new Subcircuit("", inner));
+		Pin out = outer.addComponent(new Pin("Out", 1, false));
+		a.getPort().linkPort(subcircuit.getPort(in));
+		subcircuit.getPort(innerOut).linkPort(out.getPort());
+
+		LogicDepthAnalyzer analyzer = new LogicDepthAnalyzer();
+		assertThat(analyzer.analyze(outer).getMaxDepth()).isEqualTo(1);
+
+		NotGate not2 = inner.addComponent(new NotGate("", 1));
+		not1.getOutPort().getLink().unlinkPort(innerOut.getPort());
+		not1.getOutPort().linkPort(not2.getPort(0));
+		not2.getOutPort().linkPort(innerOut.getPort());
+
+		assertThat(analyzer.analyze(outer).getMaxDepth()).isEqualTo(2);
+	}
+}
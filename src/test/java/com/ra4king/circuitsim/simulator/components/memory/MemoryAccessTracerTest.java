@@ -0,0 +1,60 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.components.memory.MemoryAccessTracer.Access;
+import com.ra4king.circuitsim.simulator.components.memory.MemoryAccessTracer.PageCount;
+
+public class MemoryAccessTracerTest {
+	@Test
+	public void keepsRecentAccesses() {
+		MemoryAccessTracer tracer = new MemoryAccessTracer(1024, 4, 4);
+		assertThat(tracer.recentAccesses()).isEmpty();
+
+		tracer.recordLoad(1, 10);
+		tracer.recordStore(2, 20);
+		assertThat(tracer.recentAccesses()).containsExactly(
+			new Access(0, 1, false, 10), new Access(1, 2, true, 20)).inOrder();
+
+		for (int i = 0; i < 5; i++) {
+			tracer.recordLoad(100 + i, i);
+		}
+		assertThat(tracer.getAccessCount()).isEqualTo(7);
+		assertThat(tracer.recentAccesses()).containsExactly(
+			new Access(3, 101, false, 1), new Access(4, 102, false, 2), new Access(5, 103, false, 3),
+			new Access(6, 104, false, 4)).inOrder();
+		assertThat(tracer.recentAccesses(2)).containsExactly(
+			new Access(5, 103, false, 3), new Access(6, 104, false, 4)).inOrder();
+
+		int[] entries = new int[8];
+		assertThat(tracer.copyRecentEntries(entries)).isEqualTo(4);
+		assertThat(entries).isEqualTo(new int[] { 101, 102, 103, 104, 0, 0, 0, 0 });
+		tracer.recordStore(5, 50);
+		assertThat(tracer.copyRecentEntries(entries)).isEqualTo(4);
+		assertThat(entries).isEqualTo(new int[] { 102, 103, 104, 5 | Integer.MIN_VALUE, 0, 0, 0, 0 });
+
+		tracer.reset();
+		assertThat(tracer.getAccessCount()).isEqualTo(0);
+		assertThat(tracer.recentAccesses()).isEmpty();
+		assertThat(tracer.copyRecentEntries(entries)).isEqualTo(0);
+	}
+
+	@Test
+	public void countsHotPages() {
+		MemoryAccessTracer tracer = new MemoryAccessTracer(1000, 16, 8);
+		for (int i = 0; i < 10; i++) {
+			tracer.recordStore(999 - i, i);
+		}
+		for (int i = 0; i < 3; i++) {
+			tracer.recordLoad(i, 0);
+		}
+		tracer.recordLoad(300, 0);
+
+		assertThat(tracer.getPageLoads()).isEqualTo(new long[] { 3, 1, 0, 0 });
+		assertThat(tracer.getPageStores()).isEqualTo(new long[] { 0, 0, 0, 10 });
+		assertThat(tracer.hotPages(2)).containsExactly(
+			new PageCount(768, 1000, 0, 10), new PageCount(0, 256, 3, 0)).inOrder();
+	}
+}
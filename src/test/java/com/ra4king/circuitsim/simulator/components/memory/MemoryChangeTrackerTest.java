@@ -0,0 +1,57 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import kotlin.ranges.IntRange;
+
+public class MemoryChangeTrackerTest {
+	static List<IntRange> drain(MemoryChangeTracker tracker) {
+		List<IntRange> ranges = new ArrayList<>();
+		tracker.drain(range -> {
+			ranges.add(range);
+			return null;
+		});
+		return ranges;
+	}
+
+	@Test
+	public void coalescesMarkedWords() {
+		MemoryChangeTracker tracker = new MemoryChangeTracker(1000);
+		assertThat(tracker.isDirty()).isFalse();
+		assertThat(drain(tracker)).isEmpty();
+
+		tracker.mark(5);
+		tracker.mark(3);
+		tracker.mark(4);
+		tracker.mark(63);
+		tracker.mark(64);
+		tracker.mark(65);
+		tracker.mark(999);
+		assertThat(tracker.isDirty()).isTrue();
+		assertThat(drain(tracker)).containsExactly(
+			new IntRange(3, 5), new IntRange(63, 65), new IntRange(999, 999)).inOrder();
+
+		assertThat(tracker.isDirty()).isFalse();
+		assertThat(drain(tracker)).isEmpty();
+	}
+
+	@Test
+	public void marksRanges() {
+		MemoryChangeTracker tracker = new MemoryChangeTracker(1000);
+		tracker.mark(10, 200);
+		tracker.mark(200, 256);
+		tracker.mark(300, 300);
+		tracker.mark(500, 501);
+		tracker.mark(640, 1000);
+		assertThat(drain(tracker)).containsExactly(
+			new IntRange(10, 255), new IntRange(500, 500), new IntRange(640, 999)).inOrder();
+
+		tracker.mark(0, 1000);
+		assertThat(drain(tracker)).containsExactly(new IntRange(0, 999));
+	}
+}
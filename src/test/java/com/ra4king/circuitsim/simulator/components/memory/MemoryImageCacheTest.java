@@ -0,0 +1,73 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+
+public class MemoryImageCacheTest {
+	private File file;
+
+	@BeforeEach
+	public void createFile() throws IOException {
+		file = File.createTempFile("image", ".dat");
+	}
+
+	@AfterEach
+	public void deleteFile() {
+		file.delete();
+		MemoryImageCache.clear();
+	}
+
+	@Test
+	public void copiesAreIndependent() throws IOException {
+		Files.writeString(file.toPath(), "1 2 3 4-f 0");
+
+		PagedMemory first = MemoryImageCache.load(file, 8, 8);
+		assertThat(first).isNotNull();
+		assertThat(first.getSize()).isEqualTo(256);
+		assertThat(first.toIntArray()[2]).isEqualTo(3);
+		assertThat(first.toIntArray()[6]).isEqualTo(0xf);
+		assertThat(first.toIntArray()[7]).isEqualTo(0);
+
+		first.set(0, 42);
+		PagedMemory second = MemoryImageCache.load(file, 8, 8);
+		assertThat(second.get(0)).isEqualTo(1);
+	}
+
+	@Test
+	public void reloadsChangedFiles() throws IOException {
+		Files.writeString(file.toPath(), "1");
+		assertThat(MemoryImageCache.load(file, 4, 8).get(0)).isEqualTo(1);
+
+		Files.writeString(file.toPath(), "22");
+		file.setLastModified(file.lastModified() + 2000);
+		assertThat(MemoryImageCache.load(file, 4, 8).get(0)).isEqualTo(0x22);
+	}
+
+	@Test
+	public void ramStatesShareTheImage() throws IOException {
+		Files.writeString(file.toPath(), "10 20 30");
+
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Memory", simulator);
+		RAM ram = circuit.addComponent(new RAM("MEM", 16, 8, Addressability.WORD, false, file));
+		CircuitState state = circuit.getTopLevelState();
+		assertThat(ram.load(state, 1)).isEqualTo(0x20);
+
+		ram.store(state, 1, 0x55);
+		Circuit other = new Circuit("Other", simulator);
+		RAM otherRam = other.addComponent(new RAM("MEM", 16, 8, Addressability.WORD, false, file));
+		assertThat(otherRam.load(other.getTopLevelState(), 1)).isEqualTo(0x20);
+		assertThat(otherRam.getMemory(other.getTopLevelState()).getAllocatedPages()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,77 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.SimulationException;
+import com.ra4king.circuitsim.simulator.components.memory.MemoryImageLoader.Format;
+
+public class MemoryImageLoaderTest {
+	private static int[] parse(String contents, Format format, int size, int dataBits) {
+		byte[] bytes = contents.getBytes(StandardCharsets.ISO_8859_1);
+		return MemoryImageLoader.parse(new ByteArrayInputStream(bytes), format, size, dataBits);
+	}
+
+	@Test
+	public void text() {
+		assertThat(MemoryImageLoader.parseText("1 a\n\tFF 3-7 0-5 ffffffff", 16))
+			.isEqualTo(new int[] { 1, 0xa, 0xff, 7, 7, 7, -1 });
+		assertThat(MemoryImageLoader.parseText("100-1", 4)).isEqualTo(new int[] { 1, 1, 1, 1 });
+		assertThat(MemoryImageLoader.parseText("  ", 4)).isEqualTo(new int[0]);
+
+		assertThrows(SimulationException.class, () -> MemoryImageLoader.parseText("1 xyz", 4));
+		assertThrows(SimulationException.class, () -> MemoryImageLoader.parseText("a-1", 4));
+		assertThrows(SimulationException.class, () -> MemoryImageLoader.parseText("100000000", 4));
+	}
+
+	@Test
+	public void logisim() {
+		String image = "v2.0 raw\n# comment\n1 2 3*4 # trailing\n5\n";
+		assertThat(parse(image, Format.TEXT, 16, 8)).isEqualTo(new int[] { 1, 2, 4, 4, 4, 5 });
+	}
+
+	@Test
+	public void intelHex() {
+		String image = ":0400000012345678E8\n"
+			+ ":020000040000FA\n"
+			+ ":02000600ABCD80\n"
+			+ ":00000001FF\n";
+		assertThat(parse(image, Format.INTEL_HEX, 16, 16)).isEqualTo(new int[] { 0x1234, 0x5678, 0, 0xABCD });
+
+		assertThrows(SimulationException.class, () -> parse(":0400000012345678E9\n", Format.INTEL_HEX, 16, 16));
+	}
+
+	@Test
+	public void binary() {
+		String image = "\u0001\u0002\u0003\u0004\u0005";
+		assertThat(parse(image, Format.BINARY, 16, 16)).isEqualTo(new int[] { 0x0102, 0x0304, 0x0500 });
+		assertThat(parse(image, Format.BINARY, 2, 8)).isEqualTo(new int[] { 1, 2 });
+	}
+
+	@Test
+	public void detectsFormat() throws IOException {
+		File text = File.createTempFile("image", ".dat");
+		File hex = File.createTempFile("image", ".hex");
+		File bin = File.createTempFile("image", ".bin");
+		try {
+			Files.writeString(text.toPath(), "v2.0 raw\n1 2");
+			Files.writeString(hex.toPath(), "\n:00000001FF\n");
+			Files.writeString(bin.toPath(), ":");
+			assertThat(MemoryImageLoader.detect(text)).isEqualTo(Format.TEXT);
+			assertThat(MemoryImageLoader.detect(hex)).isEqualTo(Format.INTEL_HEX);
+			assertThat(MemoryImageLoader.detect(bin)).isEqualTo(Format.BINARY);
+		} finally {
+			text.delete();
+			hex.delete();
+			bin.delete();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+
+public class MemorySnapshotFileTest {
+	private File file;
+
+	@BeforeEach
+	public void createFile() throws IOException {
+		file = File.createTempFile("memory", ".ram");
+	}
+
+	@AfterEach
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Test
+	public void roundTrips() throws IOException {
+		PagedMemory large = new PagedMemory(1 << 20);
+		large.set(0, 1);
+		large.set(123456, 0xDEADBEEF);
+		large.fill(500000, 500000 + 3000, 7);
+		PagedMemory small = PagedMemory.of(16, new int[] { 1, 2, 3 });
+
+		MemorySnapshotFile.write(file.toPath(), List.of(
+			new MemorySnapshotFile.Entry("large", 32, large), new MemorySnapshotFile.Entry("small", 8, small)));
+		// Only the five allocated pages are written
+		assertThat(file.length()).isLessThan(1024L);
+
+		List<MemorySnapshotFile.Entry> entries = MemorySnapshotFile.read(file.toPath());
+		assertThat(entries).hasSize(2);
+		assertThat(entries.get(0).getKey()).isEqualTo("large");
+		assertThat(entries.get(0).getDataBits()).isEqualTo(32);
+		assertThat(entries.get(0).getMemory().toIntArray()).isEqualTo(large.toIntArray());
+		assertThat(entries.get(0).getMemory().getAllocatedPages()).isEqualTo(large.getAllocatedPages());
+		assertThat(entries.get(1).getKey()).isEqualTo("small");
+		assertThat(entries.get(1).getMemory().toIntArray()).isEqualTo(small.toIntArray());
+	}
+
+	@Test
+	public void rejectsOtherFiles() throws IOException {
+		Files.writeString(file.toPath(), "1 2 3 4");
+		assertThrows(IOException.class, () -> MemorySnapshotFile.read(file.toPath()));
+	}
+
+	@Test
+	public void restoresRam() throws IOException {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Memory", simulator);
+		RAM ram = circuit.addComponent(new RAM("MEM", 12, 16, Addressability.WORD, false, null));
+		CircuitState state = circuit.getTopLevelState();
+		ram.fill(state, 100, 200, 0x1234);
+
+		MemorySnapshotFile.write(file.toPath(), List.of(new MemorySnapshotFile.Entry("MEM", 16, ram.getMemory(state))));
+		ram.clear(state);
+		assertThat(ram.load(state, 150)).isEqualTo(0);
+
+		ram.replaceMemory(state, MemorySnapshotFile.read(file.toPath()).get(0).getMemory());
+		assertThat(ram.load(state, 99)).isEqualTo(0);
+		assertThat(ram.load(state, 150)).isEqualTo(0x1234);
+	}
+}
@@ -0,0 +1,92 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class PagedMemoryTest {
+	@Test
+	public void allocatesPagesOnWrite() {
+		PagedMemory memory = new PagedMemory(1 << 20);
+		assertThat(memory.getAllocatedPages()).isEqualTo(0);
+		assertThat(memory.get(12345)).isEqualTo(0);
+
+		memory.set(5, 0);
+		assertThat(memory.getAllocatedPages()).isEqualTo(0);
+
+		memory.set(5, 42);
+		memory.set(6, 43);
+		memory.set((1 << 20) - 1, 44);
+		assertThat(memory.getAllocatedPages()).isEqualTo(2);
+		assertThat(memory.get(5)).isEqualTo(42);
+		assertThat(memory.get(6)).isEqualTo(43);
+		assertThat(memory.get((1 << 20) - 1)).isEqualTo(44);
+		assertThat(memory.get(PagedMemory.PAGE_SIZE + 5)).isEqualTo(0);
+	}
+
+	@Test
+	public void copiesShareUntilWritten() {
+		PagedMemory original = new PagedMemory(1 << 16);
+		original.set(100, 1);
+		PagedMemory copy = original.copy();
+		assertThat(copy.get(100)).isEqualTo(1);
+
+		copy.set(100, 2);
+		original.set(101, 3);
+		assertThat(original.get(100)).isEqualTo(1);
+		assertThat(copy.get(100)).isEqualTo(2);
+		assertThat(copy.get(101)).isEqualTo(0);
+		assertThat(original.get(101)).isEqualTo(3);
+	}
+
+	@Test
+	public void resizeAndSnapshot() {
+		PagedMemory small = new PagedMemory(16);
+		small.set(3, 7);
+		small.set(15, 9);
+
+		int[] contents = small.toIntArray();
+		assertThat(contents).hasLength(16);
+		assertThat(contents[3]).isEqualTo(7);
+		assertThat(contents[15]).isEqualTo(9);
+
+		PagedMemory larger = small.resize(1 << 12);
+		assertThat(larger.get(3)).isEqualTo(7);
+		assertThat(larger.get(15)).isEqualTo(9);
+		assertThat(larger.get(16)).isEqualTo(0);
+
+		PagedMemory smaller = larger.resize(8);
+		assertThat(smaller.toIntArray()).isEqualTo(new int[] { 0, 0, 0, 7, 0, 0, 0, 0 });
+
+		PagedMemory dense = PagedMemory.of(4, new int[] { 1, 0, 2, 0 });
+		assertThat(dense.toIntArray()).isEqualTo(new int[] { 1, 0, 2, 0 });
+	}
+
+	@Test
+	public void bulkOperations() {
+		PagedMemory memory = new PagedMemory(4 * PagedMemory.PAGE_SIZE);
+		memory.fill(10, 3 * PagedMemory.PAGE_SIZE, 5);
+		assertThat(memory.getAllocatedPages()).isEqualTo(3);
+		assertThat(memory.get(9)).isEqualTo(0);
+		assertThat(memory.get(10)).isEqualTo(5);
+		assertThat(memory.get(3 * PagedMemory.PAGE_SIZE - 1)).isEqualTo(5);
+		assertThat(memory.get(3 * PagedMemory.PAGE_SIZE)).isEqualTo(0);
+
+		// Whole pages filled with zeros are released
+		memory.fill(PagedMemory.PAGE_SIZE, 3 * PagedMemory.PAGE_SIZE, 0);
+		assertThat(memory.getAllocatedPages()).isEqualTo(1);
+
+		int[] values = new int[PagedMemory.PAGE_SIZE + 2];
+		values[0] = 1;
+		values[values.length - 1] = 2;
+		memory.copyFrom(2 * PagedMemory.PAGE_SIZE - 1, values);
+		assertThat(memory.get(2 * PagedMemory.PAGE_SIZE - 1)).isEqualTo(1);
+		assertThat(memory.get(3 * PagedMemory.PAGE_SIZE)).isEqualTo(2);
+		// The page in the middle only received zeros and stays unallocated
+		assertThat(memory.getAllocatedPages()).isEqualTo(3);
+
+		memory.clear();
+		assertThat(memory.getAllocatedPages()).isEqualTo(0);
+		assertThat(memory.get(10)).isEqualTo(0);
+	}
+}
@@ -0,0 +1,169 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Port;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.memory.MemoryAccessTracer.Access;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+import kotlin.ranges.IntRange;
+
+public class RAMTest {
+	/**
+	 * A RAM in its own circuit with a Pin linked to each of its ports. All Pins are inputs starting at 0, except the
+	 * one on the data port which only reads, so stores go through the data input of a RAM with separate load and store.
+	 */
+	private static class WiredRam {
+		final Simulator simulator = new Simulator();
+		final Circuit circuit = new Circuit("Memory", simulator);
+		final CircuitState state = circuit.getTopLevelState();
+		final RAM ram;
+		private final Map<RAM.Ports, Pin> pins = new EnumMap<>(RAM.Ports.class);
+
+		WiredRam(int addressBits, int dataBits, boolean separateLoadStore) {
+			ram = circuit.addComponent(new RAM("MEM", addressBits, dataBits, Addressability.WORD, separateLoadStore, null));
+			for (int i = 0; i < ram.getNumPorts(); i++) {
+				RAM.Ports port = RAM.Ports.values()[i];
+				Port ramPort = ram.getPort(i);
+				Pin pin = circuit.addComponent(new Pin(port.name(), ramPort.getLink().getBitSize(),
+					port != RAM.Ports.PORT_DATA));
+				pin.getPort().linkPort(ramPort);
+				pins.put(port, pin);
+			}
+			simulator.stepAll();
+		}
+
+		void set(RAM.Ports port, int value) {
+			Pin pin = pins.get(port);
+			pin.setValue(state, WireValue.of(value, pin.getBitSize()));
+		}
+
+		int data() {
+			return state.getLastReceived(pins.get(RAM.Ports.PORT_DATA).getPort()).getValue();
+		}
+	}
+
+	@Test
+	public void onlyAllocatesWrittenPages() {
+		WiredRam wired = new WiredRam(20, 32, false);
+		RAM ram = wired.ram;
+		CircuitState state = wired.state;
+
+		ram.store(state, 0x12345, 0xCAFE);
+		assertThat(ram.load(state, 0x12345)).isEqualTo(0xCAFE);
+		assertThat(ram.load(state, 0x54321)).isEqualTo(0);
+		assertThat(ram.getMemory(state).getAllocatedPages()).isEqualTo(1);
+		assertThat(ram.getMemoryContents(state)[0x12345]).isEqualTo(0xCAFE);
+	}
+
+	@Test
+	public void clearNotifiesOnce() {
+		WiredRam wired = new WiredRam(16, 8, false);
+		RAM ram = wired.ram;
+		CircuitState state = wired.state;
+
+		ram.storeRange(state, 0x100, new int[] { 1, 2, 3 });
+		wired.set(RAM.Ports.PORT_ADDRESS, 0x101);
+		wired.set(RAM.Ports.PORT_ENABLE, 1);
+		wired.set(RAM.Ports.PORT_LOAD, 1);
+		wired.simulator.stepAll();
+		assertThat(wired.data()).isEqualTo(2);
+
+		List<IntRange> ranges = new ArrayList<>();
+		List<Integer> words = new ArrayList<>();
+		ram.addMemoryRangeListener(range -> {
+			ranges.add(range);
+			return null;
+		});
+		ram.addMemoryListener((addr, value) -> {
+			words.add(addr);
+			return null;
+		});
+
+		wired.set(RAM.Ports.PORT_CLEAR, 1);
+		wired.simulator.stepAll();
+		assertThat(ranges).containsExactly(new IntRange(0, (1 << 16) - 1));
+		assertThat(words).isEmpty();
+		assertThat(ram.load(state, 0x101)).isEqualTo(0);
+		assertThat(wired.data()).isEqualTo(0);
+	}
+
+	@Test
+	public void tracksStores() {
+		WiredRam wired = new WiredRam(16, 8, true);
+		RAM ram = wired.ram;
+		CircuitState state = wired.state;
+
+		MemoryChangeTracker tracker = ram.trackChanges();
+		List<IntRange> settled = new ArrayList<>();
+		wired.simulator.addSimulationListener(ram.trackChanges().onSettled(range -> {
+			settled.add(range);
+			return null;
+		}));
+
+		wired.set(RAM.Ports.PORT_STORE, 1);
+		wired.set(RAM.Ports.PORT_ADDRESS, 0x13);
+		wired.set(RAM.Ports.PORT_DATA_IN, 42);
+		wired.simulator.stepAll();
+		assertThat(settled).isEmpty();
+
+		// Direct stores, a bulk fill and a clocked store are all delivered together when the simulation settles
+		for (int i = 0; i < 3; i++) {
+			ram.store(state, 0x10 + i, i);
+		}
+		ram.fill(state, 0x100, 0x180, 7);
+		wired.set(RAM.Ports.PORT_CLK, 1);
+		wired.simulator.stepAll();
+
+		assertThat(ram.load(state, 0x13)).isEqualTo(42);
+		List<IntRange> changed = List.of(new IntRange(0x10, 0x13), new IntRange(0x100, 0x17F));
+		assertThat(settled).containsExactlyElementsIn(changed).inOrder();
+		assertThat(MemoryChangeTrackerTest.drain(tracker)).containsExactlyElementsIn(changed).inOrder();
+
+		ram.stopTracking(tracker);
+		ram.clear(state);
+		assertThat(tracker.isDirty()).isFalse();
+	}
+
+	@Test
+	public void tracesPortAccesses() {
+		WiredRam wired = new WiredRam(8, 8, true);
+		RAM ram = wired.ram;
+		CircuitState state = wired.state;
+
+		MemoryAccessTracer tracer = new MemoryAccessTracer(256);
+		ram.setAccessTracer(tracer);
+
+		wired.set(RAM.Ports.PORT_ENABLE, 1);
+		wired.set(RAM.Ports.PORT_STORE, 1);
+		wired.set(RAM.Ports.PORT_ADDRESS, 0x20);
+		wired.set(RAM.Ports.PORT_DATA_IN, 0x55);
+		wired.simulator.stepAll();
+		wired.set(RAM.Ports.PORT_CLK, 1);
+		wired.simulator.stepAll();
+
+		wired.set(RAM.Ports.PORT_STORE, 0);
+		wired.set(RAM.Ports.PORT_LOAD, 1);
+		wired.simulator.stepAll();
+		assertThat(wired.data()).isEqualTo(0x55);
+
+		// Reads by the GUI are not traced
+		ram.load(state, 0x20);
+
+		assertThat(tracer.recentAccesses()).containsExactly(
+			new Access(0, 0x20, true, 0x55), new Access(1, 0x20, false, 0x55)).inOrder();
+		assertThat(tracer.getStoreCount()).isEqualTo(1);
+		assertThat(tracer.getLoadCount()).isEqualTo(1);
+	}
+}
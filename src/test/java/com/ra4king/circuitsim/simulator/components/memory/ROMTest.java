@@ -0,0 +1,48 @@
+package com.ra4king.circuitsim.simulator.components.memory;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.memory.MemoryAccessTracer.Access;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class ROMTest {
+	@Test
+	public void refreshesAreNotTraced() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Memory", simulator);
+		CircuitState state = circuit.getTopLevelState();
+		ROM rom = circuit.addComponent(new ROM("ROM", 8, 8, Addressability.WORD));
+		rom.initMemory(new int[] { 0, 0, 0, 0x11 });
+
+		Pin address = circuit.addComponent(new Pin("Address", 8, true));
+		Pin enable = circuit.addComponent(new Pin("Enable", 1, true));
+		Pin data = circuit.addComponent(new Pin("Data", 8, false));
+		address.getPort().linkPort(rom.getPort(ROM.Ports.PORT_ADDRESS.ordinal()));
+		enable.getPort().linkPort(rom.getPort(ROM.Ports.PORT_ENABLE.ordinal()));
+		data.getPort().linkPort(rom.getPort(ROM.Ports.PORT_DATA.ordinal()));
+		simulator.stepAll();
+
+		MemoryAccessTracer tracer = new MemoryAccessTracer(256);
+		rom.setAccessTracer(tracer);
+
+		address.setValue(state, WireValue.of(3, 8));
+		enable.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		assertThat(state.getLastReceived(data.getPort()).getValue()).isEqualTo(0x11);
+
+		// Edits of the contents update the output without being traced as loads
+		rom.store(3, 0x22);
+		rom.refresh(state);
+		simulator.stepAll();
+		assertThat(state.getLastReceived(data.getPort()).getValue()).isEqualTo(0x22);
+
+		assertThat(tracer.recentAccesses()).containsExactly(new Access(0, 3, false, 0x11));
+		assertThat(tracer.getLoadCount()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,118 @@
+package com.ra4king.circuitsim.simulator.debugger;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.arithmetic.Adder;
+import com.ra4king.circuitsim.simulator.components.memory.Addressability;
+import com.ra4king.circuitsim.simulator.components.memory.RAM;
+import com.ra4king.circuitsim.simulator.components.memory.Register;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class DebuggerTest {
+	@Test
+	public void expressions() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Expressions", simulator);
+		Pin a = circuit.addComponent(new Pin("A", 8, true));
+		Pin b = circuit.addComponent(new Pin("B", 8, true));
+		Pin floating = circuit.addComponent(new Pin("Floating", 8, false));
+		RAM ram = circuit.addComponent(new RAM("MEM", 8, 8, Addressability.WORD, false, null));
+
+		CircuitState state = circuit.getTopLevelState();
+		a.setValue(state, WireValue.of(3, 8));
+		b.setValue(state, WireValue.of(0xF0, 8));
+		ram.store(state, 0x10, 7);
+		simulator.stepAll();
+
+		assertThat(WatchExpression.compile("A + 1 == 4 && B == 0xf0", circuit).test(state)).isTrue();
+		assertThat(WatchExpression.compile("A * 2 + 1 <= 0b111", circuit).test(state)).isTrue();
+		assertThat(WatchExpression.compile("(B >> 4) - A == 12 || A == 0", circuit).test(state)).isTrue();
+		assertThat(WatchExpression.compile("!(A != 3) && (B & ~0x0f) == 240", circuit).test(state)).isTrue();
+		assertThat(WatchExpression.compile("MEM[0x10] == 7 && MEM[A] == 0", circuit).test(state)).isTrue();
+		assertThat(WatchExpression.compile("A > 3", circuit).test(state)).isFalse();
+
+		// Undefined values never satisfy a condition
+		assertThat(WatchExpression.compile("Floating == 0 || Floating != 0", circuit).test(state)).isFalse();
+		assertThat(WatchExpression.compile("A / 0 == 0", circuit).test(state)).isFalse();
+		assertThat(WatchExpression.compile("MEM[0x100] == 0", circuit).test(state)).isFalse();
+
+		assertThrows(IllegalArgumentException.class, () -> WatchExpression.compile("PC == 1", circuit));
+		assertThrows(IllegalArgumentException.class, () -> WatchExpression.compile("A[1] == 1", circuit));
+		assertThrows(IllegalArgumentException.class, () -> WatchExpression.compile("A == (1", circuit));
+		assertThrows(IllegalArgumentException.class, () -> WatchExpression.compile("A == 0xZ", circuit));
+	}
+
+	@Test
+	public void watchpointHaltsRun() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Counter", simulator);
+
+		Clock clock = circuit.addComponent(new Clock("Clock"));
+		Register register = circuit.addComponent(new Register("PC", 8));
+		Adder adder = circuit.addComponent(new Adder("Adder", 8));
+		Pin one = circuit.addComponent(new Pin("One", 8, true));
+		Pin cin = circuit.addComponent(new Pin("Cin", 1, true));
+
+		register.getPort(Register.Ports.PORT_IN).linkPort(adder.getPort(Adder.Ports.PORT_OUT));
+		register.getPort(Register.Ports.PORT_CLK).linkPort(clock.getPort(Clock.PORT));
+		adder.getPort(Adder.Ports.PORT_A).linkPort(register.getPort(Register.Ports.PORT_OUT));
+		adder.getPort(Adder.Ports.PORT_B).linkPort(one.getPort());
+		adder.getPort(Adder.Ports.PORT_CARRY_IN).linkPort(cin.getPort());
+
+		CircuitState state = circuit.getTopLevelState();
+		one.setValue(state, WireValue.of(1, 8));
+		cin.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+
+		Debugger debugger = Debugger.get(simulator);
+		Debugger.Watchpoint watchpoint = debugger.addWatchpoint(circuit, "PC == 5");
+
+		Clock.RunResult result = Clock.runCycles(simulator, 100);
+		assertThat(result.getHalted()).isTrue();
+		assertThat(result.getCycles()).isEqualTo(5L);
+		assertThat(watchpoint.getHitCount()).isEqualTo(1);
+
+		// The watchpoint only hits again once its condition becomes true again
+		result = Clock.runCycles(simulator, 100);
+		assertThat(result.getHalted()).isFalse();
+		assertThat(result.getCycles()).isEqualTo(100L);
+
+		debugger.removeWatchpoint(watchpoint);
+		assertThat(debugger.getWatchpoints(circuit)).isEmpty();
+		assertThat(Clock.runCycles(simulator, 256).getHalted()).isFalse();
+		assertThat(watchpoint.getHitCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void memoryWatchpointSeesClear() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Memory", simulator);
+		RAM ram = circuit.addComponent(new RAM("MEM", 8, 8, Addressability.WORD, false, null));
+		Pin clear = circuit.addComponent(new Pin("Clear", 1, true));
+		clear.getPort().linkPort(ram.getPort(RAM.Ports.PORT_CLEAR));
+
+		CircuitState state = circuit.getTopLevelState();
+		clear.setValue(state, WireValue.of(0, 1));
+		ram.store(state, 5, 9);
+		simulator.stepAll();
+
+		Debugger debugger = Debugger.get(simulator);
+		Debugger.Watchpoint watchpoint = debugger.addWatchpoint(circuit, "MEM[5] == 0");
+		watchpoint.setHaltOnHit(false);
+
+		// Clearing only notifies once for the whole memory, not for each word
+		clear.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		assertThat(ram.load(state, 5)).isEqualTo(0);
+		assertThat(watchpoint.getHitCount()).isEqualTo(1);
+		debugger.close();
+	}
+}
@@ -0,0 +1,104 @@
+package com.ra4king.circuitsim.simulator.debugger;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class WaveformRecorderTest {
+	@Test
+	public void recordsChangesAndExportsVcd() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Inverter", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		Pin data = circuit.addComponent(new Pin("Data", 4, true));
+		NotGate not = circuit.addComponent(new NotGate("", 1));
+		Pin out = circuit.addComponent(new Pin("Out", 1, false));
+		in.getPort().linkPort(not.getPort(0));
+		not.getOutPort().linkPort(out.getPort());
+
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+
+		WaveformRecorder recorder = new WaveformRecorder(simulator, 4);
+		WaveformRecorder.Signal outSignal = recorder.addSignal("Out", state, out.getPort());
+		WaveformRecorder.Signal dataSignal = recorder.addSignal("Data", state, data.getPort());
+		recorder.start();
+
+		for (int i = 1; i <= 3; i++) {
+			in.setValue(state, WireValue.of(i % 2, 1));
+			simulator.stepAll();
+		}
+		data.setValue(state, WireValue.of(0b1010, 4));
+		simulator.stepAll();
+
+		assertThat(outSignal.getSize()).isEqualTo(4);
+		assertThat(outSignal.getTime(0)).isEqualTo(0L);
+		assertThat(outSignal.getValue(0)).isEqualTo(1L);
+		assertThat(outSignal.getValue(1)).isEqualTo(0L);
+		assertThat(recorder.getTime()).isEqualTo(4L);
+
+		assertThat(dataSignal.getValue(0)).isEqualTo(0L);
+		assertThat(dataSignal.getValue(1)).isEqualTo(0b1010L);
+
+		// Floating bits are kept in the upper half of the encoded value
+		assertThat(WaveformRecorder.encode(new WireValue(2))).isEqualTo(0b11L << 32);
+
+		// The oldest changes are dropped once the buffer is full
+		in.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+		assertThat(outSignal.getSize()).isEqualTo(4);
+		assertThat(outSignal.getDropped()).isEqualTo(1L);
+		assertThat(outSignal.getTime(0)).isEqualTo(1L);
+
+		StringWriter writer = new StringWriter();
+		recorder.exportVcd(writer);
+		String vcd = writer.toString();
+		assertThat(vcd).contains("$var wire 1 ! Out $end");
+		assertThat(vcd).contains("$var wire 4 \" Data [3:0] $end");
+		assertThat(vcd).contains("#0\n$dumpvars\nb0000 \"\nx!\n$end\n#1\n0!\n");
+		assertThat(vcd).contains("#4\nb1010 \"\n#5\n1!\n");
+
+		recorder.stop();
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		assertThat(recorder.getTime()).isEqualTo(5L);
+	}
+
+	@Test
+	public void timeAdvancesOnEverySettle() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Pins", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		Pin other = circuit.addComponent(new Pin("Other", 1, true));
+		simulator.stepAll();
+
+		CircuitState state = circuit.getTopLevelState();
+		WaveformRecorder recorder = new WaveformRecorder(simulator);
+		WaveformRecorder.Signal signal = recorder.addSignal("In", state, in.getPort());
+		recorder.start();
+
+		// Settles where no recorded net changed still take time, but a stepAll with nothing to update does not
+		for (int i = 1; i <= 2; i++) {
+			other.setValue(state, WireValue.of(i % 2, 1));
+			simulator.stepAll();
+			simulator.stepAll();
+		}
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+
+		assertThat(recorder.getTime()).isEqualTo(3L);
+		assertThat(signal.getSize()).isEqualTo(2);
+		assertThat(signal.getTime(1)).isEqualTo(3L);
+		recorder.close();
+	}
+}
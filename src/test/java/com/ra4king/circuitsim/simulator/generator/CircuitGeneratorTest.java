@@ -0,0 +1,145 @@
+package com.ra4king.circuitsim.simulator.generator;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.wiring.Clock;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class CircuitGeneratorTest {
+	private static Pin pin(Circuit circuit, String name) {
+		for (Component component : circuit.getComponents()) {
+			if (component instanceof Pin && component.getName().equals(name)) {
+				return (Pin)component;
+			}
+		}
+		throw new IllegalArgumentException("No pin named " + name);
+	}
+	
+	private static void set(Circuit circuit, String name, long value) {
+		Pin pin = pin(circuit, name);
+		pin.setValue(circuit.getTopLevelState(), WireValue.of(value, pin.getBitSize()));
+	}
+	
+	private static long get(Circuit circuit, String name) {
+		CircuitState state = circuit.getTopLevelState();
+		return state.getLastReceived(pin(circuit, name).getPort()).getValue() & 0xFFFFFFFFL;
+	}
+	
+	@Test
+	public void rippleAdderAddsAcrossPins() {
+		Simulator simulator = new Simulator();
+		Circuit adder = new CircuitGenerator(simulator).rippleAdder(40);
+		
+		// 0x80_FFFFFFFF + 0x01 with a carry in
+		set(adder, "A0", 0xFFFFFFFFL);
+		set(adder, "A1", 0x80);
+		set(adder, "B0", 1);
+		set(adder, "B1", 0);
+		set(adder, "Cin", 1);
+		simulator.stepAll();
+		
+		assertThat(get(adder, "S0")).isEqualTo(1L);
+		assertThat(get(adder, "S1")).isEqualTo(0x81L);
+		assertThat(get(adder, "Cout")).isEqualTo(0L);
+	}
+	
+	@Test
+	public void arrayMultiplierMultiplies() {
+		Simulator simulator = new Simulator();
+		Circuit multiplier = new CircuitGenerator(simulator).arrayMultiplier(5, 7);
+		
+		long[][] cases = { { 0, 0 }, { 1, 1 }, { 31, 127 }, { 13, 100 }, { 17, 3 } };
+		for (long[] operands : cases) {
+			set(multiplier, "B", operands[0]);
+			set(multiplier, "A", operands[1]);
+			simulator.stepAll();
+			assertThat(get(multiplier, "P")).isEqualTo(operands[0] * operands[1]);
+		}
+	}
+	
+	@Test
+	public void registerFileWritesAndReads() {
+		Simulator simulator = new Simulator();
+		Circuit registers = new CircuitGenerator(simulator).registerFile(8, 16);
+		
+		set(registers, "WriteEnable", 1);
+		for (int i = 0; i < 8; i++) {
+			set(registers, "WriteAddress", i);
+			set(registers, "WriteData", 1000 + i);
+			simulator.stepAll();
+			Clock.runCycles(simulator, 1);
+		}
+		set(registers, "WriteEnable", 0);
+		set(registers, "WriteAddress", 3);
+		set(registers, "WriteData", 0);
+		set(registers, "ReadAddress1", 3);
+		set(registers, "ReadAddress2", 6);
+		simulator.stepAll();
+		Clock.runCycles(simulator, 1);
+		
+		assertThat(get(registers, "ReadData1")).isEqualTo(1003L);
+		assertThat(get(registers, "ReadData2")).isEqualTo(1006L);
+	}
+	
+	@Test
+	public void hierarchyNestsInstances() {
+		Simulator simulator = new Simulator();
+		Circuit top = new CircuitGenerator(simulator).hierarchy(3, 3);
+		assertThat(simulator.getCircuits()).hasSize(4);
+		
+		// 27 inverters in series
+		set(top, "In", 0);
+		simulator.stepAll();
+		assertThat(get(top, "Out")).isEqualTo(1L);
+		set(top, "In", 1);
+		simulator.stepAll();
+		assertThat(get(top, "Out")).isEqualTo(0L);
+	}
+	
+	@Test
+	public void busDrivesAllReaders() {
+		Simulator simulator = new Simulator();
+		Circuit bus = new CircuitGenerator(simulator).bus(8, 50);
+		set(bus, "Bus", 0x0F);
+		simulator.stepAll();
+		assertThat(get(bus, "Out")).isEqualTo(0xF0L);
+		assertThat(pin(bus, "Bus").getPort().getLink().getParticipants()).hasSize(51);
+	}
+	
+	@Test
+	public void lfsrCyclesThroughStates() {
+		Simulator simulator = new Simulator();
+		CircuitGenerator generator = new CircuitGenerator(simulator);
+		Circuit lfsr = generator.lfsrRing(4);
+		simulator.stepAll();
+		
+		// The last 4 bits shifted out of a 4-bit shift register are the state of its registers
+		Set<Long> states = new HashSet<>();
+		StringBuilder output = new StringBuilder();
+		long window = 0;
+		for (int i = 0; i < 20; i++) {
+			Clock.runCycles(simulator, 1);
+			output.append(get(lfsr, "Out"));
+			window = ((window << 1) | get(lfsr, "Out")) & 0xF;
+			if (i >= 3) {
+				states.add(window);
+			}
+		}
+		assertThat(output.toString()).contains("1");
+		assertThat(output.toString()).contains("0");
+		assertThat(states.size()).isGreaterThan(2);
+		
+		// Generating a circuit with the same name again gets a unique name
+		assertThat(generator.lfsrRing(4).getName()).isNotEqualTo(lfsr.getName());
+	}
+}
@@ -0,0 +1,83 @@
+package com.ra4king.circuitsim.simulator.metrics;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class SimulationMetricsTest {
+	@Test
+	public void histogramPercentiles() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertThat(snapshot.getCount()).isEqualTo(100L);
+		assertThat(snapshot.getMax()).isEqualTo(100L);
+		assertThat(snapshot.getMean()).isEqualTo(50.5);
+		// 50 falls in the bucket from 32 to 63, 100 in the one from 64 to 127 which is capped at the maximum
+		assertThat(snapshot.percentile(50)).isEqualTo(63L);
+		assertThat(snapshot.percentile(100)).isEqualTo(100L);
+		assertThat(snapshot.percentile(0)).isEqualTo(1L);
+
+		histogram.record(0);
+		Histogram.Snapshot delta = histogram.snapshot().since(snapshot);
+		assertThat(delta.getCount()).isEqualTo(1L);
+		assertThat(delta.percentile(50)).isEqualTo(0L);
+	}
+
+	private static Pin inverterChain(Simulator simulator) {
+		Circuit circuit = new Circuit("Chain", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		NotGate first = circuit.addComponent(new NotGate("", 1));
+		NotGate second = circuit.addComponent(new NotGate("", 1));
+		in.getPort().linkPort(first.getPort(0));
+		first.getOutPort().linkPort(second.getPort(0));
+		simulator.stepAll();
+		return in;
+	}
+
+	@Test
+	public void settlesAreMeasured() {
+		Simulator simulator = new Simulator();
+		Pin in = inverterChain(simulator);
+		simulator.getMetrics().setEnabled(true);
+
+		SimulationMetrics.Snapshot before = simulator.getMetrics().snapshot();
+		CircuitState state = in.getCircuit().getTopLevelState();
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		simulator.stepAll();
+
+		SimulationMetrics.Interval interval = simulator.getMetrics().snapshot().since(before);
+		assertThat(interval.getSettles()).isEqualTo(1L);
+		assertThat(interval.getSteps()).isEqualTo(3L);
+		assertThat(interval.getLinks()).isEqualTo(3L);
+		assertThat(interval.getShortCircuits()).isEqualTo(0L);
+		assertThat(interval.getStepsPerSettle().getMax()).isAtLeast(3L);
+		assertThat(interval.getQueueDepth().getCount()).isEqualTo(3L);
+		assertThat(interval.getBusyNanos()).isGreaterThan(0L);
+	}
+
+	@Test
+	public void nothingIsRecordedWhenDisabled() {
+		Simulator simulator = new Simulator();
+		Pin in = inverterChain(simulator);
+		assertThat(simulator.getMetrics().isEnabled()).isFalse();
+
+		in.setValue(in.getCircuit().getTopLevelState(), WireValue.of(1, 1));
+		simulator.stepAll();
+
+		SimulationMetrics.Snapshot snapshot = simulator.getMetrics().snapshot();
+		assertThat(snapshot.getSettles()).isEqualTo(0L);
+		assertThat(snapshot.getQueueDepth().getCount()).isEqualTo(0L);
+	}
+}
@@ -0,0 +1,98 @@
+package com.ra4king.circuitsim.simulator.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class ActivityTrackerTest {
+	@Test
+	public void slotsAreReusedAfterRemoval() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Slots", simulator);
+		Pin a = circuit.addComponent(new Pin("A", 1, true));
+		Pin b = circuit.addComponent(new Pin("B", 1, true));
+		assertThat(a.getSlot()).isEqualTo(0);
+		assertThat(b.getSlot()).isEqualTo(1);
+
+		circuit.removeComponent(a);
+		assertThat(a.getSlot()).isEqualTo(-1);
+
+		Pin c = circuit.addComponent(new Pin("C", 1, true));
+		assertThat(c.getSlot()).isEqualTo(0);
+		assertThat(circuit.getSlotCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void countsEvaluationsPerComponent() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Chain", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		NotGate first = circuit.addComponent(new NotGate("Not0", 1));
+		NotGate second = circuit.addComponent(new NotGate("Not1", 1));
+		first.getPort(0).linkPort(in.getPort());
+		second.getPort(0).linkPort(first.getOutPort());
+		simulator.stepAll();
+
+		ActivityTracker tracker = new ActivityTracker(1_000_000_000_000L, 4);
+		simulator.addSimulationListener(tracker);
+		// Other listeners do not take the tracker's place
+		SamplingTracer sampling = new SamplingTracer(1);
+		simulator.addSimulationListener(sampling);
+		CircuitState state = circuit.getTopLevelState();
+		for (int i = 0; i < 5; i++) {
+			in.setValue(state, WireValue.of((i + 1) % 2, 1));
+			simulator.stepAll();
+		}
+		simulator.removeSimulationListener(tracker);
+
+		long[] totals = tracker.getTotalCounts(circuit);
+		long[] window = tracker.getWindowCounts(circuit);
+		assertThat(totals[first.getSlot()]).isEqualTo(5L);
+		assertThat(totals[second.getSlot()]).isEqualTo(5L);
+		assertThat(window[first.getSlot()]).isEqualTo(5L);
+		assertThat(sampling.getHottestComponents(100)).hasSize(2);
+
+		tracker.reset();
+		assertThat(tracker.getTotalCounts(circuit)).hasLength(0);
+	}
+
+	@Test
+	public void releasedSlotsAreCleared() {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Pair", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		NotGate first = circuit.addComponent(new NotGate("Not0", 1));
+		NotGate second = circuit.addComponent(new NotGate("Not1", 1));
+		first.getPort(0).linkPort(in.getPort());
+		second.getPort(0).linkPort(in.getPort());
+		simulator.stepAll();
+
+		ActivityTracker tracker = new ActivityTracker(1_000_000_000_000L, 4);
+		simulator.addSimulationListener(tracker);
+		CircuitState state = circuit.getTopLevelState();
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+
+		// A replacement keeps the heat of the component it replaces
+		in.getPort().getLink().unlinkPort(first.getPort(0));
+		NotGate replacement = new NotGate("Not0", 1);
+		circuit.updateComponent(first, replacement, null);
+		assertThat(tracker.getTotalCounts(circuit)[replacement.getSlot()]).isEqualTo(1L);
+
+		// An unrelated component placed after a removal does not inherit it
+		int slot = second.getSlot();
+		in.getPort().getLink().unlinkPort(second.getPort(0));
+		circuit.removeComponent(second);
+		Pin unrelated = circuit.addComponent(new Pin("Other", 1, true));
+		assertThat(unrelated.getSlot()).isEqualTo(slot);
+		assertThat(tracker.getTotalCounts(circuit)[slot]).isEqualTo(0L);
+		assertThat(tracker.getWindowCounts(circuit)[slot]).isEqualTo(0L);
+	}
+}
@@ -0,0 +1,53 @@
+package com.ra4king.circuitsim.simulator.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class SimulationEventsTest {
+	@Test
+	public void settleIsRecorded() throws Exception {
+		Simulator simulator = new Simulator();
+		Circuit circuit = new Circuit("Inverter", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		NotGate not = circuit.addComponent(new NotGate("", 1));
+		in.getPort().linkPort(not.getPort(0));
+		simulator.stepAll();
+
+		Path file = Files.createTempFile("settle", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(SettleEvent.class).withoutThreshold();
+			recording.start();
+
+			CircuitState state = circuit.getTopLevelState();
+			in.setValue(state, WireValue.of(1, 1));
+			simulator.stepAll();
+
+			recording.stop();
+			recording.dump(file);
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			assertThat(events).hasSize(1);
+			assertThat(events.get(0).getEventType().getName()).isEqualTo("com.ra4king.circuitsim.Settle");
+			assertThat(events.get(0).getInt("steps")).isEqualTo(2);
+			assertThat(events.get(0).getLong("links")).isEqualTo(2L);
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.ra4king.circuitsim.simulator.trace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.ra4king.circuitsim.simulator.Circuit;
+import com.ra4king.circuitsim.simulator.CircuitState;
+import com.ra4king.circuitsim.simulator.Component;
+import com.ra4king.circuitsim.simulator.Simulator;
+import com.ra4king.circuitsim.simulator.Simulator.SimulationListener;
+import com.ra4king.circuitsim.simulator.WireValue;
+import com.ra4king.circuitsim.simulator.components.gates.Gate.NotGate;
+import com.ra4king.circuitsim.simulator.components.wiring.Pin;
+
+public class TracerTest {
+	private static Pin inverterChain(Simulator simulator, int length) {
+		Circuit circuit = new Circuit("Chain", simulator);
+		Pin in = circuit.addComponent(new Pin("In", 1, true));
+		NotGate previous = null;
+		for (int i = 0; i < length; i++) {
+			NotGate not = circuit.addComponent(new NotGate("Not" + i, 1));
+			not.getPort(0).linkPort(previous == null ? in.getPort() : previous.getOutPort());
+			previous = not;
+		}
+		simulator.stepAll();
+		return in;
+	}
+
+	@Test
+	public void fullTracerWritesEveryEvent() {
+		Simulator simulator = new Simulator();
+		Pin in = inverterChain(simulator, 2);
+		CircuitState state = in.getCircuit().getTopLevelState();
+
+		StringBuilder trace = new StringBuilder();
+		FullTracer tracer = new FullTracer(trace);
+		simulator.addSimulationListener(tracer);
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+		simulator.removeSimulationListener(tracer);
+
+		// The pin, then each inverter, take one step each
+		assertThat(tracer.getSteps()).isEqualTo(3L);
+		assertThat(trace.toString()).startsWith("    pushed 1 from Port(In[0])\nstep 0: 1 links\n");
+		assertThat(trace.toString()).contains("    evaluated Not0 port 0 in ");
+		assertThat(trace.toString()).contains("    pushed 1 from Port(Not1[1])\n");
+		assertThat(trace.toString()).endsWith("end of step 2\n");
+
+		in.setValue(state, WireValue.of(0, 1));
+		simulator.stepAll();
+		assertThat(tracer.getSteps()).isEqualTo(3L);
+	}
+
+	@Test
+	public void samplingTracerCountsAndSamples() {
+		Simulator simulator = new Simulator();
+		Pin in = inverterChain(simulator, 10);
+		CircuitState state = in.getCircuit().getTopLevelState();
+
+		SamplingTracer tracer = new SamplingTracer(2);
+		simulator.addSimulationListener(tracer);
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+
+		assertThat(tracer.getSteps()).isEqualTo(11L);
+		assertThat(tracer.getLinksPropagated()).isEqualTo(11L);
+		assertThat(tracer.getValuesPushed()).isEqualTo(11L);
+		assertThat(tracer.getMaxLinksPerStep()).isEqualTo(1);
+
+		// Only steps 0, 2, 4, 6, 8 and 10 are sampled, each evaluating one inverter except the last
+		assertThat(tracer.getHottestComponents(100)).hasSize(5);
+		assertThat(tracer.getBusiestLinks(100)).hasSize(6);
+		assertThat(tracer.format()).contains("Steps: 11");
+
+		tracer.reset();
+		assertThat(tracer.getSteps()).isEqualTo(0L);
+		assertThat(tracer.getHottestComponents(100)).isEmpty();
+	}
+
+	@Test
+	public void onlySampledStepsAreTimed() {
+		Simulator simulator = new Simulator();
+		Pin in = inverterChain(simulator, 10);
+		CircuitState state = in.getCircuit().getTopLevelState();
+
+		List<Long> times = new ArrayList<>();
+		simulator.addSimulationListener(new SamplingTracer(2));
+		simulator.addSimulationListener(new SimulationListener() {
+			@Override
+			public void componentEvaluated(CircuitState state, Component component, int portIndex, long nanos) {
+				times.add(nanos);
+			}
+		});
+		in.setValue(state, WireValue.of(1, 1));
+		simulator.stepAll();
+
+		// Steps 1, 3, 5, 7 and 9 are not sampled, so their evaluations are not timed
+		assertThat(times).hasSize(10);
+		for (int i = 0; i < times.size(); i++) {
+			if (i % 2 == 0) {
+				assertThat(times.get(i)).isAtLeast(0L);
+			} else {
+				assertThat(times.get(i)).isEqualTo(-1L);
+			}
+		}
+	}
+}